@@ -0,0 +1,80 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de autenticación por petición: verificar la firma RS256 en cada una frente a responder
+ * desde CachingReactiveJwtDecoder. El JWKS está en un archivo temporal, sin salir a la red.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingReactiveJwtDecoderBenchmark {
+
+    private Path jwksFile;
+    private RefreshingJwkSource jwkSource;
+    private ReactiveJwtDecoder verifier;
+    private CachingReactiveJwtDecoder cached;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        RSAKey signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        jwksFile = Files.createTempFile("jwks", ".json");
+        Files.writeString(jwksFile, new JWKSet(signingKey.toPublicJWK()).toString());
+
+        jwkSource = new RefreshingJwkSource(new FileSystemResource(jwksFile), Duration.ofHours(1), Duration.ZERO,
+                Duration.ofSeconds(5));
+        jwkSource.refresh().block();
+        verifier = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+        cached = new CachingReactiveJwtDecoder(verifier, 100, Duration.ofHours(1));
+
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("uid-1")
+                .claim("role", "admin")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("key-1").build(), claims);
+        jwt.sign(new RSASSASigner(signingKey));
+        token = jwt.serialize();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jwkSource.destroy();
+        Files.deleteIfExists(jwksFile);
+    }
+
+    @Benchmark
+    public Jwt verifyEveryRequest() {
+        return verifier.decode(token).block();
+    }
+
+    @Benchmark
+    public Jwt fromCache() {
+        return cached.decode(token).block();
+    }
+}
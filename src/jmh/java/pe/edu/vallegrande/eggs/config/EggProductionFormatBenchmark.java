@@ -0,0 +1,141 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compara los formatos que negocia GET /egg-production para una página de registros:
+ * tiempo de codificación con los mismos encoders que registra CodecConfig, y (al preparar cada tamaño)
+ * los bytes resultantes sin comprimir, con gzip y con brotli.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EggProductionFormatBenchmark {
+
+    private static final ResolvableType LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, EggProductionModel.class);
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Param({"10", "500", "10000"})
+    public int size;
+
+    private Jackson2JsonEncoder json;
+    private CodecConfig.CborValueEncoder cbor;
+    private Jackson2SmileEncoder smile;
+    private EggProductionProtobufEncoder protobuf;
+    private DefaultDataBufferFactory bufferFactory;
+    private List<EggProductionModel> models;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Misma configuración de fechas que aplica Spring Boot, compartida por los formatos de Jackson
+        json = new Jackson2JsonEncoder(builder().build());
+        cbor = new CodecConfig.CborValueEncoder(builder().factory(new CBORFactory()).build());
+        smile = new Jackson2SmileEncoder(builder().factory(new SmileFactory()).build());
+        protobuf = new EggProductionProtobufEncoder();
+        bufferFactory = new DefaultDataBufferFactory();
+        models = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            EggProductionModel model = new EggProductionModel();
+            model.setId(i);
+            model.setQuantityEggs(1000 + i % 500);
+            model.setEggsKilo(60 + i % 10);
+            model.setPriceKilo(new BigDecimal("7.50"));
+            model.setRegistrationDate(LocalDate.of(2020, 1, 1).plusDays(i % 2000));
+            model.setEstado(i % 7 == 0 ? "I" : "A");
+            model.setVersion((long) (i % 3));
+            models.add(model);
+        }
+        printSizes();
+    }
+
+    @Benchmark
+    public long json() {
+        return drain(json.encode(Mono.just(models), bufferFactory, LIST_TYPE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public long cbor() {
+        return drain(cbor.encode(Mono.just(models), bufferFactory, LIST_TYPE, MediaType.APPLICATION_CBOR, Map.of()));
+    }
+
+    @Benchmark
+    public long smile() {
+        return drain(smile.encode(Mono.just(models), bufferFactory, LIST_TYPE, SMILE, Map.of()));
+    }
+
+    @Benchmark
+    public long protobuf() {
+        return drain(protobuf.encode(Mono.just(models), bufferFactory, LIST_TYPE,
+                EggProductionProtobufEncoder.APPLICATION_PROTOBUF, Map.of()));
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private void printSizes() throws IOException {
+        boolean brotli = Brotli4jLoader.isAvailable();
+        System.out.printf("%n%-9s %6s %10s %10s %10s%n", "formato", "filas", "bytes", "gzip", "brotli");
+        printSize("json", bytes(json.encode(Mono.just(models), bufferFactory, LIST_TYPE,
+                MediaType.APPLICATION_JSON, Map.of())), brotli);
+        printSize("cbor", bytes(cbor.encode(Mono.just(models), bufferFactory, LIST_TYPE,
+                MediaType.APPLICATION_CBOR, Map.of())), brotli);
+        printSize("smile", bytes(smile.encode(Mono.just(models), bufferFactory, LIST_TYPE, SMILE, Map.of())), brotli);
+        printSize("protobuf", bytes(protobuf.encode(Mono.just(models), bufferFactory, LIST_TYPE,
+                EggProductionProtobufEncoder.APPLICATION_PROTOBUF, Map.of())), brotli);
+    }
+
+    private void printSize(String format, byte[] raw, boolean brotli) throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(raw);
+        }
+        String br = brotli ? String.valueOf(Encoder.compress(raw).length) : "-";
+        System.out.printf("%-9s %6d %10d %10d %10s%n", format, size, raw.length, gzip.size(), br);
+    }
+
+    private static byte[] bytes(Flux<DataBuffer> buffers) {
+        DataBuffer joined = DataBufferUtils.join(buffers).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    private static long drain(Flux<DataBuffer> buffers) {
+        return buffers.map(buffer -> {
+            int bytes = buffer.readableByteCount();
+            DataBufferUtils.release(buffer);
+            return (long) bytes;
+        }).reduce(0L, Long::sum).block();
+    }
+}
@@ -0,0 +1,67 @@
+package pe.edu.vallegrande.eggs.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trabajo que hace SecurityConfig en cada petición después de verificar el token:
+ * conversión del JWT a CustomAuthenticationToken y validación del origen CORS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private SecurityConfig securityConfig;
+    private Jwt adminJwt;
+    private Jwt noRoleJwt;
+
+    @Setup
+    public void setUp() {
+        securityConfig = new SecurityConfig();
+        adminJwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("uid-admin")
+                .claim("role", "admin")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        noRoleJwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("uid-anon")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+    }
+
+    @Benchmark
+    public CustomAuthenticationToken convertJwtWithRole() {
+        return securityConfig.convertJwt(adminJwt).block();
+    }
+
+    @Benchmark
+    public CustomAuthenticationToken convertJwtWithoutRole() {
+        return securityConfig.convertJwt(noRoleJwt).block();
+    }
+
+    @Benchmark
+    public boolean allowedStaticOrigin() {
+        return securityConfig.isAllowedOrigin("http://localhost:4200");
+    }
+
+    @Benchmark
+    public boolean allowedGitpodOrigin() {
+        return securityConfig.isAllowedOrigin("https://4200-abc123-def456.ws-us110.gitpod.io");
+    }
+
+    @Benchmark
+    public boolean rejectedOrigin() {
+        return securityConfig.isAllowedOrigin("https://evil.example.com");
+    }
+}
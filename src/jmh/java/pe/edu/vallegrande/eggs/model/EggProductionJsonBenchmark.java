@@ -0,0 +1,83 @@
+package pe.edu.vallegrande.eggs.model;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de serializar listas de EggProductionModel con el mismo encoder que usa WebFlux,
+ * como arreglo JSON (páginas) y como NDJSON (streaming).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EggProductionJsonBenchmark {
+
+    private static final ResolvableType MODEL_TYPE = ResolvableType.forClass(EggProductionModel.class);
+    private static final ResolvableType LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, EggProductionModel.class);
+
+    @Param({"10", "500", "10000"})
+    public int size;
+
+    private Jackson2JsonEncoder encoder;
+    private DefaultDataBufferFactory bufferFactory;
+    private List<EggProductionModel> models;
+
+    @Setup
+    public void setUp() {
+        // Misma configuración de fechas que aplica Spring Boot
+        encoder = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+        bufferFactory = new DefaultDataBufferFactory();
+        models = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            EggProductionModel model = new EggProductionModel();
+            model.setId(i);
+            model.setQuantityEggs(1000 + i % 500);
+            model.setEggsKilo(60 + i % 10);
+            model.setPriceKilo(new BigDecimal("7.50"));
+            model.setRegistrationDate(LocalDate.of(2020, 1, 1).plusDays(i % 2000));
+            model.setEstado(i % 7 == 0 ? "I" : "A");
+            model.setVersion((long) (i % 3));
+            models.add(model);
+        }
+    }
+
+    @Benchmark
+    public long jsonArray() {
+        return drain(encoder.encode(Mono.just(models), bufferFactory, LIST_TYPE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public long ndjson() {
+        return drain(encoder.encode(Flux.fromIterable(models), bufferFactory, MODEL_TYPE,
+                MediaType.APPLICATION_NDJSON, Map.of()));
+    }
+
+    private static long drain(Flux<DataBuffer> buffers) {
+        return buffers.map(buffer -> {
+            int bytes = buffer.readableByteCount();
+            DataBufferUtils.release(buffer);
+            return (long) bytes;
+        }).reduce(0L, Long::sum).block();
+    }
+}
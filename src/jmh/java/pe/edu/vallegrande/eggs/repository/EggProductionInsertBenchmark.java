@@ -0,0 +1,83 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filas/s de insertAll contra H2 en memoria según el tamaño del bloque: chunkSize=1 es la inserción
+ * fila por fila. Sirve para comparar bloques entre sí; las cifras absolutas de PostgreSQL las da la prueba
+ * de carga (-Ploadtest).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EggProductionInsertBenchmark {
+
+    private static final int ROWS = 500;
+
+    @Param({"1", "50", "500"})
+    public int chunkSize;
+
+    private DatabaseClient databaseClient;
+    private EggProductionCustomRepositoryImpl repository;
+    private List<List<EggProductionModel>> chunks;
+
+    @Setup
+    public void setUp() {
+        databaseClient = DatabaseClient.create(
+                ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1"));
+        databaseClient.sql("CREATE TABLE egg_production (" +
+                        "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
+                        "quantity_eggs INTEGER, eggs_kilo INTEGER, price_kilo DECIMAL(10, 2), " +
+                        "registration_date DATE, estado VARCHAR(1), version BIGINT DEFAULT 0 NOT NULL)")
+                .then()
+                .block();
+        repository = new EggProductionCustomRepositoryImpl(databaseClient);
+
+        chunks = new ArrayList<>();
+        for (int from = 0; from < ROWS; from += chunkSize) {
+            List<EggProductionModel> chunk = new ArrayList<>(chunkSize);
+            for (int i = from; i < Math.min(from + chunkSize, ROWS); i++) {
+                chunk.add(record(i));
+            }
+            chunks.add(chunk);
+        }
+    }
+
+    // Que la tabla no crezca sin límite entre iteraciones
+    @Setup(Level.Iteration)
+    public void truncate() {
+        databaseClient.sql("TRUNCATE TABLE egg_production").then().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public EggProductionModel insertAll() {
+        return Flux.fromIterable(chunks)
+                .concatMap(repository::insertAll)
+                .blockLast();
+    }
+
+    private static EggProductionModel record(int quantity) {
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(quantity);
+        model.setEggsKilo(quantity % 20);
+        model.setPriceKilo(new BigDecimal("7.50"));
+        model.setRegistrationDate(LocalDate.of(2025, 1, 1).plusDays(quantity % 365));
+        model.setEstado("A");
+        return model;
+    }
+}
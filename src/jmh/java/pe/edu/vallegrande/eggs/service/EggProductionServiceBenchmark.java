@@ -0,0 +1,155 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionRepository;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rutas calientes de EggProductionService sin base de datos: el repositorio responde
+ * desde memoria, así se mide solo el trabajo propio del servicio (caché, validación,
+ * armado de lotes y cálculo de acumulados).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EggProductionServiceBenchmark {
+
+    private static final int RECORDS = 10_000;
+
+    @Param({"100", "2000"})
+    public int batchSize;
+
+    private EggProductionService service;
+    private EggProductionStatsService statsService;
+    private List<EggProductionModel> records;
+    private List<EggProductionModel> batch;
+    private final AtomicInteger sequence = new AtomicInteger(RECORDS);
+
+    @Setup
+    public void setUp() {
+        records = new ArrayList<>(RECORDS);
+        for (int i = 1; i <= RECORDS; i++) {
+            records.add(record(i));
+        }
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            EggProductionModel model = record(i + 1);
+            model.setId(null);
+            batch.add(model);
+        }
+
+        EggProductionProperties properties = new EggProductionProperties();
+        statsService = new EggProductionStatsService(new DiscardingStatsRepository());
+        service = new EggProductionService(inMemoryRepository(), properties, statsService,
+                new EggProductionCache(properties, new SimpleMeterRegistry()), passThroughTransactions(),
+                new EggProductionFeed(properties, new SimpleMeterRegistry()),
+                new EggProductionCreateBatcher(properties, new SimpleMeterRegistry()),
+                new EggProductionTimeSeries(new DiscardingStatsRepository(), properties),
+                new ConnectionPoolThrottle(null, properties),
+                new EggProductionSingleFlight(new SimpleMeterRegistry()));
+
+        // Deja la primera página de activos y el registro 42 en caché
+        service.getActivePage(null, null).blockLast();
+        service.getById(42).block();
+    }
+
+    @Benchmark
+    public List<EggProductionModel> activePageFromCache() {
+        return service.getActivePage(null, null).collectList().block();
+    }
+
+    @Benchmark
+    public EggProductionModel getByIdFromCache() {
+        return service.getById(42).block();
+    }
+
+    @Benchmark
+    public List<EggProductionBatchResult> createBatch() {
+        return service.createBatch(Flux.fromIterable(batch)).collectList().block();
+    }
+
+    @Benchmark
+    public void statsDeltas() {
+        statsService.apply(batch, List.of()).block();
+    }
+
+    private EggProductionRepository inMemoryRepository() {
+        return (EggProductionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EggProductionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Mono.justOrEmpty(find((Integer) args[0]));
+                    case "findByEstadoAndIdGreaterThanOrderByIdAsc" -> Flux.fromIterable(records)
+                            .filter(r -> args[0].equals(r.getEstado()) && r.getId() > (Integer) args[1])
+                            .take(((Pageable) args[2]).getPageSize());
+                    case "insertAll" -> Flux.fromIterable((List<?>) args[0]).cast(EggProductionModel.class)
+                            .doOnNext(model -> {
+                                model.setId(sequence.incrementAndGet());
+                                model.setVersion(0L);
+                            });
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryEggProductionRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private EggProductionModel find(Integer id) {
+        return id >= 1 && id <= records.size() ? records.get(id - 1) : null;
+    }
+
+    private static TransactionalOperator passThroughTransactions() {
+        return (TransactionalOperator) Proxy.newProxyInstance(TransactionalOperator.class.getClassLoader(),
+                new Class<?>[]{TransactionalOperator.class}, (proxy, method, args) -> {
+                    if ("transactional".equals(method.getName())) {
+                        return args[0];
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static EggProductionModel record(int id) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(id);
+        model.setQuantityEggs(1000 + id % 500);
+        model.setEggsKilo(60 + id % 10);
+        model.setPriceKilo(new BigDecimal("7.50"));
+        model.setRegistrationDate(LocalDate.of(2020, 1, 1).plusDays(id % 2000));
+        model.setEstado(id % 7 == 0 ? "I" : "A");
+        model.setVersion(0L);
+        return model;
+    }
+
+    // Descarta los acumulados: el upsert depende de la base de datos, aquí solo interesa el cálculo
+    private static final class DiscardingStatsRepository extends EggProductionStatsRepository {
+
+        DiscardingStatsRepository() {
+            super(null);
+        }
+
+        @Override
+        public Mono<Void> accumulate(StatsGranularity granularity, List<EggProductionStatsModel> deltas) {
+            return Mono.empty();
+        }
+    }
+}
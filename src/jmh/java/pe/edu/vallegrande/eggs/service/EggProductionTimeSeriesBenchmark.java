@@ -0,0 +1,85 @@
+package pe.edu.vallegrande.eggs.service;
+
+import org.openjdk.jmh.annotations.*;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesPoint;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesSummary;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas analíticas sobre el histórico: la serie en columnas de EggProductionTimeSeries
+ * frente a recorrer los EggProductionModel (BigDecimal y LocalDate por fila), como se haría
+ * con el resultado de una consulta por rango.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EggProductionTimeSeriesBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final int RECORDS_PER_DAY = 5;
+    private static final int WINDOW = 7;
+
+    @Param({"365", "3650"})
+    public int days;
+
+    private EggProductionTimeSeries timeSeries;
+    private List<EggProductionModel> records;
+    private LocalDate lastDay;
+
+    @Setup
+    public void setUp() {
+        records = new ArrayList<>(days * RECORDS_PER_DAY);
+        for (int i = 0; i < days * RECORDS_PER_DAY; i++) {
+            records.add(record(i));
+        }
+        lastDay = FIRST_DAY.plusDays(days - 1);
+        timeSeries = new EggProductionTimeSeries(null, new EggProductionProperties());
+        timeSeries.apply(records, List.of());
+    }
+
+    @Benchmark
+    public EggProductionSeriesSummary priceSummaryColumnar() {
+        return timeSeries.summarize(SeriesMetric.PRICE_KILO, FIRST_DAY, lastDay);
+    }
+
+    @Benchmark
+    public BigDecimal priceSummaryFromModels() {
+        BigDecimal revenue = BigDecimal.ZERO;
+        long kilos = 0;
+        for (EggProductionModel model : records) {
+            if (!model.getRegistrationDate().isBefore(FIRST_DAY) && !model.getRegistrationDate().isAfter(lastDay)) {
+                revenue = revenue.add(model.getPriceKilo().multiply(BigDecimal.valueOf(model.getEggsKilo())));
+                kilos += model.getEggsKilo();
+            }
+        }
+        return revenue.divide(BigDecimal.valueOf(kilos), 2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public List<EggProductionSeriesPoint> movingAverageColumnar() {
+        return timeSeries.movingAverage(SeriesMetric.EGGS, FIRST_DAY, lastDay, WINDOW);
+    }
+
+    private static EggProductionModel record(int i) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(i + 1);
+        model.setQuantityEggs(1000 + i % 500);
+        model.setEggsKilo(60 + i % 10);
+        model.setPriceKilo(new BigDecimal("7.50").add(BigDecimal.valueOf(i % 50, 2)));
+        model.setRegistrationDate(FIRST_DAY.plusDays(i / RECORDS_PER_DAY));
+        model.setEstado("A");
+        return model;
+    }
+}
@@ -0,0 +1,555 @@
+package pe.edu.vallegrande.eggs;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.edu.vallegrande.eggs.config.EggProductionProtobufEncoder;
+import pe.edu.vallegrande.eggs.model.EggProductionImportProgress;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.service.EggProductionArchiver;
+import pe.edu.vallegrande.eggs.service.EggProductionFeed;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de carga de punta a punta: levanta la aplicación completa contra un PostgreSQL
+ * embebido con millones de filas y un decodificador JWT simulado, y ejecuta una mezcla
+ * de lecturas y escrituras con la concurrencia indicada. Deja un histograma de latencia
+ * por endpoint en target/loadtest/, un resumen p50/p99 en la salida y una copia de
+ * /actuator/prometheus al terminar.
+ *
+ * Mientras corre, varios tableros siguen GET /egg-production/stream (SSE alimentado por LISTEN/NOTIFY).
+ *
+ * Parámetros (-D): loadtest.rows, loadtest.concurrency, loadtest.duration,
+ * loadtest.warmup, loadtest.write-ratio, loadtest.stream-subscribers.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+public class EggProductionLoadTest {
+
+    private static final int ROWS = Integer.getInteger("loadtest.rows", 1_000_000);
+    private static final int IMPORT_ROWS = 20_000;
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private static final int STREAM_SUBSCRIBERS = Integer.getInteger("loadtest.stream-subscribers", 4);
+    private static final double WRITE_RATIO = Double.parseDouble(System.getProperty("loadtest.write-ratio", "0.1"));
+
+    private static final MediaType PROTOBUF = EggProductionProtobufEncoder.APPLICATION_PROTOBUF;
+    private static final Path REPORT_DIR = Path.of("target", "loadtest");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 3650;
+
+    private static final String SEED_SQL =
+            "INSERT INTO egg_production (quantity_eggs, eggs_kilo, price_kilo, registration_date, estado) " +
+            "SELECT 500 + g % 1000, 55 + g % 15, 6.50 + (g % 300) / 100.0, DATE '2015-01-01' + g % " + DAYS + ", " +
+            "CASE WHEN g % 10 = 0 THEN 'I' ELSE 'A' END " +
+            "FROM generate_series(1, ?) AS g";
+
+    private static EmbeddedPostgres postgres;
+    // Actuator va en su propio puerto (management.server.port), como en producción
+    private static int managementPort;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private EggProductionFeed feed;
+
+    @Autowired
+    private EggProductionArchiver archiver;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        seed();
+
+        Path jwks = Files.createTempFile("jwks", ".json");
+        Files.writeString(jwks, "{\"keys\":[]}");
+
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres");
+        registry.add("spring.r2dbc.pool.max-size", () -> Math.max(10, CONCURRENCY));
+        registry.add("spring.r2dbc.username", () -> "postgres");
+        registry.add("spring.r2dbc.password", () -> "");
+        registry.add("spring.flyway.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.flyway.user", () -> "postgres");
+        registry.add("spring.flyway.password", () -> "");
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", () -> jwks.toUri().toString());
+        try (ServerSocket socket = new ServerSocket(0)) {
+            managementPort = socket.getLocalPort();
+        }
+        registry.add("management.server.port", () -> managementPort);
+        // Todos los clientes virtuales comparten un solo usuario por rol: se mide capacidad, no el límite por usuario
+        registry.add("egg-production.admission.roles.ADMIN.requests-per-second", () -> 0);
+        registry.add("egg-production.admission.roles.USER.requests-per-second", () -> 0);
+        registry.add("egg-production.admission.max-concurrent-requests", () -> 4 * Math.max(10, CONCURRENCY));
+        // Los GET /{id} al azar no deben encontrar registros archivados: se archiva a mano al final
+        registry.add("egg-production.archive.enabled", () -> false);
+        registry.add("egg-production.archive.inactive-after", () -> "0s");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Carga mixta de lecturas y escrituras con histogramas de latencia por endpoint")
+    void mixedWorkload() throws IOException, InterruptedException, SQLException {
+        WebClient client = webClientBuilder
+                .baseUrl("http://localhost:" + port + "/egg-production")
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer admin")
+                .build();
+        // El pool ya se calentó antes de que la app se declarara lista
+        String readiness = webClientBuilder.build().get()
+                .uri("http://localhost:" + managementPort + "/actuator/health/readiness")
+                .retrieve().bodyToMono(String.class).block();
+        assertThat(readiness).contains("\"status\":\"UP\"");
+        // Las páginas grandes salen comprimidas con brotli cuando el cliente lo acepta
+        // (con el cliente del JDK: el de Reactor Netty no envía el Accept-Encoding propio sin compress(true))
+        HttpResponse<byte[]> compressed = HttpClient.newHttpClient().send(HttpRequest
+                        .newBuilder(URI.create("http://localhost:" + port + "/egg-production?limit=500"))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer admin")
+                        .header(HttpHeaders.ACCEPT, PROTOBUF.toString())
+                        .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip")
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(compressed.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue(PROTOBUF.toString());
+        assertThat(compressed.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("br");
+        exportCsv();
+        importCsv(client);
+        idempotentRetries(client);
+        concurrentDeletes(client);
+
+        // Tableros conectados al feed en vivo; con PostgreSQL los eventos deben llegar por LISTEN/NOTIFY
+        awaitListening();
+        AtomicLong streamed = new AtomicLong();
+        Disposable dashboards = Flux.range(0, STREAM_SUBSCRIBERS)
+                .flatMap(i -> client.get().uri("/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .retrieve()
+                        .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<EggProductionModel>>() {}))
+                .filter(event -> event.data() != null)
+                .subscribe(event -> streamed.incrementAndGet());
+
+        Map<String, Supplier<Mono<?>>> reads = reads(client);
+        Map<String, Supplier<Mono<?>>> writes = writes(client);
+
+        run(reads, writes, WARMUP, new LinkedHashMap<>());
+
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        reads.keySet().forEach(name -> endpoints.put(name, new Endpoint()));
+        writes.keySet().forEach(name -> endpoints.put(name, new Endpoint()));
+        long elapsed = run(reads, writes, DURATION, endpoints);
+
+        dashboards.dispose();
+        report(endpoints, elapsed, streamed.get());
+        // Métricas del servidor (pool, repositorio, JWT) para cruzarlas con las latencias del cliente
+        String prometheus = webClientBuilder
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build().get()
+                .uri("http://localhost:" + managementPort + "/actuator/prometheus")
+                .retrieve().bodyToMono(String.class).block();
+        Files.writeString(REPORT_DIR.resolve("prometheus.txt"), prometheus);
+
+        long total = endpoints.values().stream().mapToLong(e -> e.latency.getTotalCount()).sum();
+        long errors = endpoints.values().stream().mapToLong(e -> e.errors.get()).sum();
+        assertThat(total).isPositive();
+        assertThat(errors).isZero();
+        assertThat(streamed.get()).isPositive();
+        assertThat(prometheus).contains("r2dbc_pool_acquire_seconds_bucket", "r2dbc_pool_pending_connections",
+                "eggProduction_repository_invocations_seconds_bucket", "eggProduction_http_rows_total",
+                "eggProduction_stream_events_total", "eggProduction_stream_dropped_total",
+                "eggProduction_singleFlight_total", "eggProduction_admission_rejected_total",
+                "eggProduction_archive_rows_total", "eggProduction_idempotency_total");
+        partitionsAndArchive();
+    }
+
+    // V5: un rango de fechas solo lee las particiones de sus meses, y el archivo saca de la tabla
+    // todos los inactivos (inactive-after=0s en esta prueba)
+    private void partitionsAndArchive() throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            long partitions = count(statement, "SELECT count(*) FROM pg_inherits WHERE inhparent = 'egg_production'::regclass");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery("EXPLAIN SELECT * FROM egg_production " +
+                    "WHERE registration_date BETWEEN DATE '2016-03-01' AND DATE '2016-03-07'")) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            long inactive = count(statement, "SELECT count(*) FROM egg_production WHERE estado = 'I'");
+
+            long start = System.nanoTime();
+            Long archived = archiver.run().block(Duration.ofMinutes(2));
+            System.out.printf("Particiones: %d; archivo: %d inactivos movidos en %.1f s%n",
+                    partitions, archived, (System.nanoTime() - start) / 1e9);
+
+            assertThat(partitions).isGreaterThan(DAYS / 31);
+            assertThat(plan.toString()).contains("egg_production_2016_03").doesNotContain("egg_production_2016_04");
+            assertThat(archived).isEqualTo(inactive).isPositive();
+            assertThat(count(statement, "SELECT count(*) FROM egg_production WHERE estado = 'I'")).isZero();
+            assertThat(count(statement, "SELECT count(*) FROM egg_production_archive")).isEqualTo(inactive);
+        }
+    }
+
+    private static long count(Statement statement, String sql) throws SQLException {
+        try (ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    // La exportación CSV del rango máximo (un año) sale como flujo comprimido con gzip: sus filas más el encabezado
+    private void exportCsv() throws IOException, InterruptedException, SQLException {
+        LocalDate to = FIRST_DAY.plusDays(365);
+        long expected;
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            expected = count(statement, "SELECT count(*) FROM egg_production " +
+                    "WHERE registration_date BETWEEN DATE '" + FIRST_DAY + "' AND DATE '" + to + "'");
+        }
+        long start = System.nanoTime();
+        HttpResponse<byte[]> export = HttpClient.newHttpClient().send(HttpRequest
+                        .newBuilder(URI.create("http://localhost:" + port + "/egg-production/export.csv?from="
+                                + FIRST_DAY + "&to=" + to))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer admin")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertThat(export.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        long lines = 0;
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(export.body()))) {
+            for (byte b : csv.readAllBytes()) {
+                if (b == '\n') lines++;
+            }
+        }
+        System.out.printf("Exportación CSV: %d filas (%d KB con gzip) en %.1f s%n",
+                lines - 1, export.body().length / 1024, seconds);
+        assertThat(lines).isEqualTo(expected + 1);
+    }
+
+    // Una tablet que reintenta el mismo alta (a la vez y después) con Idempotency-Key: un solo registro
+    // y la respuesta guardada en egg_production_idempotency (V6)
+    private void idempotentRetries(WebClient client) throws SQLException {
+        Map<String, Object> record = randomRecord();
+        Mono<EggProductionModel> post = client.post()
+                .header("Idempotency-Key", "loadtest-retry")
+                .bodyValue(record)
+                .retrieve()
+                .bodyToMono(EggProductionModel.class);
+        List<Integer> ids = Flux.range(0, 4).flatMap(i -> post)
+                .concatWith(Flux.range(0, 4).concatMap(i -> post))
+                .map(EggProductionModel::getId)
+                .distinct()
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        assertThat(ids).hasSize(1);
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            assertThat(count(statement, "SELECT count(*) FROM egg_production_idempotency " +
+                    "WHERE idempotency_key = 'loadtest-retry'")).isEqualTo(1);
+            assertThat(count(statement, "SELECT count(*) FROM egg_production WHERE id = " + ids.get(0))).isEqualTo(1);
+        }
+    }
+
+    // DELETE simultáneos del mismo registro: solo el que lo borró resta de los acumulados del día
+    private void concurrentDeletes(WebClient client) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            long id;
+            LocalDate day;
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT id, registration_date FROM egg_production WHERE estado = 'A' ORDER BY id LIMIT 1")) {
+                rows.next();
+                id = rows.getLong(1);
+                day = rows.getObject(2, LocalDate.class);
+            }
+            String dayCount = "SELECT record_count FROM egg_production_stats " +
+                    "WHERE granularity = 'DAY' AND period_start = DATE '" + day + "'";
+            long before = count(statement, dayCount);
+
+            Flux.range(0, 4)
+                    .flatMap(i -> client.delete().uri("/{id}", id).retrieve().toBodilessEntity())
+                    .blockLast(Duration.ofSeconds(30));
+
+            assertThat(count(statement, "SELECT count(*) FROM egg_production WHERE id = " + id)).isZero();
+            assertThat(count(statement, dayCount)).isEqualTo(before - 1);
+        }
+    }
+
+    // Importación multipart de un CSV generado: se inserta por bloques y el último evento resume el total
+    private void importCsv(WebClient client) {
+        StringBuilder csv = new StringBuilder("quantityEggs,eggsKilo,priceKilo,registrationDate,estado\r\n");
+        for (int i = 0; i < IMPORT_ROWS; i++) {
+            csv.append(100 + i % 50).append(",8,7.50,").append(FIRST_DAY.plusDays(i % DAYS)).append(",A\r\n");
+        }
+        csv.append("doce,8,7.50,").append(FIRST_DAY).append(",A\r\n");
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(csv.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "historico.csv";
+            }
+        });
+
+        long start = System.nanoTime();
+        EggProductionImportProgress done = client.post().uri("/import")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .bodyValue(body.build())
+                .retrieve()
+                .bodyToFlux(EggProductionImportProgress.class)
+                .last()
+                .block(Duration.ofMinutes(2));
+        System.out.printf("Importación CSV: %d filas en %.1f s%n", done.getImported(), (System.nanoTime() - start) / 1e9);
+        assertThat(done.isDone()).isTrue();
+        assertThat(done.getImported()).isEqualTo(IMPORT_ROWS);
+        assertThat(done.getRejected()).isEqualTo(1);
+    }
+
+    // El listener se conecta en segundo plano al arrancar
+    private void awaitListening() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!feed.isListening() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(feed.isListening()).isTrue();
+    }
+
+    private Map<String, Supplier<Mono<?>>> reads(WebClient client) {
+        Map<String, Supplier<Mono<?>>> reads = new LinkedHashMap<>();
+        reads.put("GET /{id}", () -> client.get().uri("/{id}", randomId())
+                .retrieve().toBodilessEntity());
+        reads.put("GET /?after&limit", () -> client.get().uri("?after={after}&limit=100", randomId())
+                .retrieve().toBodilessEntity());
+        // Lo que muestran la mayoría de pantallas: solo tres columnas
+        reads.put("GET /?fields&after&limit", () -> client.get()
+                .uri("?fields=id,registrationDate,quantityEggs&after={after}&limit=100", randomId())
+                .retrieve().toBodilessEntity());
+        reads.put("GET /?after&limit (protobuf)", () -> client.get().uri("?after={after}&limit=100", randomId())
+                .accept(PROTOBUF)
+                .retrieve().toBodilessEntity());
+        // Pocas páginas distintas, como el front que siempre abre las primeras
+        reads.put("GET /active?after&limit", () -> client.get()
+                .uri("/active?after={after}&limit=100", ThreadLocalRandom.current().nextInt(10) * 100)
+                .retrieve().toBodilessEntity());
+        reads.put("GET /?from&to (semana)", () -> {
+            LocalDate from = randomDay();
+            return client.get().uri("?from={from}&to={to}&estado=A", from, from.plusDays(6))
+                    .retrieve().toBodilessEntity();
+        });
+        reads.put("GET /stats", () -> {
+            LocalDate from = randomDay();
+            return client.get()
+                    .uri("/stats?from={from}&to={to}&granularity=month", from, from.plusYears(1))
+                    .retrieve().toBodilessEntity();
+        });
+        return reads;
+    }
+
+    private Map<String, Supplier<Mono<?>>> writes(WebClient client) {
+        Map<String, Supplier<Mono<?>>> writes = new LinkedHashMap<>();
+        writes.put("POST /", () -> client.post().bodyValue(randomRecord())
+                .retrieve().toBodilessEntity());
+        writes.put("PUT /{id}", () -> client.put().uri("/{id}", randomId()).bodyValue(randomRecord())
+                .retrieve().toBodilessEntity());
+        writes.put("PUT /inactivate|activate/{id}", () -> client.put()
+                .uri(ThreadLocalRandom.current().nextBoolean() ? "/inactivate/{id}" : "/activate/{id}", randomId())
+                .retrieve().toBodilessEntity());
+        return writes;
+    }
+
+    // Cada trabajador encadena peticiones hasta que se acaba el tiempo; devuelve los nanos transcurridos
+    private static long run(Map<String, Supplier<Mono<?>>> reads, Map<String, Supplier<Mono<?>>> writes,
+                            Duration duration, Map<String, Endpoint> endpoints) {
+        List<String> readNames = new ArrayList<>(reads.keySet());
+        List<String> writeNames = new ArrayList<>(writes.keySet());
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        Flux.range(0, CONCURRENCY)
+                .flatMap(worker -> Mono.defer(() -> {
+                            ThreadLocalRandom random = ThreadLocalRandom.current();
+                            boolean write = random.nextDouble() < WRITE_RATIO;
+                            List<String> names = write ? writeNames : readNames;
+                            String name = names.get(random.nextInt(names.size()));
+                            Supplier<Mono<?>> request = write ? writes.get(name) : reads.get(name);
+                            Endpoint endpoint = endpoints.get(name);
+                            long sent = System.nanoTime();
+                            return request.get()
+                                    .doOnSuccess(ignored -> {
+                                        if (endpoint != null) endpoint.latency.recordValue(System.nanoTime() - sent);
+                                    })
+                                    .onErrorResume(e -> {
+                                        if (endpoint != null) endpoint.errors.incrementAndGet();
+                                        return Mono.empty();
+                                    });
+                        })
+                        .repeat(() -> System.nanoTime() < deadline)
+                        .then(), CONCURRENCY)
+                .blockLast();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(Map<String, Endpoint> endpoints, long elapsedNanos, long streamed) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder summary = new StringBuilder(String.format(
+                "Filas: %d, concurrencia: %d, duración: %.1f s, escrituras: %.0f%%%n",
+                ROWS, CONCURRENCY, seconds, WRITE_RATIO * 100));
+        summary.append(String.format("%-32s %9s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "req", "errores", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        long total = 0;
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Histogram latency = entry.getValue().latency;
+            total += latency.getTotalCount();
+            summary.append(String.format("%-32s %9d %8d %9.0f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), latency.getTotalCount(), entry.getValue().errors.get(),
+                    latency.getTotalCount() / seconds,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getMaxValue())));
+
+            Path file = REPORT_DIR.resolve(entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+                latency.outputPercentileDistribution(out, 1e6); // en milisegundos
+            }
+        }
+        summary.append(String.format("Total: %d peticiones, %.0f req/s%n", total, total / seconds));
+        summary.append(String.format("Feed SSE: %d suscriptores, %d eventos recibidos%n", STREAM_SUBSCRIBERS, streamed));
+
+        Files.writeString(REPORT_DIR.resolve("summary.txt"), summary);
+        System.out.print(summary);
+    }
+
+    // Aplica solo V1 (tabla principal) y carga las filas en el servidor; al arrancar, Flyway
+    // aplica el resto como en producción: V2 llena egg_production_stats, V3 crea los índices y V5 particiona
+    private static void seed() throws Exception {
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .target("1")
+                .load()
+                .migrate();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            long start = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(SEED_SQL)) {
+                insert.setInt(1, ROWS);
+                insert.executeUpdate();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE egg_production");
+            }
+            System.out.printf("Carga inicial: %d filas en %.1f s%n", ROWS, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    private static LocalDate randomDay() {
+        return FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(DAYS - 366));
+    }
+
+    private static Map<String, Object> randomRecord() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("quantityEggs", 500 + random.nextInt(1000));
+        record.put("eggsKilo", 55 + random.nextInt(15));
+        record.put("priceKilo", 6.5 + random.nextInt(300) / 100.0);
+        record.put("registrationDate", randomDay().toString());
+        record.put("estado", "A");
+        return record;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static final class Endpoint {
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    @TestConfiguration
+    static class StubJwtConfig {
+
+        // El token es el rol: "Bearer admin" o "Bearer user", sin firma ni llamadas a Google
+        @Bean
+        @Primary
+        ReactiveJwtDecoder stubJwtDecoder() {
+            return token -> {
+                if (!"admin".equals(token) && !"user".equals(token)) {
+                    return Mono.error(new BadJwtException("token de prueba desconocido"));
+                }
+                Instant now = Instant.now();
+                return Mono.just(Jwt.withTokenValue(token)
+                        .header("alg", "none")
+                        .subject("load-" + token)
+                        .claim("role", token)
+                        .issuedAt(now)
+                        .expiresAt(now.plusSeconds(3600))
+                        .build());
+            };
+        }
+    }
+}
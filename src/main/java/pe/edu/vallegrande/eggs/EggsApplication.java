@@ -2,8 +2,10 @@ package pe.edu.vallegrande.eggs;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class EggsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,165 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Control de admisión después de autenticar (ver SecurityConfig), para que un cliente que repite
+ * peticiones en bucle no acapare el pool de conexiones:
+ * - Límite por usuario (sub del JWT) con token bucket; la tasa y la ráfaga dependen del rol. Sin saldo: 429.
+ * - Límite global de peticiones en curso contra la base de datos. Al superarlo se responde 503 de inmediato
+ *   en lugar de encolar la petición a esperar una conexión (max-acquire-time).
+ * Ambas respuestas llevan Retry-After. El feed SSE y las series en memoria no cuentan para el límite global.
+ */
+public class AdmissionControlFilter implements WebFilter {
+
+    static final String REJECTED_METRIC = "eggProduction.admission.rejected";
+    static final String IN_FLIGHT_METRIC = "eggProduction.admission.inFlight";
+    static final String DB_BOUND_PREFIX = "/egg-production";
+    private static final String[] IN_MEMORY_PREFIXES = {"/egg-production/stream", "/egg-production/series/"};
+    private static final String NO_ROLE = "";
+
+    private final EggProductionProperties.Admission config;
+    private final LongSupplier nanoClock;
+    private final Cache<String, TokenBucket> buckets;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    public AdmissionControlFilter(EggProductionProperties.Admission config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControlFilter(EggProductionProperties.Admission config, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        // Un bucket que no se usa en idle-timeout ya se habría llenado: se puede descartar
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSubjects())
+                .expireAfterAccess(config.getIdleTimeout())
+                .build();
+        this.rateLimited = meterRegistry.counter(REJECTED_METRIC, "reason", "rate");
+        this.overloaded = meterRegistry.counter(REJECTED_METRIC, "reason", "concurrency");
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return exchange.getPrincipal()
+                .ofType(CustomAuthenticationToken.class)
+                .map(this::acquire)
+                .defaultIfEmpty(0L) // Rutas públicas (actuator, swagger): sin límite por usuario
+                .flatMap(waitNanos -> {
+                    if (waitNanos > 0) {
+                        rateLimited.increment();
+                        return reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds(waitNanos));
+                    }
+                    return admit(exchange, chain);
+                });
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    // 0 si hay saldo; si no, los nanosegundos hasta el próximo token
+    private long acquire(CustomAuthenticationToken authentication) {
+        String role = role(authentication);
+        EggProductionProperties.Rate rate = config.getRoles().getOrDefault(role, config.getDefaultRate());
+        if (rate.getRequestsPerSecond() <= 0) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(role + '|' + authentication.getName(), key -> new TokenBucket(rate, nanoClock.getAsLong()));
+        return bucket.tryAcquire(nanoClock.getAsLong());
+    }
+
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain) {
+        int max = config.getMaxConcurrentRequests();
+        if (max <= 0 || !isDatabaseBound(exchange.getRequest().getPath().value())) {
+            return chain.filter(exchange);
+        }
+        if (inFlight.incrementAndGet() > max) {
+            inFlight.decrementAndGet();
+            overloaded.increment();
+            return reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, 1);
+        }
+        // Las respuestas en flujo (NDJSON, CSV) ocupan su lugar hasta terminar de escribirse
+        return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    static boolean isDatabaseBound(String path) {
+        if (!path.startsWith(DB_BOUND_PREFIX)) {
+            return false;
+        }
+        for (String prefix : IN_MEMORY_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String role(CustomAuthenticationToken authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith("ROLE_")) {
+                return name.substring("ROLE_".length()).toUpperCase(Locale.ROOT);
+            }
+        }
+        return NO_ROLE;
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return response.setComplete();
+    }
+
+    /**
+     * Token bucket de un usuario: se llena a requests-per-second hasta burst tokens y cada petición gasta uno.
+     * El saldo se recalcula al usarlo, sin tareas periódicas.
+     */
+    static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long updatedAt;
+
+        TokenBucket(EggProductionProperties.Rate rate, long now) {
+            this.capacity = Math.max(1, rate.getBurst());
+            this.tokensPerNano = rate.getRequestsPerSecond() / 1e9;
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        synchronized long tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
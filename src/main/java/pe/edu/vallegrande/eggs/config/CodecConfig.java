@@ -0,0 +1,78 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formatos binarios que se negocian con el header Accept, además de JSON:
+ * application/cbor, application/x-jackson-smile y application/x-protobuf.
+ * CBOR y Smile usan la misma configuración de Jackson que JSON (fechas, módulos).
+ */
+@Configuration
+public class CodecConfig {
+
+    @Bean
+    public CodecCustomizer binaryCodecs(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder jacksonBuilder) {
+        ObjectMapper cbor = jacksonBuilder.factory(new CBORFactory()).build();
+        ObjectMapper smile = jacksonBuilder.factory(new SmileFactory()).build();
+        return configurer -> register(configurer, objectMapper, cbor, smile);
+    }
+
+    public static void register(CodecConfigurer configurer, ObjectMapper json, ObjectMapper cbor, ObjectMapper smile) {
+        // Los códecs propios van antes que los por defecto: JSON se registra primero para que siga siendo
+        // el formato elegido cuando el cliente acepta */* o no envía Accept
+        CodecConfigurer.CustomCodecs codecs = configurer.customCodecs();
+        codecs.register(new Jackson2JsonEncoder(json));
+        codecs.register(new CborValueEncoder(cbor));
+        codecs.register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+        codecs.register(new EggProductionProtobufEncoder());
+        // Smile ya es un códec por defecto (detrás de JSON); solo se le da la configuración de Jackson
+        configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile));
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile));
+    }
+
+    /**
+     * Jackson2CborEncoder solo implementa encodeValue: aquí un Mono se escribe como un valor
+     * y un Flux se junta en una lista (un arreglo CBOR), igual que el arreglo JSON.
+     */
+    static class CborValueEncoder extends Jackson2CborEncoder {
+
+        CborValueEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream).collectList()
+                    .map(list -> encodeValue(list, bufferFactory, listType, mimeType, hints))
+                    .flux();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Estado del pool de conexiones para /actuator/health/readiness ("connectionPool").
+ * OUT_OF_SERVICE mientras se calienta o cuando hay demasiadas peticiones esperando
+ * conexión, para que el balanceador deje de enviar tráfico a esta instancia.
+ */
+@Component
+public class ConnectionPoolHealthIndicator implements ReactiveHealthIndicator {
+
+    private final ConnectionPool pool;
+    private final DatabaseWarmup warmup;
+    private final EggProductionProperties properties;
+
+    public ConnectionPoolHealthIndicator(ConnectionFactory connectionFactory, DatabaseWarmup warmup,
+                                         EggProductionProperties properties) {
+        this.pool = DatabaseWarmup.pool(connectionFactory);
+        this.warmup = warmup;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.fromSupplier(this::check);
+    }
+
+    private Health check() {
+        if (!warmup.isFinished()) {
+            return Health.outOfService().withDetail("warmup", "en curso").build();
+        }
+        if (pool == null) {
+            return Health.up().build(); // Sin pool (p. ej. base embebida en pruebas)
+        }
+        if (pool.isDisposed()) {
+            return Health.down().withDetail("pool", "cerrado").build();
+        }
+        PoolMetrics metrics = pool.getMetrics().orElse(null);
+        if (metrics == null) {
+            return Health.up().build();
+        }
+        Health.Builder builder = metrics.pendingAcquireSize() > properties.getPool().getReadinessMaxPending()
+                ? Health.outOfService()
+                : Health.up();
+        return builder
+                .withDetail("acquired", metrics.acquiredSize())
+                .withDetail("idle", metrics.idleSize())
+                .withDetail("allocated", metrics.allocatedSize())
+                .withDetail("pending", metrics.pendingAcquireSize())
+                .withDetail("maxAllocated", metrics.getMaxAllocatedSize())
+                .build();
+    }
+}
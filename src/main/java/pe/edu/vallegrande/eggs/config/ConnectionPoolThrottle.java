@@ -0,0 +1,39 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Deja pasar trabajo de fondo (bloques de una importación) solo cuando el pool tiene una conexión
+ * libre y nadie esperando. Así una carga larga cede el pool a las peticiones interactivas en lugar
+ * de competir por él o agotar max-acquire-time, y mientras espera no se lee más del archivo.
+ */
+@Component
+public class ConnectionPoolThrottle {
+
+    private final ConnectionPool pool;
+    private final Duration pollInterval;
+
+    public ConnectionPoolThrottle(ConnectionFactory connectionFactory, EggProductionProperties properties) {
+        this.pool = DatabaseWarmup.pool(connectionFactory);
+        this.pollInterval = properties.getPool().getThrottlePollInterval();
+    }
+
+    public Mono<Void> awaitIdleConnection() {
+        if (pool == null) {
+            return Mono.empty(); // Sin pool (p. ej. base embebida en pruebas)
+        }
+        return Mono.defer(() -> available() ? Mono.<Void>empty() : Mono.delay(pollInterval).then(awaitIdleConnection()));
+    }
+
+    private boolean available() {
+        PoolMetrics metrics = pool.getMetrics().orElse(null);
+        return metrics == null
+                || metrics.pendingAcquireSize() == 0 && metrics.acquiredSize() < metrics.getMaxAllocatedSize();
+    }
+}
@@ -0,0 +1,94 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.service.EggProductionService;
+import pe.edu.vallegrande.eggs.service.EggProductionStatsService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Abre las conexiones iniciales del pool y ejecuta una vez en cada una las consultas
+ * más frecuentes, para que el primer usuario después de un despliegue no pague la
+ * conexión ni la preparación de sentencias (r2dbc-postgresql las cachea por conexión).
+ * Corre como ApplicationRunner: Spring Boot no marca la app como lista hasta que termina.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatabaseWarmup implements ApplicationRunner {
+
+    private final ConnectionFactory connectionFactory;
+    private final R2dbcProperties r2dbcProperties;
+    private final EggProductionProperties properties;
+    private final EggProductionService service;
+    private final EggProductionStatsService statsService;
+    private final TransactionalOperator transactionalOperator;
+
+    private volatile boolean finished;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int connections = Math.max(1, r2dbcProperties.getPool().getInitialSize());
+        ConnectionPool pool = pool(connectionFactory);
+        long start = System.nanoTime();
+
+        // Cada transacción retiene su propia conexión, así las consultas se preparan en todas
+        Mono.justOrEmpty(pool)
+                .flatMap(ConnectionPool::warmup)
+                .thenMany(Flux.range(0, connections)
+                        .flatMap(i -> hotQueries().as(transactionalOperator::transactional), connections))
+                .then()
+                .timeout(properties.getPool().getWarmupTimeout())
+                .doOnSuccess(done -> log.info("Pool calentado: {} conexiones en {} ms",
+                        connections, (System.nanoTime() - start) / 1_000_000))
+                .onErrorResume(e -> {
+                    log.warn("No se pudo calentar el pool: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .block();
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // Busca el ConnectionPool detrás de los envoltorios (métricas, proxies)
+    static ConnectionPool pool(ConnectionFactory connectionFactory) {
+        return unwrap(connectionFactory, ConnectionPool.class);
+    }
+
+    // Recorre los envoltorios (métricas, proxies, el pool) hasta dar con el tipo pedido
+    static <T> T unwrap(ConnectionFactory connectionFactory, Class<T> type) {
+        Object current = connectionFactory;
+        while (!type.isInstance(current) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        return type.isInstance(current) ? type.cast(current) : null;
+    }
+
+    // Las mismas consultas que usan los endpoints, con claves que no devuelven filas
+    private Mono<Void> hotQueries() {
+        LocalDate today = LocalDate.now();
+        return Flux.concat(
+                        service.getById(-1),
+                        service.getPage(Integer.MAX_VALUE, null),
+                        service.getActivePage(Integer.MAX_VALUE, null),
+                        service.getRangePage(today, today, null, Integer.MAX_VALUE, null),
+                        service.getRangePage(today, today, "A", Integer.MAX_VALUE, null),
+                        statsService.getStats(today, today, StatsGranularity.DAY))
+                .then();
+    }
+}
@@ -0,0 +1,92 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.service.EggProductionFeed;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Escucha el canal que llena el trigger de V4 (LISTEN egg_production_changes) y pasa cada
+ * aviso al feed en vivo. Usa una conexión propia, fuera del pool: LISTEN dura lo que dure la
+ * sesión y no debe ocupar un lugar del pool ni caer con su max-life-time.
+ * Requiere una sesión real de PostgreSQL (el pooler de Supabase en modo sesión, puerto 5432);
+ * si se corta, se reconecta con espera creciente y mientras tanto el servicio publica sus escrituras.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EggProductionNotificationListener implements ApplicationRunner {
+
+    static final String CHANNEL = "egg_production_changes";
+
+    private final ConnectionFactory connectionFactory;
+    private final EggProductionFeed feed;
+    private final EggProductionProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private volatile Disposable subscription;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        PostgresqlConnectionFactory postgres = DatabaseWarmup.unwrap(connectionFactory, PostgresqlConnectionFactory.class);
+        if (postgres == null) {
+            log.info("Sin PostgreSQL: el feed en vivo publica las escrituras de esta instancia");
+            return;
+        }
+        subscription = listen(postgres)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(properties.getStream().getMaxReconnectDelay())
+                        .doBeforeRetry(signal -> log.warn("LISTEN {} interrumpido, reconectando: {}",
+                                CHANNEL, signal.failure().getMessage())))
+                .subscribe(feed::publish);
+    }
+
+    // Al apagar se deja de escuchar antes de que se cierren el pool y la base de datos
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Flux<EggProductionEvent> listen(PostgresqlConnectionFactory postgres) {
+        return Flux.usingWhen(postgres.create(),
+                        connection -> connection.createStatement("LISTEN " + CHANNEL).execute()
+                                .flatMap(result -> result.getRowsUpdated())
+                                .then(Mono.fromRunnable(() -> {
+                                    feed.setListening(true);
+                                    log.info("Feed en vivo escuchando el canal {}", CHANNEL);
+                                }))
+                                .thenMany(connection.getNotifications())
+                                // La conexión se cerró del otro lado: se trata como error para reconectar
+                                .concatWith(Mono.error(() -> new IllegalStateException("conexión cerrada"))),
+                        PostgresqlConnection::close)
+                .doFinally(signal -> feed.setListening(false))
+                .concatMap(this::parse);
+    }
+
+    // Un aviso mal formado se descarta sin cortar la escucha
+    private Mono<EggProductionEvent> parse(Notification notification) {
+        return Mono.fromCallable(() -> objectMapper.readValue(notification.getParameter(), EggProductionEvent.class))
+                .onErrorResume(e -> {
+                    log.warn("Aviso inválido en {}: {}", CHANNEL, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,193 @@
+package pe.edu.vallegrande.eggs.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Propiedades propias del microservicio bajo el prefijo "egg-production".
+ * Agrupa los parámetros ajustables por entorno sin tocar el código.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "egg-production")
+public class EggProductionProperties {
+
+    @Valid
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Security security = new Security();
+    private Pool pool = new Pool();
+    private Stream stream = new Stream();
+    private WriteBehind writeBehind = new WriteBehind();
+    private TimeSeries timeSeries = new TimeSeries();
+    private Admission admission = new Admission();
+    private ReadReplicas readReplicas = new ReadReplicas();
+    private Archive archive = new Archive();
+    private Idempotency idempotency = new Idempotency();
+
+    /**
+     * Carga masiva: cantidad de filas por cada INSERT multi-fila.
+     * Cada fila usa 5 parámetros y PostgreSQL admite hasta 32767 por sentencia.
+     * Las importaciones CSV simultáneas se limitan a max-concurrent-imports (las demás reciben 503).
+     */
+    @Data
+    public static class Batch {
+        @Min(1)
+        @Max(6553)
+        private int chunkSize = 500;
+        private int maxConcurrentImports = 2;
+    }
+
+    /**
+     * Caché en memoria de lecturas frecuentes (por id y páginas de activos).
+     */
+    @Data
+    public static class Cache {
+        private long maxRecords = 10_000;
+        private long maxActivePages = 100;
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Validación de JWT: caché de tokens ya verificados y refresco de las llaves públicas (JWKS).
+     * jwks-timeout acota cada lectura del JWKS (conexión, lectura y total).
+     */
+    @Data
+    public static class Security {
+        private long jwtCacheSize = 10_000;
+        private Duration jwtCacheMaxTtl = Duration.ofHours(1);
+        private Duration jwksRefreshInterval = Duration.ofMinutes(15);
+        private Duration jwksMinRefreshInterval = Duration.ofSeconds(30);
+        private Duration jwksTimeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Calentamiento del pool al arrancar y umbral de saturación para el readiness.
+     * throttle-poll-interval: cada cuánto vuelve a mirar el pool el trabajo de fondo que espera una conexión libre.
+     * El tamaño y los tiempos del pool van en spring.r2dbc.pool.*.
+     */
+    @Data
+    public static class Pool {
+        private Duration warmupTimeout = Duration.ofSeconds(30);
+        private int readinessMaxPending = 50;
+        private Duration throttlePollInterval = Duration.ofMillis(20);
+    }
+
+    /**
+     * Feed en vivo (SSE): cada suscriptor tiene su propio buffer acotado; si se llena se descartan
+     * los eventos más antiguos y se conservan los últimos. Con buffer-size 1 solo queda el más reciente.
+     */
+    @Data
+    public static class Stream {
+        private int bufferSize = 256;
+        private Duration heartbeat = Duration.ofSeconds(15);
+        private Duration maxReconnectDelay = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Altas individuales en modo write-behind (opcional): cada POST /egg-production se encola y se
+     * inserta junto con otros en un INSERT multi-fila, cada max-batch-size registros o cada max-delay,
+     * lo que ocurra primero. Con queue-capacity altas pendientes la API responde 503. Al apagar se espera
+     * hasta shutdown-timeout a que se inserten las pendientes.
+     */
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private int maxBatchSize = 200;
+        private Duration maxDelay = Duration.ofMillis(20);
+        private int queueCapacity = 5_000;
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Serie diaria en memoria para consultas analíticas (/egg-production/series).
+     * Se recarga cada refresh-interval para incluir lo escrito por otras instancias; con 0 solo se carga al arrancar.
+     */
+    @Data
+    public static class TimeSeries {
+        private Duration refreshInterval = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Control de admisión (AdmissionControlFilter): token bucket por usuario con la tasa de su rol
+     * (roles.USER, roles.ADMIN; los demás usan default-rate) y tope global de peticiones en curso contra
+     * la base de datos. requests-per-second 0 desactiva el límite de ese rol; max-concurrent-requests 0, el global.
+     * Conviene que max-concurrent-requests sea poco más que spring.r2dbc.pool.max-size.
+     */
+    @Data
+    public static class Admission {
+        private int maxConcurrentRequests = 40;
+        private long maxSubjects = 100_000;
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private Rate defaultRate = new Rate(5, 10);
+        // Sin distinguir mayúsculas: las variables de entorno llegan con las claves en minúsculas
+        private Map<String, Rate> roles = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        public Admission() {
+            roles.put("USER", new Rate(20, 40));
+            roles.put("ADMIN", new Rate(50, 100));
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rate {
+        private double requestsPerSecond;
+        private int burst;
+    }
+
+    /**
+     * Réplicas de lectura (URLs r2dbc:postgresql://...; usuario, opciones y pool como en spring.r2dbc.*).
+     * Los listados y lecturas por id de un GET van a las réplicas por turnos, salvo que el mismo usuario
+     * haya escrito en los últimos sticky-window (debe superar el retraso habitual de la replicación).
+     * Cada instancia solo sabe de las escrituras que pasaron por ella: con varias instancias, read-your-writes
+     * requiere afinidad de sesión en el balanceador. Sin URLs todo va al primario.
+     */
+    @Data
+    public static class ReadReplicas {
+        private List<String> urls = new ArrayList<>();
+        private Duration stickyWindow = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Tabla particionada por mes y archivo de registros (EggProductionArchiver), cada interval:
+     * crea las particiones de los próximos partitions-ahead meses y mueve a egg_production_archive,
+     * por tandas de batch-size, los inactivos desde hace más de inactive-after. Con retention distinto
+     * de 0 (p. ej. 5y) también archiva los registros con fecha de registro más antigua.
+     */
+    @Data
+    public static class Archive {
+        private boolean enabled = true;
+        private Duration interval = Duration.ofHours(1);
+        private int batchSize = 1_000;
+        private Duration inactiveAfter = Duration.ofDays(30);
+        private Period retention = Period.ZERO;
+        private int partitionsAhead = 3;
+    }
+
+    /**
+     * Cabecera Idempotency-Key en POST y PUT (EggProductionIdempotency): el resultado de cada clave se guarda
+     * ttl, en memoria (hasta max-keys) y en egg_production_idempotency, así los reintentos se responden sin
+     * repetir la escritura, también después de reiniciar. Cada purge-interval se borran de la tabla los vencidos.
+     */
+    @Data
+    public static class Idempotency {
+        private Duration ttl = Duration.ofHours(24);
+        private int maxKeys = 100_000;
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+}
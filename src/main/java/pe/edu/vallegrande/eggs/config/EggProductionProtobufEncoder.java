@@ -0,0 +1,143 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe EggProductionModel (o listas de ellos) en Protobuf según src/main/proto/egg_production.proto,
+ * directamente con CodedOutputStream y sin clases generadas.
+ * Una lista es un EggProductionList; un flujo (Flux) son mensajes EggProduction con prefijo de longitud.
+ */
+public class EggProductionProtobufEncoder implements Encoder<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final int ID = 1;
+    private static final int QUANTITY_EGGS = 2;
+    private static final int EGGS_KILO = 3;
+    private static final int PRICE_KILO_CENTS = 4;
+    private static final int REGISTRATION_DATE = 5;
+    private static final int ESTADO = 6;
+    private static final int VERSION = 7;
+    private static final int LIST_ITEMS = 1;
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        // Solo cuando se negocia explícitamente (produces del endpoint + Accept); nunca para */* ni sin tipo,
+        // así Protobuf no desplaza a JSON en los endpoints que no lo declaran
+        if (mimeType == null || !mimeType.isConcrete() || !APPLICATION_PROTOBUF.isCompatibleWith(mimeType)) {
+            return false;
+        }
+        Class<?> type = elementType.toClass();
+        if (EggProductionModel.class.isAssignableFrom(type)) {
+            return true;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            Class<?> item = elementType.asCollection().resolveGeneric(0);
+            return item != null && EggProductionModel.class.isAssignableFrom(item);
+        }
+        return false;
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        boolean delimited = !(inputStream instanceof Mono);
+        return Flux.from(inputStream).map(value -> encode(value, bufferFactory, delimited));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        return encode(value, bufferFactory, false);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return List.of(APPLICATION_PROTOBUF);
+    }
+
+    private static DataBuffer encode(Object value, DataBufferFactory bufferFactory, boolean delimited) {
+        try {
+            byte[] bytes;
+            if (value instanceof EggProductionModel model) {
+                int size = size(model);
+                bytes = new byte[(delimited ? CodedOutputStream.computeUInt32SizeNoTag(size) : 0) + size];
+                CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+                if (delimited) out.writeUInt32NoTag(size);
+                write(out, model);
+            } else {
+                Collection<?> models = (Collection<?>) value;
+                // Se calcula el tamaño exacto primero para escribir en un solo arreglo
+                int[] sizes = new int[models.size()];
+                int total = 0;
+                int i = 0;
+                for (Object item : models) {
+                    sizes[i] = size((EggProductionModel) item);
+                    total += CodedOutputStream.computeTagSize(LIST_ITEMS)
+                            + CodedOutputStream.computeUInt32SizeNoTag(sizes[i]) + sizes[i];
+                    i++;
+                }
+                bytes = new byte[total];
+                CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+                i = 0;
+                for (Object item : models) {
+                    out.writeTag(LIST_ITEMS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                    out.writeUInt32NoTag(sizes[i++]);
+                    write(out, (EggProductionModel) item);
+                }
+            }
+            return bufferFactory.wrap(bytes);
+        } catch (IOException | ClassCastException e) {
+            throw new EncodingException("No se pudo escribir Protobuf: " + e.getMessage(), e);
+        }
+    }
+
+    private static int size(EggProductionModel model) {
+        int size = 0;
+        if (model.getId() != null) size += CodedOutputStream.computeInt32Size(ID, model.getId());
+        if (model.getQuantityEggs() != null) size += CodedOutputStream.computeInt32Size(QUANTITY_EGGS, model.getQuantityEggs());
+        if (model.getEggsKilo() != null) size += CodedOutputStream.computeInt32Size(EGGS_KILO, model.getEggsKilo());
+        if (model.getPriceKilo() != null) size += CodedOutputStream.computeInt64Size(PRICE_KILO_CENTS, cents(model.getPriceKilo()));
+        if (model.getRegistrationDate() != null) {
+            size += CodedOutputStream.computeInt32Size(REGISTRATION_DATE, (int) model.getRegistrationDate().toEpochDay());
+        }
+        if (model.getEstado() != null) size += CodedOutputStream.computeStringSize(ESTADO, model.getEstado());
+        if (model.getVersion() != null) size += CodedOutputStream.computeInt64Size(VERSION, model.getVersion());
+        return size;
+    }
+
+    private static void write(CodedOutputStream out, EggProductionModel model) throws IOException {
+        if (model.getId() != null) out.writeInt32(ID, model.getId());
+        if (model.getQuantityEggs() != null) out.writeInt32(QUANTITY_EGGS, model.getQuantityEggs());
+        if (model.getEggsKilo() != null) out.writeInt32(EGGS_KILO, model.getEggsKilo());
+        if (model.getPriceKilo() != null) out.writeInt64(PRICE_KILO_CENTS, cents(model.getPriceKilo()));
+        if (model.getRegistrationDate() != null) {
+            out.writeInt32(REGISTRATION_DATE, (int) model.getRegistrationDate().toEpochDay());
+        }
+        if (model.getEstado() != null) out.writeString(ESTADO, model.getEstado());
+        if (model.getVersion() != null) out.writeInt64(VERSION, model.getVersion());
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
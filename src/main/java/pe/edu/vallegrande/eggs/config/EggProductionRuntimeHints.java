@@ -0,0 +1,46 @@
+package pe.edu.vallegrande.eggs.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionImportProgress;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionStatusChange;
+import pe.edu.vallegrande.eggs.model.EggProductionStatusResult;
+import pe.edu.vallegrande.eggs.repository.EggProductionCustomRepositoryImpl;
+
+/**
+ * Lo que Spring AOT no deduce solo y hace falta en la imagen nativa (mvn -Pnative native:compile):
+ * - Modelos que Jackson lee o escribe fuera de la firma de un controlador: el evento del NOTIFY de V4,
+ *   el registro dentro de los eventos SSE y de los códecs CBOR/Smile.
+ * - EggProductionModel como entidad de Spring Data R2DBC (constructor y campos por reflexión).
+ * - El fragmento EggProductionCustomRepositoryImpl, que Spring Data instancia por reflexión.
+ * - Migraciones de Flyway y la librería nativa de brotli (si no carga, Netty sigue con gzip).
+ * SecurityConfig no necesita nada propio: AOT genera sus beans (y la inyección de jwk-set-uri) en código,
+ * y el convertidor de JWT y el origen CORS son lambdas y clases anónimas, sin reflexión.
+ */
+public class EggProductionRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final Class<?>[] JSON_TYPES = {
+            EggProductionModel.class,
+            EggProductionEvent.class,
+            EggProductionBatchResult.class,
+            EggProductionImportProgress.class,
+            EggProductionStatusChange.class,
+            EggProductionStatusResult.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+        hints.reflection().registerType(EggProductionModel.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(EggProductionCustomRepositoryImpl.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.resources().registerPattern("db/migration/*.sql");
+        hints.resources().registerPattern("lib/linux-x86_64/libbrotli.so");
+    }
+}
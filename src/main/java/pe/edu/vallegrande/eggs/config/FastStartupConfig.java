@@ -0,0 +1,34 @@
+package pe.edu.vallegrande.eggs.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.env.Environment;
+
+/**
+ * Arranque rápido para las instancias que agrega el autoscaler (perfil aot y Dockerfile.aot):
+ * contexto preprocesado con Spring AOT y archivo AppCDS con las clases ya cargadas.
+ * El archivo se genera en una corrida de entrenamiento con -Dspring.context.exit=onRefresh, que crea
+ * todos los beans y sale antes de atender peticiones. Esa corrida se hace al construir la imagen,
+ * sin base de datos, así que en ella no se aplican las migraciones de Flyway.
+ */
+@Slf4j
+@Configuration
+@ImportRuntimeHints(EggProductionRuntimeHints.class)
+public class FastStartupConfig {
+
+    static final String CONTEXT_EXIT = "spring.context.exit";
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(Environment environment) {
+        return flyway -> {
+            if (environment.containsProperty(CONTEXT_EXIT)) {
+                log.info("Corrida de entrenamiento ({}): se omiten las migraciones", CONTEXT_EXIT);
+                return;
+            }
+            flyway.migrate();
+        };
+    }
+}
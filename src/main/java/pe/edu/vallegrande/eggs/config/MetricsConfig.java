@@ -0,0 +1,113 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Métricas que Spring Boot no publica por sí solo:
+ * - r2dbc.pool.acquire: tiempo que espera la aplicación por una conexión del pool
+ *   (los gauges r2dbc.pool.acquired/idle/pending ya los registra Boot).
+ * - eggProduction.repository.invocations / .rows: duración real de cada consulta
+ *   de los repositorios Spring Data y filas devueltas, por método.
+ */
+@Configuration
+public class MetricsConfig {
+
+    static final String POOL_ACQUIRE = "r2dbc.pool.acquire";
+    static final String REPOSITORY_INVOCATIONS = "eggProduction.repository.invocations";
+    static final String REPOSITORY_ROWS = "eggProduction.repository.rows";
+
+    @Bean
+    static BeanPostProcessor connectionFactoryMetrics(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof TimedConnectionFactory)) {
+                    return new TimedConnectionFactory(connectionFactory, registry.getObject(), beanName);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    static BeanPostProcessor repositoryMetrics(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(repositoryInterceptor(
+                                    registry.getObject(), information.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    static MethodInterceptor repositoryInterceptor(MeterRegistry registry, String repository) {
+        return invocation -> {
+            Object result = invocation.proceed();
+            Tags tags = Tags.of("repository", repository, "method", invocation.getMethod().getName());
+            if (result instanceof Mono<?> mono) {
+                return ReactiveMetrics.timed(mono, registry, REPOSITORY_INVOCATIONS, tags);
+            }
+            if (result instanceof Flux<?> flux) {
+                return ReactiveMetrics.timed(flux, registry, REPOSITORY_INVOCATIONS, REPOSITORY_ROWS, tags);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Mide cuánto tarda create(), que en un pool es el tiempo de espera por una conexión libre.
+     * Implementa Wrapped para que Boot siga encontrando el ConnectionPool y publique sus gauges.
+     */
+    static final class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Closeable {
+
+        private final ConnectionFactory delegate;
+        private final MeterRegistry registry;
+        private final Tags tags;
+
+        TimedConnectionFactory(ConnectionFactory delegate, MeterRegistry registry, String name) {
+            this.delegate = delegate;
+            this.registry = registry;
+            this.tags = Tags.of("name", name);
+        }
+
+        @Override
+        public Publisher<? extends Connection> create() {
+            return ReactiveMetrics.timed(Mono.from(delegate.create()), registry, POOL_ACQUIRE, tags);
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public ConnectionFactory unwrap() {
+            return delegate;
+        }
+
+        // Al apagar la aplicación se cierra el pool original
+        @Override
+        public Publisher<Void> close() {
+            return delegate instanceof Closeable closeable ? closeable.close() : Mono.empty();
+        }
+    }
+}
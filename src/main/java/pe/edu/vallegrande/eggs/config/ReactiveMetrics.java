@@ -0,0 +1,45 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Timers para Mono/Flux: miden desde la suscripción hasta que terminan (no hasta que
+ * se arma el pipeline, que es lo que mediría un @Timed normal).
+ * El tag "outcome" distingue SUCCESS, ERROR y CANCELLED.
+ */
+public final class ReactiveMetrics {
+
+    private ReactiveMetrics() {
+    }
+
+    public static <T> Mono<T> timed(Mono<T> source, MeterRegistry registry, String name, Tags tags) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return source.doFinally(signal -> sample.stop(registry.timer(name, tags.and("outcome", outcome(signal)))));
+        });
+    }
+
+    // Además del tiempo total, suma las filas emitidas en el contador rowsName
+    public static <T> Flux<T> timed(Flux<T> source, MeterRegistry registry, String name, String rowsName, Tags tags) {
+        Counter rows = registry.counter(rowsName, tags);
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return source.doOnNext(row -> rows.increment())
+                    .doFinally(signal -> sample.stop(registry.timer(name, tags.and("outcome", outcome(signal)))));
+        });
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "SUCCESS";
+            case ON_ERROR -> "ERROR";
+            default -> "CANCELLED";
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura (egg-production.read-replicas.urls): cada URL tiene su propio pool, con el mismo
+ * usuario, opciones y tamaño que spring.r2dbc.*, y sus gauges r2dbc.pool.* con name=replica-N.
+ * El ConnectionFactory que arma Boot queda como primario dentro de ReplicaRoutingConnectionFactory.
+ * Sin URLs no se envuelve nada y todo va al pool de siempre.
+ */
+@Configuration
+public class ReadReplicaConfig {
+
+    @Bean
+    static BeanPostProcessor readReplicaRouting(ObjectProvider<EggProductionProperties> properties,
+                                                ObjectProvider<R2dbcProperties> r2dbcProperties,
+                                                ObjectProvider<ReplicaRouting> routing,
+                                                ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ConnectionFactory primary)
+                        || DatabaseWarmup.unwrap(primary, ReplicaRoutingConnectionFactory.class) != null) {
+                    return bean;
+                }
+                List<String> urls = properties.getObject().getReadReplicas().getUrls();
+                if (urls.isEmpty()) {
+                    return bean;
+                }
+                List<ConnectionFactory> replicas = new ArrayList<>(urls.size());
+                for (int i = 0; i < urls.size(); i++) {
+                    ConnectionPool pool = replicaPool("replica-" + i, urls.get(i), r2dbcProperties.getObject());
+                    new ConnectionPoolMetrics(pool, "replica-" + i, Tags.empty()).bindTo(registry.getObject());
+                    replicas.add(pool);
+                }
+                return new ReplicaRoutingConnectionFactory(primary, replicas, routing.getObject());
+            }
+        };
+    }
+
+    static ConnectionPool replicaPool(String name, String url, R2dbcProperties r2dbc) {
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        ConnectionFactoryBuilder connection = ConnectionFactoryBuilder.withUrl(url)
+                .configure(options -> r2dbc.getProperties()
+                        .forEach((key, value) -> options.option(Option.valueOf(key), value)));
+        map.from(r2dbc.getUsername()).to(connection::username);
+        map.from(r2dbc.getPassword()).to(connection::password);
+        R2dbcProperties.Pool pool = r2dbc.getPool();
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(connection.build()).name(name);
+        map.from(pool.getInitialSize()).to(builder::initialSize);
+        map.from(pool.getMaxSize()).to(builder::maxSize);
+        map.from(pool.getMinIdle()).to(builder::minIdle);
+        map.from(pool.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(pool.getValidationQuery()).to(builder::validationQuery);
+        return new ConnectionPool(builder.build());
+    }
+}
@@ -0,0 +1,131 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Llaves públicas (JWKS) para verificar los tokens, refrescadas en segundo plano.
+ * El origen es un Resource de Spring, así sirve tanto la URL de Google como un
+ * archivo local (file:) o del classpath para pruebas.
+ * Solo si llega un "kid" desconocido (rotación de llaves) se refresca en la petición,
+ * y como mucho una vez por cada intervalo mínimo: las peticiones que llegan mientras
+ * tanto esperan esa misma lectura en lugar de lanzar otra.
+ * Cada lectura tiene un tope de timeout (conexión y lectura por HTTP, y en total): un JWKS
+ * que no responde hace fallar el refresco en lugar de dejar esperando a esas peticiones.
+ */
+@Slf4j
+public class RefreshingJwkSource implements DisposableBean {
+
+    private final Resource jwkSet;
+    private final Duration minRefreshInterval;
+    private final Duration timeout;
+    private final AtomicReference<JWKSet> keys = new AtomicReference<>(new JWKSet());
+    // Último intento (System.nanoTime); solo se compara por diferencia
+    private final AtomicLong lastRefresh;
+    private final Disposable scheduledRefresh;
+    private Mono<Void> pendingRefresh;
+
+    public RefreshingJwkSource(Resource jwkSet, Duration refreshInterval, Duration minRefreshInterval,
+                               Duration timeout) {
+        this.jwkSet = jwkSet;
+        this.minRefreshInterval = minRefreshInterval;
+        this.timeout = timeout;
+        // Como si el último intento fuera hace minRefreshInterval: el primer kid desconocido puede refrescar ya
+        this.lastRefresh = new AtomicLong(System.nanoTime() - minRefreshInterval.toNanos());
+        this.scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(e -> {
+                            log.warn("No se pudo refrescar el JWKS desde {}: {}", jwkSet, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    // Llaves candidatas para el token (por "kid"); usado por NimbusReactiveJwtDecoder.withJwkSource
+    public Flux<JWK> select(SignedJWT jwt) {
+        String kid = jwt.getHeader().getKeyID();
+        List<JWK> found = find(kid);
+        if (!found.isEmpty()) {
+            return Flux.fromIterable(found);
+        }
+        return refreshIfStale()
+                .thenMany(Flux.defer(() -> Flux.fromIterable(find(kid))));
+    }
+
+    public Mono<Void> refresh() {
+        return Mono.fromCallable(this::load)
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(timeout)
+                .doOnNext(loaded -> {
+                    keys.set(loaded);
+                    lastRefresh.set(System.nanoTime());
+                })
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        scheduledRefresh.dispose();
+    }
+
+    private List<JWK> find(String kid) {
+        JWKSet current = keys.get();
+        if (kid == null) {
+            return current.getKeys();
+        }
+        JWK key = current.getKeyByKeyId(kid);
+        return key != null ? List.of(key) : List.of();
+    }
+
+    // cache(): quien llega durante la lectura se une a ella, y el que cancela no la corta para los demás
+    private synchronized Mono<Void> refreshIfStale() {
+        long now = System.nanoTime();
+        if (pendingRefresh == null && now - lastRefresh.get() >= minRefreshInterval.toNanos()) {
+            // El intento cuenta aunque falle, para no insistir contra un JWKS caído en cada petición
+            lastRefresh.set(now);
+            pendingRefresh = refresh()
+                    .doFinally(signal -> refreshed())
+                    .cache();
+        }
+        return pendingRefresh != null ? pendingRefresh : Mono.empty();
+    }
+
+    private synchronized void refreshed() {
+        pendingRefresh = null;
+    }
+
+    private JWKSet load() throws Exception {
+        try (InputStream in = open()) {
+            return JWKSet.load(in);
+        }
+    }
+
+    // Por HTTP con tiempos de conexión y lectura; sin ellos un socket colgado bloquearía el hilo indefinidamente
+    private InputStream open() throws IOException {
+        if (jwkSet instanceof UrlResource && jwkSet.getURL().getProtocol().startsWith("http")) {
+            URLConnection connection = jwkSet.getURL().openConnection();
+            connection.setConnectTimeout((int) timeout.toMillis());
+            connection.setReadTimeout((int) timeout.toMillis());
+            return connection.getInputStream();
+        }
+        return jwkSet.getInputStream();
+    }
+}
@@ -0,0 +1,113 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Decide cuándo una consulta puede ir a una réplica de lectura (ver ReplicaRoutingConnectionFactory).
+ * Hacen falta dos marcas en el contexto de Reactor:
+ * - La del servicio, en los métodos de solo lectura: readOnly() para listados y readOnlyCached() para
+ *   lecturas que se guardan en EggProductionCache o se comparten entre clientes.
+ * - La de la petición (webFilter()): solo GET/HEAD de un usuario que no escribió en los últimos
+ *   sticky-window, así cada cliente lee lo que acaba de escribir (read-your-writes).
+ * Como lo cacheado lo ven todos, readOnlyCached() exige además que en esta instancia nadie haya escrito
+ * en los últimos sticky-window: si no, una réplica atrasada dejaría en caché un valor viejo.
+ * Todo lo demás (escrituras, transacciones, tareas internas) va al primario.
+ * Las escrituras recientes se recuerdan solo en memoria de esta instancia: con varias instancias detrás de
+ * un balanceador, read-your-writes vale solo si el balanceador manda al mismo usuario a la misma instancia
+ * (afinidad de sesión); si no, el GET que sigue a un POST puede caer en otra y leer de una réplica atrasada.
+ */
+@Component
+public class ReplicaRouting {
+
+    static final String READ_ONLY = ReplicaRouting.class.getName() + ".readOnly";
+    static final String REPLICA_ALLOWED = ReplicaRouting.class.getName() + ".replicaAllowed";
+    private static final String ANONYMOUS = "";
+
+    private final boolean enabled;
+    private final long stickyNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, Boolean> recentWriters;
+    private volatile long lastWrite;
+
+    @Autowired
+    public ReplicaRouting(EggProductionProperties properties) {
+        this(properties.getReadReplicas(), System::nanoTime);
+    }
+
+    ReplicaRouting(EggProductionProperties.ReadReplicas config, LongSupplier nanoClock) {
+        this.enabled = !config.getUrls().isEmpty();
+        this.stickyNanos = config.getStickyWindow().toNanos();
+        this.nanoClock = nanoClock;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofNanos(Math.max(1, stickyNanos)))
+                .ticker(nanoClock::getAsLong)
+                .build();
+        this.lastWrite = nanoClock.getAsLong() - stickyNanos;
+    }
+
+    public static <T> Flux<T> readOnly(Flux<T> query) {
+        return query.contextWrite(context -> context.put(READ_ONLY, Boolean.FALSE));
+    }
+
+    public static <T> Mono<T> readOnlyCached(Mono<T> query) {
+        return query.contextWrite(context -> context.put(READ_ONLY, Boolean.TRUE));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Va dentro de la cadena de seguridad, ya con el usuario autenticado (ver SecurityConfig)
+    public WebFilter webFilter() {
+        return this::filter;
+    }
+
+    boolean useReplica(ContextView context) {
+        if (!enabled || !context.getOrDefault(REPLICA_ALLOWED, false) || !context.hasKey(READ_ONLY)) {
+            return false;
+        }
+        boolean cached = context.get(READ_ONLY);
+        return !cached || nanoClock.getAsLong() - lastWrite >= stickyNanos;
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        HttpMethod method = exchange.getRequest().getMethod();
+        boolean read = HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(ANONYMOUS)
+                .flatMap(subject -> {
+                    if (read) {
+                        return recentWriters.getIfPresent(subject) != null
+                                ? chain.filter(exchange)
+                                : chain.filter(exchange).contextWrite(context -> context.put(REPLICA_ALLOWED, true));
+                    }
+                    // Al empezar y al terminar: la siguiente lectura puede llegar antes de que se cierre esta petición
+                    wrote(subject);
+                    return chain.filter(exchange).doFinally(signal -> wrote(subject));
+                });
+    }
+
+    // Solo en esta instancia (ver la clase)
+    private void wrote(String subject) {
+        recentWriters.put(subject, Boolean.TRUE);
+        lastWrite = nanoClock.getAsLong();
+    }
+}
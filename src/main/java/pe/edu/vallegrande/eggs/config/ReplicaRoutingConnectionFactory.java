@@ -0,0 +1,62 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConnectionFactory que entrega conexiones de las réplicas (por turnos) cuando ReplicaRouting lo permite
+ * según el contexto de quien la pide, y del primario en cualquier otro caso.
+ * unwrap() devuelve el primario: warmup, health, métricas del pool y LISTEN siguen usando ese pool.
+ */
+public class ReplicaRoutingConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Closeable {
+
+    private final ConnectionFactory primary;
+    private final List<ConnectionFactory> replicas;
+    private final ReplicaRouting routing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingConnectionFactory(ConnectionFactory primary, List<ConnectionFactory> replicas,
+                                           ReplicaRouting routing) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.routing = routing;
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.deferContextual(context -> Mono.from(routing.useReplica(context) && !replicas.isEmpty()
+                ? replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size())).create()
+                : primary.create()));
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return primary.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return primary;
+    }
+
+    // Al apagar se cierran los pools de las réplicas y el primario
+    @Override
+    public Publisher<Void> close() {
+        return Flux.concat(replicas.stream().map(ReplicaRoutingConnectionFactory::close).toList())
+                .concatWith(close(primary))
+                .then();
+    }
+
+    private static Publisher<Void> close(ConnectionFactory connectionFactory) {
+        return connectionFactory instanceof Closeable closeable ? closeable.close() : Mono.empty();
+    }
+}
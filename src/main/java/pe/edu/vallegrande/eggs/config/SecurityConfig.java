@@ -1,10 +1,14 @@
 package pe.edu.vallegrande.eggs.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -12,14 +16,19 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -33,21 +42,40 @@ public class SecurityConfig {
     @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
     private String jwkSetUri;
 
+    // Puerto de actuator (management.server.port), que solo se publica en la red interna
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     private static final List<String> STATIC_ALLOWED_ORIGINS = Arrays.asList(
             "http://localhost:4200"
     );
 
+    // Las listas de authorities son inmutables, así que se comparten entre tokens del mismo rol. Solo las de los
+    // roles conocidos: el claim lo elige quien emite el token y un mapa que crece con cada valor no tiene tope
+    private static final Map<String, Collection<GrantedAuthority>> ROLE_AUTHORITIES = Map.of(
+            "USER", List.of(new SimpleGrantedAuthority("ROLE_USER")),
+            "ADMIN", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+
     private static final Pattern GITPOD_REGEX = Pattern.compile(
             "^https://4200-[a-z0-9\\-]+\\.ws-[a-z0-9]+\\.gitpod\\.io$"
     );
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveJwtDecoder jwtDecoder,
+                                                         EggProductionProperties properties, MeterRegistry meterRegistry,
+                                                         ReplicaRouting replicaRouting) {
+        // Dentro de la cadena de seguridad (no como beans WebFilter) para correr ya autenticados y una sola vez
+        AdmissionControlFilter admissionControl = new AdmissionControlFilter(properties.getAdmission(), meterRegistry);
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(auth -> auth
                         .pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .pathMatchers("/swagger-ui.html", "/v3/api-docs/**", "/swagger-ui/**").permitAll()
+                        // Scrape de Prometheus sin token de Firebase, solo por el puerto de management
+                        .matchers(onPort(managementPort, ServerWebExchangeMatchers.pathMatchers(HttpMethod.GET,
+                                "/actuator/prometheus"))).permitAll()
+                        // Sondas liveness/readiness del orquestador
+                        .pathMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**").permitAll()
                         .pathMatchers(HttpMethod.GET, "/egg-production/**").hasAnyRole("USER", "ADMIN")
                         .pathMatchers(HttpMethod.POST, "/egg-production/**").hasRole("ADMIN")
                         .pathMatchers(HttpMethod.PUT, "/egg-production/**").hasRole("ADMIN")
@@ -56,29 +84,66 @@ public class SecurityConfig {
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
-                                .jwtDecoder(jwtDecoder())
+                                .jwtDecoder(jwtDecoder)
                                 .jwtAuthenticationConverter(this::convertJwt)
                         )
                 )
                 .cors(cors -> cors
                         .configurationSource(dynamicCorsConfigurationSource())
                 )
+                .addFilterAfter(admissionControl, SecurityWebFiltersOrder.AUTHORIZATION)
+                .addFilterAfter(replicaRouting.webFilter(), SecurityWebFiltersOrder.AUTHORIZATION)
                 .build();
     }
 
+    /**
+     * Llaves públicas de Firebase, refrescadas en segundo plano fuera del camino de la petición.
+     */
+    @Bean
+    public RefreshingJwkSource jwkSource(ResourceLoader resourceLoader, EggProductionProperties properties) {
+        EggProductionProperties.Security security = properties.getSecurity();
+        return new RefreshingJwkSource(resourceLoader.getResource(jwkSetUri),
+                security.getJwksRefreshInterval(), security.getJwksMinRefreshInterval(), security.getJwksTimeout());
+    }
+
+    /**
+     * Verifica la firma una sola vez por token y reutiliza el resultado hasta su "exp".
+     * El tiempo de verificación se publica como eggProduction.jwt.verify.
+     */
     @Bean
-    public ReactiveJwtDecoder jwtDecoder() {
-        return NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public ReactiveJwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, EggProductionProperties properties,
+                                         MeterRegistry meterRegistry) {
+        EggProductionProperties.Security security = properties.getSecurity();
+        ReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+        ReactiveJwtDecoder verifier = token -> ReactiveMetrics.timed(nimbus.decode(token), meterRegistry,
+                "eggProduction.jwt.verify", Tags.empty());
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifier,
+                security.getJwtCacheSize(), security.getJwtCacheMaxTtl());
+        decoder.bindTo(meterRegistry);
+        return decoder;
     }
 
-    private Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
+    Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
         String role = jwt.getClaimAsString("role");
-        Collection<GrantedAuthority> authorities = role != null
-                ? List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
-                : List.of();
+        Collection<GrantedAuthority> authorities = role != null ? authorities(role.toUpperCase(Locale.ROOT)) : List.of();
         return Mono.just(new CustomAuthenticationToken(jwt, authorities));
     }
 
+    private static Collection<GrantedAuthority> authorities(String role) {
+        Collection<GrantedAuthority> known = ROLE_AUTHORITIES.get(role);
+        return known != null ? known : List.of(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+
+    // Solo las peticiones que llegaron por ese puerto local
+    static ServerWebExchangeMatcher onPort(int port, ServerWebExchangeMatcher matcher) {
+        return exchange -> {
+            InetSocketAddress local = exchange.getRequest().getLocalAddress();
+            return local != null && local.getPort() == port
+                    ? matcher.matches(exchange)
+                    : ServerWebExchangeMatcher.MatchResult.notMatch();
+        };
+    }
+
     /**
      * Configuración dinámica de CORS para admitir localhost y Gitpod.
      */
@@ -101,7 +166,7 @@ public class SecurityConfig {
         };
     }
 
-    private boolean isAllowedOrigin(String origin) {
+    boolean isAllowedOrigin(String origin) {
         if (origin == null) return false;
         return STATIC_ALLOWED_ORIGINS.contains(origin) || GITPOD_REGEX.matcher(origin).matches();
     }
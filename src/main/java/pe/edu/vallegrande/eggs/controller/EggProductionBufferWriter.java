@@ -0,0 +1,131 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.time.LocalDate;
+
+/**
+ * Base de los escritores que pasan filas de la base de datos directo a los DataBuffers de la respuesta
+ * (del pool de Netty en el servidor), sin armar un String ni un modelo por fila: CSV y JSON con ?fields=.
+ * Cada vez que el buffer junta chunkSize bytes se entrega con take() y se empieza otro, así la memoria
+ * no depende del tamaño del resultado. Una instancia por respuesta.
+ */
+abstract class EggProductionBufferWriter {
+
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    private final DataBufferFactory bufferFactory;
+    private final int chunkSize;
+    private final byte[] digits = new byte[20];
+    protected DataBuffer current;
+
+    protected EggProductionBufferWriter(DataBufferFactory bufferFactory, int chunkSize) {
+        this.bufferFactory = bufferFactory;
+        this.chunkSize = chunkSize;
+        this.current = allocate();
+    }
+
+    // Devuelve true cuando el buffer ya juntó un bloque y hay que entregarlo con take().
+    // Sincronizado porque la cancelación (release) puede llegar desde el hilo del servidor
+    final synchronized boolean write(Readable row) {
+        if (current == null) {
+            return false;
+        }
+        writeRow(row);
+        return current.readableByteCount() >= chunkSize;
+    }
+
+    final synchronized DataBuffer take() {
+        DataBuffer full = current;
+        current = allocate();
+        return full;
+    }
+
+    // Último bloque; null si ya se liberó
+    final synchronized DataBuffer finish() {
+        if (current != null) {
+            writeEnd();
+        }
+        DataBuffer last = current;
+        current = null;
+        return last;
+    }
+
+    // Libera lo que no se llegó a entregar (error o cliente que cancela)
+    final synchronized void release() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+
+    protected abstract void writeRow(Readable row);
+
+    // Lo que cierra la respuesta, después de la última fila
+    protected void writeEnd() {
+    }
+
+    private DataBuffer allocate() {
+        return bufferFactory.allocateBuffer(chunkSize + 256);
+    }
+
+    protected final void writeNumber(Number value) {
+        if (value != null) {
+            writeLong(value.longValue());
+        }
+    }
+
+    // Céntimos como soles con dos decimales (7.50)
+    protected final void writeCents(Long cents) {
+        if (cents == null) return;
+        long value = cents;
+        if (value < 0) {
+            current.write((byte) '-');
+            value = -value;
+        }
+        writeLong(value / 100);
+        current.write((byte) '.');
+        writeDigit(value % 100 / 10);
+        writeDigit(value % 10);
+    }
+
+    // ISO-8601 (yyyy-MM-dd), igual que Jackson
+    protected final void writeDate(LocalDate date) {
+        if (date == null) return;
+        int year = date.getYear();
+        if (year >= 0 && year <= 9999) {
+            writeDigit(year / 1000);
+            writeDigit(year / 100 % 10);
+            writeDigit(year / 10 % 10);
+            writeDigit(year % 10);
+        } else {
+            writeLong(year);
+        }
+        current.write((byte) '-');
+        writeDigit(date.getMonthValue() / 10);
+        writeDigit(date.getMonthValue() % 10);
+        current.write((byte) '-');
+        writeDigit(date.getDayOfMonth() / 10);
+        writeDigit(date.getDayOfMonth() % 10);
+    }
+
+    protected final void writeLong(long value) {
+        if (value < 0) {
+            current.write((byte) '-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        current.write(digits, position, digits.length - position);
+    }
+
+    private void writeDigit(long digit) {
+        current.write((byte) ('0' + digit));
+    }
+}
@@ -1,12 +1,60 @@
 package pe.edu.vallegrande.eggs.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionImportProgress;
 import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesPoint;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesSummary;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.EggProductionStatusChange;
+import pe.edu.vallegrande.eggs.model.EggProductionStatusResult;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.service.EggProductionFeed;
+import pe.edu.vallegrande.eggs.service.EggProductionIdempotency;
 import pe.edu.vallegrande.eggs.service.EggProductionService;
+import pe.edu.vallegrande.eggs.service.EggProductionStatsService;
+import pe.edu.vallegrande.eggs.service.EggProductionTimeSeries;
+import pe.edu.vallegrande.eggs.service.EggProductionWrite;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @CrossOrigin("*")
 @RestController
@@ -14,36 +62,329 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class EggProductionController {
 
+    static final int MAX_STATUS_IDS = 10_000;
+    static final int MAX_SERIES_DAYS = 3_660;
+    static final int MAX_SERIES_WINDOW = 366;
+    // Un año por archivo: la descarga ocupa una conexión (de una réplica si hay) mientras dura
+    static final int MAX_EXPORT_DAYS = 366;
+    static final String ROWS_METRIC = "eggProduction.http.rows";
+    static final String IMPORT_FILE_PART = "file";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    static final int MAX_IMPORT_LINE_LENGTH = 64 * 1024;
+    // Formatos compactos para las listas (ver CodecConfig y src/main/proto/egg_production.proto)
+    static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    static final String APPLICATION_PROTOBUF = "application/x-protobuf";
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final EggProductionService service;
+    private final EggProductionStatsService statsService;
+    private final EggProductionTimeSeries timeSeries;
+    private final EggProductionFeed feed;
+    private final EggProductionIdempotency idempotency;
+    private final EggProductionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger activeImports = new AtomicInteger();
+
+    //Obtener todos (A e I) por páginas: ?after=<último id>&limit=<tamaño>
+    //Opcional por rango de fecha de registro: ?from=2025-01-06&to=2025-01-12&estado=A
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            APPLICATION_SMILE, APPLICATION_PROTOBUF})
+    public Mono<ResponseEntity<List<EggProductionModel>>> getAll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Flux<EggProductionModel> page = isRange(from, to, estado)
+                ? service.getRangePage(from, to, estado, after, limit)
+                : service.getPage(after, limit);
+        return conditionalPage(rows(page, "/egg-production"), ifNoneMatch);
+    }
+
+    //Obtener todos como flujo NDJSON (fila por fila, con backpressure), también por rango
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EggProductionModel> streamAll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String estado) {
+        Flux<EggProductionModel> all = isRange(from, to, estado)
+                ? service.getRange(from, to, estado)
+                : service.getAll();
+        return rows(all, "/egg-production");
+    }
+
+    //Solo algunos campos: ?fields=id,registrationDate,quantityEggs (mismos filtros y páginas que arriba).
+    //Se consultan solo esas columnas y se escriben directo en la respuesta; solo JSON y NDJSON
+    @GetMapping(params = "fields", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<DataBuffer>> getAllFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            ServerHttpResponse response) {
+        isRange(from, to, estado);
+        return fieldsPage(fields(fields), from, to, estado, after, limit, ifNoneMatch, response, "/egg-production");
+    }
+
+    @GetMapping(params = "fields", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> streamAllFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String estado,
+            ServerHttpResponse response) {
+        isRange(from, to, estado);
+        return fieldsStream(fields(fields), from, to, estado, response, "/egg-production");
+    }
+
+    //Exportar a CSV (A e I) por rango de fecha de registro, hasta MAX_EXPORT_DAYS días: ?from=2025-01-01&to=2025-01-31
+    //Las filas pasan de la base de datos a los buffers de la respuesta por bloques; con Accept-Encoding: gzip sale comprimido
+    @GetMapping(value = "/export.csv", produces = "text/csv")
+    public ResponseEntity<Flux<DataBuffer>> exportCsv(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            ServerHttpResponse response) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_EXPORT_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "el rango no puede superar " + MAX_EXPORT_DAYS + " días");
+        }
+        Flux<DataBuffer> csv = written(
+                () -> new EggProductionCsvWriter(response.bufferFactory(), EggProductionCsvWriter.CHUNK_SIZE),
+                writer -> service.exportRange(from, to, writer::write), "/egg-production/export.csv");
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("egg-production_" + from + "_" + to + ".csv").build().toString())
+                .body(csv);
+    }
+
+    //Obtener solo activos por páginas
+    @GetMapping(value = "/active", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            APPLICATION_SMILE, APPLICATION_PROTOBUF})
+    public Mono<ResponseEntity<List<EggProductionModel>>> getAllActive(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalPage(rows(service.getActivePage(after, limit), "/egg-production/active"), ifNoneMatch);
+    }
+
+    //Obtener solo activos como flujo NDJSON
+    @GetMapping(value = "/active", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EggProductionModel> streamAllActive() {
+        return rows(service.getAllActive(), "/egg-production/active");
+    }
+
+    //Solo activos con algunos campos (?fields=): van a la base de datos, no a la caché de páginas
+    @GetMapping(value = "/active", params = "fields", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<DataBuffer>> getAllActiveFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            ServerHttpResponse response) {
+        return fieldsPage(fields(fields), null, null, "A", after, limit, ifNoneMatch, response,
+                "/egg-production/active");
+    }
 
-    //Obtener todos (A e I)
-    @GetMapping
-    public Flux<EggProductionModel> getAll() {
-        return service.getAll();
+    @GetMapping(value = "/active", params = "fields", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> streamAllActiveFields(@RequestParam String fields,
+                                                                  ServerHttpResponse response) {
+        return fieldsStream(fields(fields), null, null, "A", response, "/egg-production/active");
     }
 
-    //Obtener solo activos
-    @GetMapping("/active")
-    public Flux<EggProductionModel> getAllActive() {
-        return service.getAllActive();
+    //Feed en vivo (SSE) de registros creados, actualizados, con cambio de estado o eliminados.
+    //El nombre del evento es el tipo de cambio; un comentario periódico mantiene viva la conexión en los proxies
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<EggProductionModel>> stream() {
+        Flux<ServerSentEvent<EggProductionModel>> heartbeats = Flux.interval(properties.getStream().getHeartbeat())
+                .map(tick -> ServerSentEvent.<EggProductionModel>builder().comment("ping").build());
+        return feed.subscribe()
+                .map(event -> ServerSentEvent.builder(event.getRecord())
+                        .event(event.getType().name())
+                        .build())
+                // Los latidos terminan junto con el feed (al apagar la aplicación)
+                .publish(events -> Flux.merge(events, heartbeats.takeUntilOther(events.ignoreElements())));
     }
 
-    //Obtener por ID
+    //Estadísticas acumuladas por día o por mes: ?from=2025-01-01&to=2025-12-31&granularity=month
+    @GetMapping("/stats")
+    public Flux<EggProductionStatsModel> getStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        return rows(statsService.getStats(from, to, granularity(granularity)), "/egg-production/stats");
+    }
+
+    //Resumen (suma, promedio, mínimo y máximo por día) de una métrica desde la serie en memoria
+    //?metric=eggs&from=2025-01-01&to=2025-03-31; metric: records, eggs, kilos, revenue o price_kilo
+    @GetMapping("/series/summary")
+    public Mono<EggProductionSeriesSummary> getSeriesSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "eggs") String metric) {
+        validateSeries(from, to);
+        return Mono.just(timeSeries.summarize(metric(metric), from, to));
+    }
+
+    //Promedio móvil por día de una métrica: ?metric=price_kilo&from=2025-01-01&to=2025-03-31&window=7
+    @GetMapping("/series/moving-average")
+    public Flux<EggProductionSeriesPoint> getSeriesMovingAverage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "eggs") String metric,
+            @RequestParam(defaultValue = "7") int window) {
+        validateSeries(from, to);
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_SERIES_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "el rango no puede superar " + MAX_SERIES_DAYS + " días");
+        }
+        if (window < 1 || window > MAX_SERIES_WINDOW) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "window debe estar entre 1 y " + MAX_SERIES_WINDOW);
+        }
+        return rows(Flux.fromIterable(timeSeries.movingAverage(metric(metric), from, to, window)),
+                "/egg-production/series/moving-average");
+    }
+
+    //Obtener por ID (responde 304 si el cliente ya tiene esta versión)
     @GetMapping("/{id}")
-    public Mono<EggProductionModel> getById(@PathVariable Integer id) {
-        return service.getById(id);
+    public Mono<ResponseEntity<EggProductionModel>> getById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return service.getById(id)
+                .map(model -> {
+                    String etag = EggProductionETags.of(model);
+                    if (EggProductionETags.matches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(model);
+                });
     }
 
-    //Crear nuevo registro
+    //Crear nuevo registro. Con la cabecera Idempotency-Key un reintento recibe el mismo registro en vez de crear otro
+    //(esas altas no pasan por write-behind: se guardan en la misma transacción que la clave)
     @PostMapping
-    public Mono<EggProductionModel> create(@RequestBody EggProductionModel model) {
-        return service.create(model);
+    public Mono<EggProductionModel> create(
+            @RequestBody EggProductionModel model,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return (idempotencyKey != null
+                ? idempotent(idempotencyKey, EggProductionIdempotency.request("POST /egg-production", model),
+                        () -> service.createWrite(model))
+                : service.create(model))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                // Cola de altas llena (modo write-behind): que el cliente reintente en un momento
+                .onErrorMap(RejectedExecutionException.class, e -> new RetryLaterException(e.getMessage()));
+    }
+
+    //Crear en lote: arreglo JSON o flujo NDJSON, responde id o error por elemento
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<EggProductionBatchResult> createBatch(@RequestBody Flux<EggProductionModel> models) {
+        return rows(service.createBatch(models), "/egg-production/batch");
     }
 
-    //Actualizar registro
+    //Importar un CSV (multipart, parte "file") con el encabezado de /export.csv; responde NDJSON con cada
+    //línea rechazada, un avance cada bloque insertado y un resumen final (done = true)
+    @PostMapping(value = "/import",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EggProductionImportProgress> importCsv(@RequestBody Flux<PartEvent> parts) {
+        return Flux.defer(() -> {
+            if (activeImports.incrementAndGet() > properties.getBatch().getMaxConcurrentImports()) {
+                activeImports.decrementAndGet();
+                return Flux.error(new RetryLaterException("Hay demasiadas importaciones en curso"));
+            }
+            return rows(progress(importLines(lines(parts))), "/egg-production/import")
+                    .doFinally(signal -> activeImports.decrementAndGet());
+        });
+    }
+
+    // El archivo se decodifica por líneas a medida que llega, sin pasar por disco ni juntarlo en memoria;
+    // cada línea lleva su número (1 = encabezado)
+    private static Flux<Tuple2<Long, String>> lines(Flux<PartEvent> parts) {
+        Flux<DataBuffer> content = parts.handle((event, sink) -> {
+            if (event instanceof FilePartEvent && IMPORT_FILE_PART.equals(event.name())) {
+                sink.next(event.content());
+            } else {
+                DataBufferUtils.release(event.content());
+            }
+        });
+        StringDecoder decoder = StringDecoder.textPlainOnly();
+        decoder.setMaxInMemorySize(MAX_IMPORT_LINE_LENGTH);
+        return decoder.decode(content, ResolvableType.forClass(String.class), null, null)
+                .index((index, line) -> Tuples.of(index + 1, line));
+    }
+
+    // Las líneas con formato inválido se rechazan aquí; las demás se validan e insertan por bloques en el servicio,
+    // que pide más líneas solo cuando terminó el bloque anterior
+    private Flux<EggProductionBatchResult> importLines(Flux<Tuple2<Long, String>> lines) {
+        return lines.switchOnFirst((first, all) -> {
+            if (!first.hasValue()) {
+                return all.thenMany(Flux.empty()); // Archivo vacío o sin parte "file"
+            }
+            EggProductionCsvReader reader;
+            try {
+                reader = EggProductionCsvReader.fromHeader(first.get().getT2());
+            } catch (IllegalArgumentException e) {
+                return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+            }
+            return all.skip(1)
+                    .filter(line -> !line.getT2().isBlank())
+                    .map(line -> ParsedLine.of(reader, line))
+                    .publish(parsed -> Flux.merge(
+                            parsed.filter(line -> line.error() != null)
+                                    .map(line -> EggProductionBatchResult.failed(line.number(), line.error())),
+                            service.importRows(parsed.filter(line -> line.error() == null)
+                                    .map(line -> Tuples.of(line.number(), line.model())))));
+        });
+    }
+
+    private Flux<EggProductionImportProgress> progress(Flux<EggProductionBatchResult> results) {
+        int every = Math.max(1, properties.getBatch().getChunkSize());
+        long[] counts = new long[2]; // importadas, rechazadas (una suscripción por petición)
+        return results
+                .concatMapIterable(result -> {
+                    List<EggProductionImportProgress> events = new ArrayList<>(2);
+                    if (result.getError() == null) {
+                        counts[0]++;
+                    } else {
+                        counts[1]++;
+                        events.add(EggProductionImportProgress.rejected(result.getIndex(), result.getError(),
+                                counts[0], counts[1]));
+                    }
+                    if ((counts[0] + counts[1]) % every == 0) {
+                        events.add(EggProductionImportProgress.progress(counts[0], counts[1], false));
+                    }
+                    return events;
+                })
+                .concatWith(Mono.fromSupplier(() -> EggProductionImportProgress.progress(counts[0], counts[1], true)));
+    }
+
+    //Actualizar registro (con If-Match solo si sigue en la versión indicada, si no 412); admite Idempotency-Key
     @PutMapping("/{id}")
-    public Mono<EggProductionModel> update(@PathVariable Integer id, @RequestBody EggProductionModel model) {
-        return service.update(id, model);
+    public Mono<ResponseEntity<EggProductionModel>> update(
+            @PathVariable Integer id,
+            @RequestBody EggProductionModel model,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        Long expectedVersion = EggProductionETags.expectedVersion(ifMatch);
+        return (idempotencyKey != null
+                ? idempotent(idempotencyKey,
+                        EggProductionIdempotency.request("PUT /egg-production/" + id + " " + expectedVersion, model),
+                        () -> service.updateWrite(id, model, expectedVersion).switchIfEmpty(missing(id, ifMatch)))
+                : service.update(id, model, expectedVersion).switchIfEmpty(missing(id, ifMatch)))
+                .map(saved -> ResponseEntity.ok().eTag(EggProductionETags.of(saved)).body(saved))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()));
     }
 
     //Eliminar físicamente (opcional, si quieres borrar de verdad)
@@ -65,4 +406,212 @@ public class EggProductionController {
     public Mono<Void> activate(@PathVariable Integer id) {
         return service.activate(id);
     }
-}
\ No newline at end of file
+
+    //Cambiar estado en bloque: {"estado":"I","ids":[...]} o {"estado":"I","from":"...","to":"..."}
+    @PutMapping("/status")
+    public Mono<EggProductionStatusResult> changeStatus(@RequestBody EggProductionStatusChange change) {
+        String estado = change.getEstado();
+        if (!"A".equals(estado) && !"I".equals(estado)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "estado debe ser A o I");
+        }
+
+        boolean byIds = change.getIds() != null;
+        boolean byRange = change.getFrom() != null || change.getTo() != null;
+        Mono<Long> affected;
+        if (byIds && !byRange) {
+            if (change.getIds().isEmpty() || change.getIds().size() > MAX_STATUS_IDS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "ids debe tener entre 1 y " + MAX_STATUS_IDS + " elementos");
+            }
+            affected = service.changeStatusByIds(estado, change.getIds());
+        } else if (byRange && !byIds && change.getFrom() != null && change.getTo() != null) {
+            affected = service.changeStatusByDateRange(estado, change.getFrom(), change.getTo());
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "indique ids o el rango from/to, no ambos");
+        }
+        return affected.map(EggProductionStatusResult::new);
+    }
+
+    // La escritura se hace una sola vez por Idempotency-Key (ver EggProductionIdempotency)
+    private Mono<EggProductionModel> idempotent(String key, String request, Supplier<Mono<EggProductionWrite>> write) {
+        if (key.isBlank() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key debe tener entre 1 y " + MAX_IDEMPOTENCY_KEY_LENGTH + " caracteres");
+        }
+        return idempotency.execute(key, request, write)
+                .onErrorMap(EggProductionIdempotency.KeyReusedException.class,
+                        e -> new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage()))
+                .onErrorMap(EggProductionIdempotency.KeyInProgressException.class,
+                        e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+    }
+
+    // Registro inexistente: 404, o 412 si la petición traía If-Match (no hay versión con la que coincidir).
+    // Dentro de la escritura idempotente el error además deshace la transacción y libera la clave
+    private static <T> Mono<T> missing(Integer id, String ifMatch) {
+        return Mono.error(() -> new ResponseStatusException(
+                ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.NOT_FOUND,
+                "No existe el registro " + id));
+    }
+
+    // Filas emitidas por cada endpoint que devuelve listas o flujos
+    private <T> Flux<T> rows(Flux<T> flux, String endpoint) {
+        Counter counter = meterRegistry.counter(ROWS_METRIC, "endpoint", endpoint);
+        return flux.doOnNext(row -> counter.increment());
+    }
+
+    private static Mono<ResponseEntity<List<EggProductionModel>>> conditionalPage(Flux<EggProductionModel> page,
+                                                                                String ifNoneMatch) {
+        return page.collectList()
+                .map(rows -> {
+                    String etag = EggProductionETags.of(rows);
+                    // El ETag débil es el mismo en JSON, CBOR, Smile y Protobuf: las cachés deben separar por Accept
+                    if (EggProductionETags.matches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(rows);
+                });
+    }
+
+    // Página con ?fields=: el ETag es el mismo hash de (id, versión) que el de la página completa,
+    // por eso id y version se consultan siempre aunque no se pidan
+    private Mono<ResponseEntity<DataBuffer>> fieldsPage(Set<EggProductionField> fields, LocalDate from, LocalDate to,
+                                                        String estado, Integer after, Integer limit, String ifNoneMatch,
+                                                        ServerHttpResponse response, String endpoint) {
+        Set<EggProductionField> columns = EnumSet.copyOf(fields);
+        columns.add(EggProductionField.ID);
+        columns.add(EggProductionField.VERSION);
+        return Mono.defer(() -> {
+            EggProductionETags.PageDigest digest = new EggProductionETags.PageDigest();
+            Flux<DataBuffer> json = written(
+                    () -> new EggProductionJsonWriter(response.bufferFactory(), EggProductionJsonWriter.CHUNK_SIZE,
+                            fields, false),
+                    writer -> service.getFieldsPage(columns, from, to, estado, after, limit, row -> {
+                        digest.add(row.get("id", Integer.class), row.get("version", Long.class));
+                        return writer.write(row);
+                    }),
+                    endpoint);
+            return DataBufferUtils.join(json)
+                    .map(body -> {
+                        String etag = digest.etag();
+                        if (EggProductionETags.matches(ifNoneMatch, etag)) {
+                            DataBufferUtils.release(body);
+                            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                                    .varyBy(HttpHeaders.ACCEPT).<DataBuffer>build();
+                        }
+                        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT)
+                                .contentType(MediaType.APPLICATION_JSON).body(body);
+                    });
+        });
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> fieldsStream(Set<EggProductionField> fields, LocalDate from, LocalDate to,
+                                                          String estado, ServerHttpResponse response, String endpoint) {
+        Flux<DataBuffer> ndjson = written(
+                () -> new EggProductionJsonWriter(response.bufferFactory(), EggProductionJsonWriter.CHUNK_SIZE,
+                        fields, true),
+                writer -> service.getFields(fields, from, to, estado, writer::write),
+                endpoint);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(ndjson);
+    }
+
+    // Las filas pasan de la base de datos a los buffers de la respuesta por bloques (ver EggProductionBufferWriter)
+    private <W extends EggProductionBufferWriter> Flux<DataBuffer> written(Callable<W> writers,
+                                                                          Function<W, Flux<Boolean>> query,
+                                                                          String endpoint) {
+        return Flux.using(
+                writers,
+                writer -> rows(query.apply(writer), endpoint)
+                        .<DataBuffer>handle((full, sink) -> {
+                            if (full) sink.next(writer.take());
+                        })
+                        .concatWith(Mono.fromSupplier(writer::finish)),
+                EggProductionBufferWriter::release);
+    }
+
+    // ?fields=id,registrationDate: se escriben en el orden de EggProductionField, sin repetir
+    private static Set<EggProductionField> fields(String value) {
+        Set<EggProductionField> fields = EnumSet.noneOf(EggProductionField.class);
+        for (String name : value.split(",")) {
+            EggProductionField field = EggProductionField.of(name.trim());
+            if (field == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "fields admite id, quantityEggs, eggsKilo, priceKilo, registrationDate, estado y version");
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    // Sin filtros es la lista completa; con filtros se exigen from y to válidos
+    private static boolean isRange(LocalDate from, LocalDate to, String estado) {
+        if (from == null && to == null && estado == null) {
+            return false;
+        }
+        if (from == null || to == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "indique from y to");
+        }
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+        if (estado != null && !"A".equals(estado) && !"I".equals(estado)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "estado debe ser A o I");
+        }
+        return true;
+    }
+
+    // Mientras la serie no termina de cargarse el resultado quedaría incompleto: se pide reintentar
+    private void validateSeries(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+        if (!timeSeries.isReady()) {
+            throw new RetryLaterException("La serie diaria aún se está cargando");
+        }
+    }
+
+    private static SeriesMetric metric(String value) {
+        try {
+            return SeriesMetric.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "metric debe ser records, eggs, kilos, revenue o price_kilo");
+        }
+    }
+
+    private static StatsGranularity granularity(String value) {
+        try {
+            return StatsGranularity.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity debe ser day o month");
+        }
+    }
+
+    // Línea del CSV ya interpretada: el modelo o el motivo por el que no se pudo leer
+    private record ParsedLine(long number, EggProductionModel model, String error) {
+
+        static ParsedLine of(EggProductionCsvReader reader, Tuple2<Long, String> line) {
+            try {
+                return new ParsedLine(line.getT1(), reader.parse(line.getT2()), null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedLine(line.getT1(), null, e.getMessage());
+            }
+        }
+    }
+
+    // 503 con Retry-After; ResponseStatusException no permite agregar headers sin subclase
+    static class RetryLaterException extends ResponseStatusException {
+
+        static final String RETRY_AFTER_SECONDS = "1";
+
+        RetryLaterException(String reason) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            return headers;
+        }
+    }
+}
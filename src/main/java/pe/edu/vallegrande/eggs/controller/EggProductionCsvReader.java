@@ -0,0 +1,124 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lee las líneas de una importación CSV con las mismas columnas que la exportación
+ * (id se ignora; quantityEggs y registrationDate son obligatorias, el orden es libre).
+ * Acepta comillas según RFC 4180 dentro de una línea; un campo vacío es null.
+ */
+final class EggProductionCsvReader {
+
+    private static final String[] COLUMNS = {"quantityEggs", "eggsKilo", "priceKilo", "registrationDate", "estado"};
+    private static final int QUANTITY_EGGS = 0;
+    private static final int EGGS_KILO = 1;
+    private static final int PRICE_KILO = 2;
+    private static final int REGISTRATION_DATE = 3;
+    private static final int ESTADO = 4;
+
+    // Posición de cada columna de COLUMNS en el archivo (-1 si no está)
+    private final int[] positions = new int[COLUMNS.length];
+
+    private EggProductionCsvReader(List<String> header) {
+        for (int column = 0; column < COLUMNS.length; column++) {
+            positions[column] = -1;
+            for (int i = 0; i < header.size(); i++) {
+                if (COLUMNS[column].toLowerCase(Locale.ROOT).equals(header.get(i).trim().toLowerCase(Locale.ROOT))) {
+                    positions[column] = i;
+                }
+            }
+        }
+    }
+
+    static EggProductionCsvReader fromHeader(String header) {
+        // Excel suele guardar el CSV con BOM al inicio
+        String line = header.startsWith("\uFEFF") ? header.substring(1) : header;
+        EggProductionCsvReader reader = new EggProductionCsvReader(split(line));
+        if (reader.positions[QUANTITY_EGGS] < 0 || reader.positions[REGISTRATION_DATE] < 0) {
+            throw new IllegalArgumentException("el encabezado debe incluir quantityEggs y registrationDate");
+        }
+        return reader;
+    }
+
+    // Lanza IllegalArgumentException con el motivo si algún campo no tiene el formato esperado
+    EggProductionModel parse(String line) {
+        List<String> fields = split(line);
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(integer(fields, QUANTITY_EGGS));
+        model.setEggsKilo(integer(fields, EGGS_KILO));
+        String price = field(fields, PRICE_KILO);
+        if (price != null) {
+            try {
+                model.setPriceKilo(new BigDecimal(price));
+            } catch (NumberFormatException e) {
+                throw invalid(PRICE_KILO, price);
+            }
+        }
+        String date = field(fields, REGISTRATION_DATE);
+        if (date != null) {
+            try {
+                model.setRegistrationDate(LocalDate.parse(date));
+            } catch (DateTimeParseException e) {
+                throw invalid(REGISTRATION_DATE, date);
+            }
+        }
+        model.setEstado(field(fields, ESTADO));
+        return model;
+    }
+
+    private Integer integer(List<String> fields, int column) {
+        String value = field(fields, column);
+        if (value == null) return null;
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw invalid(column, value);
+        }
+    }
+
+    private String field(List<String> fields, int column) {
+        int position = positions[column];
+        if (position < 0 || position >= fields.size()) return null;
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static IllegalArgumentException invalid(int column, String value) {
+        return new IllegalArgumentException(COLUMNS[column] + " no es válido: " + value);
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
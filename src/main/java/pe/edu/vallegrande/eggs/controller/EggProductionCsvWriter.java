@@ -0,0 +1,60 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Escribe la exportación CSV directamente en los DataBuffers de la respuesta (ver EggProductionBufferWriter).
+ * Números, precios y fechas se escriben dígito a dígito, sin armar un String ni un modelo por fila.
+ */
+final class EggProductionCsvWriter extends EggProductionBufferWriter {
+
+    private static final byte[] HEADER = "id,quantityEggs,eggsKilo,priceKilo,registrationDate,estado\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+
+    EggProductionCsvWriter(DataBufferFactory bufferFactory, int chunkSize) {
+        super(bufferFactory, chunkSize);
+        current.write(HEADER);
+    }
+
+    // Si el rango no tiene filas el último bloque solo lleva el encabezado
+    @Override
+    protected void writeRow(Readable row) {
+        writeNumber(row.get("id", Integer.class));
+        current.write(SEPARATOR);
+        writeNumber(row.get("quantity_eggs", Integer.class));
+        current.write(SEPARATOR);
+        writeNumber(row.get("eggs_kilo", Integer.class));
+        current.write(SEPARATOR);
+        writeCents(row.get("price_cents", Long.class));
+        current.write(SEPARATOR);
+        writeDate(row.get("registration_date", LocalDate.class));
+        current.write(SEPARATOR);
+        writeText(row.get("estado", String.class));
+        current.write((byte) '\r').write((byte) '\n');
+    }
+
+    // Texto ASCII simple tal cual; con separadores, comillas, saltos de línea o no ASCII va entre comillas (RFC 4180)
+    private void writeText(String value) {
+        if (value == null) return;
+        boolean plain = true;
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            plain = c >= ' ' && c < 0x7f && c != ',' && c != '"';
+        }
+        if (plain) {
+            for (int i = 0; i < value.length(); i++) {
+                current.write((byte) value.charAt(i));
+            }
+            return;
+        }
+        current.write(QUOTE);
+        current.write(value.replace("\"", "\"\""), StandardCharsets.UTF_8);
+        current.write(QUOTE);
+    }
+}
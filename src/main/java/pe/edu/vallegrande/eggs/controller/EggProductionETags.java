@@ -0,0 +1,84 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ETags de los registros: la versión para un registro y un hash de (id, versión)
+ * para una página, así se responde 304 sin serializar ni transferir el cuerpo.
+ */
+final class EggProductionETags {
+
+    private EggProductionETags() {
+    }
+
+    static String of(EggProductionModel model) {
+        return "\"" + (model.getVersion() != null ? model.getVersion() : 0) + "\"";
+    }
+
+    static String of(List<EggProductionModel> page) {
+        PageDigest digest = new PageDigest();
+        for (EggProductionModel model : page) {
+            digest.add(model.getId(), model.getVersion());
+        }
+        return digest.etag();
+    }
+
+    // El mismo hash armado fila por fila, para las páginas que no pasan por modelos (?fields=)
+    static final class PageDigest {
+
+        private final MessageDigest digest = sha256();
+        private final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+
+        void add(Integer id, Long version) {
+            buffer.clear();
+            buffer.putInt(id != null ? id : 0);
+            buffer.putLong(version != null ? version : 0);
+            digest.update(buffer.array());
+        }
+
+        String etag() {
+            return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        }
+    }
+
+    // If-None-Match usa comparación débil: se ignora el prefijo W/
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String current = weak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || weak(tag).equals(current)) return true;
+        }
+        return false;
+    }
+
+    // Versión indicada en If-Match; null si no se exige ninguna ("*" o sin cabecera)
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) return null;
+        String tag = weak(ifMatch.trim());
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (RuntimeException e) {
+            // Una ETag que no generamos nosotros nunca coincide
+            return -1L;
+        }
+    }
+
+    private static String weak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Escribe los listados con ?fields= como JSON directamente en los DataBuffers de la respuesta
+ * (ver EggProductionBufferWriter): solo los campos pedidos, con los mismos nombres y formatos que Jackson
+ * da a EggProductionModel. Un arreglo para las páginas o un objeto por línea para NDJSON.
+ */
+final class EggProductionJsonWriter extends EggProductionBufferWriter {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte QUOTE = '"';
+
+    private final EggProductionField[] fields;
+    // "id": , "quantityEggs": ... ya en bytes
+    private final byte[][] names;
+    private final boolean lines;
+    private boolean first = true;
+
+    EggProductionJsonWriter(DataBufferFactory bufferFactory, int chunkSize, Set<EggProductionField> fields,
+                            boolean lines) {
+        super(bufferFactory, chunkSize);
+        this.fields = fields.toArray(new EggProductionField[0]);
+        this.names = new byte[this.fields.length][];
+        for (int i = 0; i < this.fields.length; i++) {
+            names[i] = ("\"" + this.fields[i].getJsonName() + "\":").getBytes(StandardCharsets.US_ASCII);
+        }
+        this.lines = lines;
+        if (!lines) {
+            current.write((byte) '[');
+        }
+    }
+
+    @Override
+    protected void writeRow(Readable row) {
+        if (!lines && !first) {
+            current.write((byte) ',');
+        }
+        first = false;
+        current.write((byte) '{');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                current.write((byte) ',');
+            }
+            current.write(names[i]);
+            EggProductionField field = fields[i];
+            switch (field) {
+                case PRICE_KILO -> {
+                    Long cents = row.get(field.getColumn(), Long.class);
+                    if (cents != null) writeCents(cents); else current.write(NULL);
+                }
+                case REGISTRATION_DATE -> {
+                    LocalDate date = row.get(field.getColumn(), LocalDate.class);
+                    if (date != null) {
+                        current.write(QUOTE);
+                        writeDate(date);
+                        current.write(QUOTE);
+                    } else {
+                        current.write(NULL);
+                    }
+                }
+                case ESTADO -> writeText(row.get(field.getColumn(), String.class));
+                case VERSION -> writeNumberOrNull(row.get(field.getColumn(), Long.class));
+                default -> writeNumberOrNull(row.get(field.getColumn(), Integer.class));
+            }
+        }
+        current.write((byte) '}');
+        if (lines) {
+            current.write((byte) '\n');
+        }
+    }
+
+    @Override
+    protected void writeEnd() {
+        if (!lines) {
+            current.write((byte) ']');
+        }
+    }
+
+    private void writeNumberOrNull(Number value) {
+        if (value != null) writeNumber(value); else current.write(NULL);
+    }
+
+    // Texto ASCII simple tal cual; comillas, barras, caracteres de control y no ASCII se escapan
+    private void writeText(String value) {
+        if (value == null) {
+            current.write(NULL);
+            return;
+        }
+        current.write(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                current.write((byte) '\\').write((byte) c);
+            } else if (c >= ' ' && c < 0x7f) {
+                current.write((byte) c);
+            } else {
+                current.write(String.format("\\u%04x", (int) c), StandardCharsets.US_ASCII);
+            }
+        }
+        current.write(QUOTE);
+    }
+}
@@ -0,0 +1,29 @@
+package pe.edu.vallegrande.eggs.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento de la carga masiva: su posición en la entrada
+ * y el id generado, o el motivo por el que no se insertó.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EggProductionBatchResult {
+
+    private long index;
+    private Integer id;
+    private String error;
+
+    public static EggProductionBatchResult ok(long index, Integer id) {
+        return new EggProductionBatchResult(index, id, null);
+    }
+
+    public static EggProductionBatchResult failed(long index, String error) {
+        return new EggProductionBatchResult(index, null, error);
+    }
+}
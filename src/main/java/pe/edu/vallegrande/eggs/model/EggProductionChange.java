@@ -0,0 +1,15 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Estado de un registro antes y después de una actualización.
+ */
+@Data
+@AllArgsConstructor
+public class EggProductionChange {
+
+    private EggProductionModel before;
+    private EggProductionModel after;
+}
@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cambio de un registro que se publica en GET /egg-production/stream.
+ * Lo genera el trigger de V4 (LISTEN/NOTIFY) o el propio servicio si no hay PostgreSQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggProductionEvent {
+
+    public enum Type { CREATED, UPDATED, STATUS_CHANGED, DELETED }
+
+    private Type type;
+    private EggProductionModel record;
+}
@@ -0,0 +1,50 @@
+package pe.edu.vallegrande.eggs.model;
+
+/**
+ * Campo de un registro que se puede pedir con ?fields= en los listados: el nombre en el JSON
+ * y la expresión del SELECT que lo trae. El precio sale en céntimos enteros (price_cents),
+ * igual que en la exportación CSV, para no crear un BigDecimal por fila.
+ */
+public enum EggProductionField {
+    ID("id", "id", "id"),
+    QUANTITY_EGGS("quantityEggs", "quantity_eggs", "quantity_eggs"),
+    EGGS_KILO("eggsKilo", "eggs_kilo", "eggs_kilo"),
+    PRICE_KILO("priceKilo", "CAST(price_kilo * 100 AS BIGINT) AS price_cents", "price_cents"),
+    REGISTRATION_DATE("registrationDate", "registration_date", "registration_date"),
+    ESTADO("estado", "estado", "estado"),
+    VERSION("version", "version", "version");
+
+    private final String jsonName;
+    private final String select;
+    private final String column;
+
+    EggProductionField(String jsonName, String select, String column) {
+        this.jsonName = jsonName;
+        this.select = select;
+        this.column = column;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    // Expresión dentro del SELECT
+    public String getSelect() {
+        return select;
+    }
+
+    // Nombre con el que se lee la columna de la fila
+    public String getColumn() {
+        return column;
+    }
+
+    // null si el nombre no es un campo del registro
+    public static EggProductionField of(String jsonName) {
+        for (EggProductionField field : values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
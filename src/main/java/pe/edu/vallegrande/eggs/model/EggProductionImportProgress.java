@@ -0,0 +1,31 @@
+package pe.edu.vallegrande.eggs.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Avance de una importación CSV: una línea rechazada (line y error) o un resumen de las
+ * filas importadas y rechazadas hasta el momento; el último lleva done = true.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EggProductionImportProgress {
+
+    private Long line;
+    private String error;
+    private long imported;
+    private long rejected;
+    private boolean done;
+
+    public static EggProductionImportProgress rejected(long line, String error, long imported, long rejected) {
+        return new EggProductionImportProgress(line, error, imported, rejected, false);
+    }
+
+    public static EggProductionImportProgress progress(long imported, long rejected, boolean done) {
+        return new EggProductionImportProgress(null, null, imported, rejected, done);
+    }
+}
@@ -2,6 +2,7 @@ package pe.edu.vallegrande.eggs.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -12,6 +13,10 @@ import java.time.LocalDate;
 @Table("egg_production")
 public class EggProductionModel {
 
+    // Fechas de registro admitidas: acotan la serie diaria en memoria (EggProductionTimeSeries)
+    public static final LocalDate MIN_REGISTRATION_DATE = LocalDate.of(2000, 1, 1);
+    public static final LocalDate MAX_REGISTRATION_DATE = LocalDate.of(2099, 12, 31);
+
     @Id
     private Integer id;
 
@@ -29,4 +34,9 @@ public class EggProductionModel {
 
     @Column("estado")
     private String estado;
+
+    // Se incrementa en cada escritura; sirve de ETag y para el bloqueo optimista
+    @Version
+    @Column("version")
+    private Long version;
 }
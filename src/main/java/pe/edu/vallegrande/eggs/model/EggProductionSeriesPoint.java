@@ -0,0 +1,19 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Valor de una ventana móvil que termina en date; null si la ventana no tiene datos (price_kilo sin kilos).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggProductionSeriesPoint {
+
+    private LocalDate date;
+    private Double value;
+}
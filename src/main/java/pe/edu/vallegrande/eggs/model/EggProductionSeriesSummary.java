@@ -0,0 +1,27 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen de una métrica en un rango de fechas (solo registros activos).
+ * days cuenta los días con producción; average, min y max se calculan sobre esos días.
+ * Para price_kilo no hay suma y el promedio está ponderado por los kilos vendidos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggProductionSeriesSummary {
+
+    private SeriesMetric metric;
+    private LocalDate from;
+    private LocalDate to;
+    private long days;
+    private Double sum;
+    private Double average;
+    private Double min;
+    private Double max;
+}
@@ -0,0 +1,30 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Acumulado de producción de un día o de un mes (solo registros activos).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggProductionStatsModel {
+
+    private LocalDate periodStart;
+    private long records;
+    private long totalEggs;
+    private long totalKilos;
+    private BigDecimal revenue;
+
+    // Precio por kilo promedio ponderado por los kilos vendidos
+    public BigDecimal getAveragePriceKilo() {
+        if (totalKilos == 0 || revenue == null) return BigDecimal.ZERO;
+        return revenue.divide(BigDecimal.valueOf(totalKilos), 2, RoundingMode.HALF_UP);
+    }
+}
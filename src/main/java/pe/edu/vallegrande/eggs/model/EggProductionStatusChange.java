@@ -0,0 +1,19 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cambio de estado masivo: se indica el nuevo estado y, o bien la lista de ids,
+ * o bien el rango de fechas de registro (ambos extremos incluidos).
+ */
+@Data
+public class EggProductionStatusChange {
+
+    private String estado;
+    private List<Integer> ids;
+    private LocalDate from;
+    private LocalDate to;
+}
@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.eggs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cantidad de registros que cambiaron de estado.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggProductionStatusResult {
+
+    private long affected;
+}
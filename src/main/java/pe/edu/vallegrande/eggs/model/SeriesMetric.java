@@ -0,0 +1,17 @@
+package pe.edu.vallegrande.eggs.model;
+
+/**
+ * Columna de la serie diaria en memoria sobre la que se calculan las consultas analíticas.
+ * Los montos (revenue y price_kilo) se guardan en céntimos y se devuelven en soles.
+ */
+public enum SeriesMetric {
+    RECORDS,
+    EGGS,
+    KILOS,
+    REVENUE,
+    PRICE_KILO;
+
+    public boolean isMoney() {
+        return this == REVENUE || this == PRICE_KILO;
+    }
+}
@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.eggs.model;
+
+import java.time.LocalDate;
+
+/**
+ * Nivel de agregación de las estadísticas de producción.
+ */
+public enum StatsGranularity {
+    DAY,
+    MONTH;
+
+    // Inicio del periodo al que pertenece una fecha
+    public LocalDate periodStart(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+}
@@ -0,0 +1,71 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Mantenimiento de la tabla particionada egg_production (V5): particiones mensuales y archivo de registros
+ * en egg_production_archive. Solo PostgreSQL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EggProductionArchiveRepository {
+
+    private static final String COLUMNS =
+            "id, quantity_eggs, eggs_kilo, price_kilo, registration_date, estado, version, inactivated_at";
+
+    // SKIP LOCKED: otra instancia archivando a la vez, o una escritura en curso, no bloquean la tanda
+    private static final String MOVE_PREFIX =
+            "WITH moved AS (" +
+            "DELETE FROM egg_production WHERE id IN (" +
+            "SELECT id FROM egg_production WHERE (estado = 'I' AND inactivated_at < :inactiveBefore)";
+
+    private static final String MOVE_OLD = " OR registration_date < :retainFrom";
+
+    // Si el id ya estaba archivado (se restauró y volvió a archivarse) gana la copia que sale de egg_production
+    private static final String MOVE_SUFFIX =
+            " LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING " + COLUMNS + ") " +
+            "INSERT INTO egg_production_archive (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM moved " +
+            "ON CONFLICT (id) DO UPDATE SET quantity_eggs = EXCLUDED.quantity_eggs, " +
+            "eggs_kilo = EXCLUDED.eggs_kilo, price_kilo = EXCLUDED.price_kilo, " +
+            "registration_date = EXCLUDED.registration_date, estado = EXCLUDED.estado, " +
+            "version = EXCLUDED.version, inactivated_at = EXCLUDED.inactivated_at, archived_at = now() " +
+            "RETURNING id";
+
+    private final DatabaseClient databaseClient;
+
+    // Crea las particiones que falten (mes actual y monthsAhead siguientes); devuelve cuántas creó
+    public Mono<Integer> ensurePartitions(int monthsAhead) {
+        return databaseClient.sql("SELECT egg_production_ensure_partitions(:monthsAhead) AS created")
+                .bind("monthsAhead", monthsAhead)
+                .map(row -> row.get("created", Integer.class))
+                .one();
+    }
+
+    /**
+     * Mueve a egg_production_archive hasta limit registros inactivos desde antes de inactiveBefore y,
+     * con retainFrom, también los registrados antes de esa fecha. Devuelve los ids movidos.
+     * Debe correr dentro de una transacción: el movimiento no se avisa al feed en vivo (V5).
+     */
+    public Flux<Integer> archiveBatch(Instant inactiveBefore, LocalDate retainFrom, int limit) {
+        String sql = MOVE_PREFIX + (retainFrom != null ? MOVE_OLD : "") + MOVE_SUFFIX;
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("inactiveBefore", inactiveBefore)
+                .bind("limit", limit);
+        if (retainFrom != null) {
+            spec = spec.bind("retainFrom", retainFrom);
+        }
+        Flux<Integer> moved = spec.map(row -> row.get("id", Integer.class)).all();
+        return databaseClient.sql("SELECT set_config('egg_production.notify', 'off', true)")
+                .then()
+                .thenMany(moved);
+    }
+}
@@ -0,0 +1,38 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import io.r2dbc.spi.Readable;
+import pe.edu.vallegrande.eggs.model.EggProductionChange;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Consultas que no se pueden expresar como métodos derivados de Spring Data.
+ */
+public interface EggProductionCustomRepository {
+
+    // Inserta todas las filas en un solo INSERT multi-fila y devuelve los modelos con su id generado
+    Flux<EggProductionModel> insertAll(List<EggProductionModel> models);
+
+    // Actualiza la fila en un solo UPDATE (solo si coincide la versión, cuando se indica)
+    // y devuelve cómo estaba antes y cómo quedó; vacío si no existe o la versión no coincide
+    Mono<EggProductionChange> updateVersioned(Integer id, EggProductionModel model, Long expectedVersion);
+
+    // Borra la fila en un solo DELETE y devuelve cómo estaba al borrarla; vacío si ya no existía
+    Mono<EggProductionModel> deleteReturningById(Integer id);
+
+    // Recorre las filas del rango de fechas de registro (por fecha e id) sin armar modelos: cada fila se entrega
+    // a rowWriter mientras está vigente. Columnas: id, quantity_eggs, eggs_kilo, price_cents, registration_date, estado
+    <T> Flux<T> exportRange(LocalDate from, LocalDate to, Function<? super Readable, T> rowWriter);
+
+    // SELECT de solo las columnas de fields, ordenado por id, sin armar modelos (igual que exportRange).
+    // Filtros opcionales (null = sin filtro): rango de fecha de registro, estado, cursor after y limit
+    <T> Flux<T> findFields(Set<EggProductionField> fields, LocalDate from, LocalDate to, String estado,
+                           Integer after, Integer limit, Function<? super Readable, T> rowWriter);
+}
@@ -0,0 +1,163 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.eggs.model.EggProductionChange;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public class EggProductionCustomRepositoryImpl implements EggProductionCustomRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO egg_production (quantity_eggs, eggs_kilo, price_kilo, registration_date, estado) VALUES ";
+
+    // El SELECT ... FOR UPDATE bloquea la fila y lee su última versión antes de modificarla
+    private static final String UPDATE_VERSIONED =
+            "WITH old AS (" +
+            "SELECT id, quantity_eggs, eggs_kilo, price_kilo, registration_date, estado, version " +
+            "FROM egg_production WHERE id = :id FOR UPDATE) " +
+            "UPDATE egg_production e SET quantity_eggs = :quantityEggs, eggs_kilo = :eggsKilo, " +
+            "price_kilo = :priceKilo, registration_date = :registrationDate, estado = :estado, " +
+            "version = old.version + 1 " +
+            "FROM old WHERE e.id = old.id%s " +
+            "RETURNING e.id, e.quantity_eggs, e.eggs_kilo, e.price_kilo, e.registration_date, e.estado, e.version, " +
+            "old.quantity_eggs AS old_quantity_eggs, old.eggs_kilo AS old_eggs_kilo, " +
+            "old.price_kilo AS old_price_kilo, old.registration_date AS old_registration_date, " +
+            "old.estado AS old_estado, old.version AS old_version";
+
+    // Lo que devuelve es la fila que borró esta sentencia: dos DELETE a la vez no la devuelven los dos
+    private static final String DELETE_RETURNING =
+            "DELETE FROM egg_production WHERE id = :id " +
+            "RETURNING quantity_eggs, eggs_kilo, price_kilo, registration_date, estado, version";
+
+    // El precio sale como céntimos enteros (NUMERIC(10, 2) * 100) para no crear un BigDecimal por fila
+    private static final String EXPORT_RANGE =
+            "SELECT id, quantity_eggs, eggs_kilo, CAST(price_kilo * 100 AS BIGINT) AS price_cents, registration_date, estado " +
+            "FROM egg_production WHERE registration_date BETWEEN :from AND :to " +
+            "ORDER BY registration_date, id";
+
+    // Filas que PostgreSQL envía por cada vuelta del cursor: acota la memoria sin importar el rango
+    private static final int EXPORT_FETCH_SIZE = 1_000;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<EggProductionModel> insertAll(List<EggProductionModel> models) {
+        if (models.isEmpty()) {
+            return Flux.empty();
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < models.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:q").append(i).append(", :k").append(i).append(", :p").append(i)
+                    .append(", :d").append(i).append(", :e").append(i).append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < models.size(); i++) {
+            EggProductionModel model = models.get(i);
+            spec = bind(spec, "q" + i, model.getQuantityEggs(), Integer.class);
+            spec = bind(spec, "k" + i, model.getEggsKilo(), Integer.class);
+            spec = bind(spec, "p" + i, model.getPriceKilo(), BigDecimal.class);
+            spec = bind(spec, "d" + i, model.getRegistrationDate(), LocalDate.class);
+            spec = bind(spec, "e" + i, model.getEstado(), String.class);
+        }
+
+        // Los ids generados llegan en el mismo orden de las filas del VALUES
+        return spec.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .all()
+                .zipWithIterable(models, (id, model) -> {
+                    model.setId(id);
+                    model.setVersion(0L);
+                    return model;
+                });
+    }
+
+    @Override
+    public Mono<EggProductionChange> updateVersioned(Integer id, EggProductionModel model, Long expectedVersion) {
+        String sql = String.format(UPDATE_VERSIONED, expectedVersion != null ? " AND old.version = :version" : "");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", id);
+        spec = bind(spec, "quantityEggs", model.getQuantityEggs(), Integer.class);
+        spec = bind(spec, "eggsKilo", model.getEggsKilo(), Integer.class);
+        spec = bind(spec, "priceKilo", model.getPriceKilo(), BigDecimal.class);
+        spec = bind(spec, "registrationDate", model.getRegistrationDate(), LocalDate.class);
+        spec = bind(spec, "estado", model.getEstado(), String.class);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        return spec.map(row -> new EggProductionChange(map(row, id, "old_"), map(row, id, "")))
+                .one();
+    }
+
+    @Override
+    public Mono<EggProductionModel> deleteReturningById(Integer id) {
+        return databaseClient.sql(DELETE_RETURNING)
+                .bind("id", id)
+                .map(row -> map(row, id, ""))
+                .one();
+    }
+
+    @Override
+    public <T> Flux<T> exportRange(LocalDate from, LocalDate to, Function<? super Readable, T> rowWriter) {
+        return databaseClient.sql(EXPORT_RANGE)
+                .bind("from", from)
+                .bind("to", to)
+                .filter(statement -> statement.fetchSize(EXPORT_FETCH_SIZE))
+                .map(rowWriter::apply)
+                .all();
+    }
+
+    @Override
+    public <T> Flux<T> findFields(Set<EggProductionField> fields, LocalDate from, LocalDate to, String estado,
+                                  Integer after, Integer limit, Function<? super Readable, T> rowWriter) {
+        StringJoiner columns = new StringJoiner(", ");
+        fields.forEach(field -> columns.add(field.getSelect()));
+        StringJoiner conditions = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (from != null && to != null) conditions.add("registration_date BETWEEN :from AND :to");
+        if (estado != null) conditions.add("estado = :estado");
+        if (after != null) conditions.add("id > :after");
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM egg_production")
+                .append(conditions).append(" ORDER BY id");
+        if (limit != null) sql.append(" LIMIT :limit");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        if (from != null && to != null) spec = spec.bind("from", from).bind("to", to);
+        if (estado != null) spec = spec.bind("estado", estado);
+        if (after != null) spec = spec.bind("after", after);
+        if (limit != null) spec = spec.bind("limit", limit);
+        // Sin limit es un flujo completo: se lee por bloques como en la exportación
+        return spec.filter(statement -> limit == null ? statement.fetchSize(EXPORT_FETCH_SIZE) : statement)
+                .map(rowWriter::apply)
+                .all();
+    }
+
+    private static EggProductionModel map(Readable row, Integer id, String prefix) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(id);
+        model.setQuantityEggs(row.get(prefix + "quantity_eggs", Integer.class));
+        model.setEggsKilo(row.get(prefix + "eggs_kilo", Integer.class));
+        model.setPriceKilo(row.get(prefix + "price_kilo", BigDecimal.class));
+        model.setRegistrationDate(row.get(prefix + "registration_date", LocalDate.class));
+        model.setEstado(row.get(prefix + "estado", String.class));
+        model.setVersion(row.get(prefix + "version", Long.class));
+        return model;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String name, Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
@@ -0,0 +1,70 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Respuestas guardadas por Idempotency-Key en egg_production_idempotency (V6).
+ */
+@Repository
+@RequiredArgsConstructor
+public class EggProductionIdempotencyRepository {
+
+    private final DatabaseClient databaseClient;
+
+    // Respuesta guardada después de notBefore; vacío si no hay, ya venció o sigue pendiente
+    public Mono<StoredResponse> find(String subject, String key, Instant notBefore) {
+        return databaseClient.sql("SELECT fingerprint, response FROM egg_production_idempotency " +
+                        "WHERE subject = :subject AND idempotency_key = :key AND created_at >= :notBefore " +
+                        "AND response IS NOT NULL")
+                .bind("subject", subject)
+                .bind("key", key)
+                .bind("notBefore", notBefore)
+                .map(row -> new StoredResponse(row.get("fingerprint", String.class), row.get("response", String.class)))
+                .one();
+    }
+
+    /**
+     * Reserva la clave con una fila pendiente (sin respuesta), o toma una vencida antes de notBefore; false si ya
+     * es de otra petición. Si otra transacción la reservó y no terminó, Postgres espera a que confirme o deshaga.
+     */
+    public Mono<Boolean> claim(String subject, String key, String fingerprint, Instant notBefore) {
+        return databaseClient.sql("INSERT INTO egg_production_idempotency (subject, idempotency_key, fingerprint) " +
+                        "VALUES (:subject, :key, :fingerprint) " +
+                        "ON CONFLICT (subject, idempotency_key) DO UPDATE " +
+                        "SET fingerprint = EXCLUDED.fingerprint, response = NULL, created_at = now() " +
+                        "WHERE egg_production_idempotency.created_at < :notBefore " +
+                        "RETURNING idempotency_key")
+                .bind("subject", subject)
+                .bind("key", key)
+                .bind("fingerprint", fingerprint)
+                .bind("notBefore", notBefore)
+                .map(row -> Boolean.TRUE)
+                .one()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    // Respuesta de la clave reservada; en la misma transacción que la escritura
+    public Mono<Void> complete(String subject, String key, String response) {
+        return databaseClient.sql("UPDATE egg_production_idempotency SET response = :response " +
+                        "WHERE subject = :subject AND idempotency_key = :key")
+                .bind("subject", subject)
+                .bind("key", key)
+                .bind("response", response)
+                .then();
+    }
+
+    public Mono<Long> deleteOlderThan(Instant before) {
+        return databaseClient.sql("DELETE FROM egg_production_idempotency WHERE created_at < :before")
+                .bind("before", before)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public record StoredResponse(String fingerprint, String response) {
+    }
+}
@@ -1,13 +1,56 @@
 package pe.edu.vallegrande.eggs.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import pe.edu.vallegrande.eggs.model.EggProductionModel;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
 
 @Repository
-public interface EggProductionRepository extends ReactiveCrudRepository<EggProductionModel, Integer> {
+public interface EggProductionRepository extends ReactiveCrudRepository<EggProductionModel, Integer>, EggProductionCustomRepository {
     Flux<EggProductionModel> findAllByOrderByIdAsc();
     Flux<EggProductionModel> findAllByEstadoOrderByIdAsc(String estado);
 
+    // Paginación por cursor (keyset): filas con id mayor al último recibido
+    Flux<EggProductionModel> findByIdGreaterThanOrderByIdAsc(Integer after, Pageable pageable);
+    Flux<EggProductionModel> findByEstadoAndIdGreaterThanOrderByIdAsc(String estado, Integer after, Pageable pageable);
+
+    // Rango de fechas de registro: usan los índices sobre registration_date (V3)
+    Flux<EggProductionModel> findByRegistrationDateBetweenOrderByIdAsc(LocalDate from, LocalDate to);
+    Flux<EggProductionModel> findByEstadoAndRegistrationDateBetweenOrderByIdAsc(String estado, LocalDate from, LocalDate to);
+    Flux<EggProductionModel> findByRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(
+            LocalDate from, LocalDate to, Integer after, Pageable pageable);
+    Flux<EggProductionModel> findByEstadoAndRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(
+            String estado, LocalDate from, LocalDate to, Integer after, Pageable pageable);
+
+    // Cambios de estado en una sola sentencia: solo devuelven las filas que realmente cambiaron
+    @Query("UPDATE egg_production SET estado = 'I', version = version + 1 WHERE id = :id AND estado = 'A' RETURNING *")
+    Mono<EggProductionModel> inactivateById(Integer id);
+
+    @Query("UPDATE egg_production SET estado = 'A', version = version + 1 WHERE id = :id AND estado IS DISTINCT FROM 'A' RETURNING *")
+    Mono<EggProductionModel> activateById(Integer id);
+
+    @Query("UPDATE egg_production SET estado = 'I', version = version + 1 WHERE id IN (:ids) AND estado = 'A' RETURNING *")
+    Flux<EggProductionModel> inactivateByIds(Collection<Integer> ids);
+
+    @Query("UPDATE egg_production SET estado = 'A', version = version + 1 WHERE id IN (:ids) AND estado IS DISTINCT FROM 'A' RETURNING *")
+    Flux<EggProductionModel> activateByIds(Collection<Integer> ids);
+
+    // Por rango de fechas se cambia de a bloques de chunkSize filas (las cambiadas ya no entran en el siguiente)
+    @Query("UPDATE egg_production SET estado = 'I', version = version + 1 " +
+           "WHERE registration_date BETWEEN :from AND :to AND id IN (SELECT id FROM egg_production " +
+           "WHERE registration_date BETWEEN :from AND :to AND estado = 'A' ORDER BY id LIMIT :chunkSize) RETURNING *")
+    Flux<EggProductionModel> inactivateByRegistrationDateBetween(LocalDate from, LocalDate to, int chunkSize);
+
+    @Query("UPDATE egg_production SET estado = 'A', version = version + 1 " +
+           "WHERE registration_date BETWEEN :from AND :to AND id IN (SELECT id FROM egg_production " +
+           "WHERE registration_date BETWEEN :from AND :to AND estado IS DISTINCT FROM 'A' ORDER BY id LIMIT :chunkSize) " +
+           "RETURNING *")
+    Flux<EggProductionModel> activateByRegistrationDateBetween(LocalDate from, LocalDate to, int chunkSize);
+
 }
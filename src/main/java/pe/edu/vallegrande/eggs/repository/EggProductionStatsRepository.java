@@ -0,0 +1,99 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Acceso a la tabla egg_production_stats (clave compuesta granularidad + inicio de periodo).
+ */
+@Repository
+@RequiredArgsConstructor
+public class EggProductionStatsRepository {
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO egg_production_stats AS s " +
+            "(granularity, period_start, record_count, total_eggs, total_kilos, total_revenue) VALUES ";
+
+    private static final String UPSERT_SUFFIX =
+            " ON CONFLICT (granularity, period_start) DO UPDATE SET " +
+            "record_count = s.record_count + EXCLUDED.record_count, " +
+            "total_eggs = s.total_eggs + EXCLUDED.total_eggs, " +
+            "total_kilos = s.total_kilos + EXCLUDED.total_kilos, " +
+            "total_revenue = s.total_revenue + EXCLUDED.total_revenue";
+
+    private static final String SELECT_RANGE =
+            "SELECT period_start, record_count, total_eggs, total_kilos, total_revenue " +
+            "FROM egg_production_stats " +
+            "WHERE granularity = :granularity AND period_start BETWEEN :from AND :to AND record_count > 0 " +
+            "ORDER BY period_start";
+
+    private static final String SELECT_ALL =
+            "SELECT period_start, record_count, total_eggs, total_kilos, total_revenue " +
+            "FROM egg_production_stats " +
+            "WHERE granularity = :granularity AND record_count > 0 " +
+            "ORDER BY period_start";
+
+    private final DatabaseClient databaseClient;
+
+    // Suma (o resta, con valores negativos) los deltas de varios periodos en una sola sentencia
+    public Mono<Void> accumulate(StatsGranularity granularity, List<EggProductionStatsModel> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+        for (int i = 0; i < deltas.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:g, :d").append(i).append(", :c").append(i).append(", :e").append(i)
+                    .append(", :k").append(i).append(", :r").append(i).append(')');
+        }
+        sql.append(UPSERT_SUFFIX);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("g", granularity.name());
+        for (int i = 0; i < deltas.size(); i++) {
+            EggProductionStatsModel delta = deltas.get(i);
+            spec = spec.bind("d" + i, delta.getPeriodStart())
+                    .bind("c" + i, delta.getRecords())
+                    .bind("e" + i, delta.getTotalEggs())
+                    .bind("k" + i, delta.getTotalKilos())
+                    .bind("r" + i, delta.getRevenue());
+        }
+        return spec.then();
+    }
+
+    public Flux<EggProductionStatsModel> findRange(StatsGranularity granularity, LocalDate from, LocalDate to) {
+        return databaseClient.sql(SELECT_RANGE)
+                .bind("granularity", granularity.name())
+                .bind("from", from)
+                .bind("to", to)
+                .map(EggProductionStatsRepository::toModel)
+                .all();
+    }
+
+    // Todos los periodos con registros, en orden; se lee como flujo para no cargar la tabla de una vez
+    public Flux<EggProductionStatsModel> findAll(StatsGranularity granularity) {
+        return databaseClient.sql(SELECT_ALL)
+                .bind("granularity", granularity.name())
+                .map(EggProductionStatsRepository::toModel)
+                .all();
+    }
+
+    private static EggProductionStatsModel toModel(Readable row) {
+        return new EggProductionStatsModel(
+                row.get("period_start", LocalDate.class),
+                row.get("record_count", Long.class),
+                row.get("total_eggs", Long.class),
+                row.get("total_kilos", Long.class),
+                row.get("total_revenue", BigDecimal.class));
+    }
+}
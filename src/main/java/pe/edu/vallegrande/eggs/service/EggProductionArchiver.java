@@ -0,0 +1,136 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.repository.EggProductionArchiveRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Mantenimiento periódico de la tabla particionada (V5), cada egg-production.archive.interval:
+ * - Crea las particiones mensuales que falten: las de los próximos partitions-ahead meses y las de
+ *   fechas que hayan caído en egg_production_default.
+ * - Mueve a egg_production_archive los registros inactivos desde hace más de inactive-after y, si
+ *   retention no es 0, los registrados antes de esa antigüedad. Va por tandas de batch-size, cada una
+ *   en su transacción y solo con una conexión libre en el pool (ver ConnectionPoolThrottle).
+ * Los registros archivados salen de la API, pero siguen en egg_production_stats y en la serie diaria:
+ * son parte del histórico. Con varias instancias cada una toma filas distintas (SKIP LOCKED).
+ */
+@Slf4j
+@Component
+public class EggProductionArchiver {
+
+    static final String METRIC = "eggProduction.archive.rows";
+
+    private final EggProductionArchiveRepository repository;
+    private final TransactionalOperator transactionalOperator;
+    private final EggProductionCache cache;
+    private final ConnectionPoolThrottle poolThrottle;
+    private final EggProductionProperties.Archive config;
+    private final Clock clock;
+    private final Counter archived;
+    private Disposable schedule;
+
+    @Autowired
+    public EggProductionArchiver(EggProductionArchiveRepository repository, TransactionalOperator transactionalOperator,
+                                 EggProductionCache cache, ConnectionPoolThrottle poolThrottle,
+                                 EggProductionProperties properties, MeterRegistry meterRegistry) {
+        this(repository, transactionalOperator, cache, poolThrottle, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    EggProductionArchiver(EggProductionArchiveRepository repository, TransactionalOperator transactionalOperator,
+                          EggProductionCache cache, ConnectionPoolThrottle poolThrottle,
+                          EggProductionProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.repository = repository;
+        this.transactionalOperator = transactionalOperator;
+        this.cache = cache;
+        this.poolThrottle = poolThrottle;
+        this.config = properties.getArchive();
+        this.clock = clock;
+        this.archived = meterRegistry.counter(METRIC);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (schedule != null || !config.isEnabled()) {
+            return;
+        }
+        schedule = Flux.interval(Duration.ZERO, config.getInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> run(), 0)
+                .subscribe();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void close() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    // Una pasada completa; devuelve cuántos registros archivó. Un error se registra y espera a la siguiente
+    public Mono<Long> run() {
+        long start = System.nanoTime();
+        return repository.ensurePartitions(config.getPartitionsAhead())
+                .doOnNext(created -> {
+                    if (created > 0) {
+                        log.info("Particiones mensuales creadas: {}", created);
+                    }
+                })
+                .then(archive())
+                .doOnNext(moved -> {
+                    if (moved > 0) {
+                        log.info("Registros archivados: {} en {} ms", moved, (System.nanoTime() - start) / 1_000_000);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("No se pudo completar el archivo de registros: {}", e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    // Tandas hasta que una venga incompleta: ya no quedan candidatos (o los demás están bloqueados)
+    Mono<Long> archive() {
+        return Mono.defer(() -> {
+            Instant now = clock.instant();
+            Instant inactiveBefore = now.minus(config.getInactiveAfter());
+            LocalDate retainFrom = config.getRetention().isZero()
+                    ? null
+                    : LocalDate.ofInstant(now, clock.getZone()).minus(config.getRetention());
+            int batchSize = Math.max(1, config.getBatchSize());
+            return batch(inactiveBefore, retainFrom, batchSize)
+                    .expand(moved -> moved == batchSize ? batch(inactiveBefore, retainFrom, batchSize) : Mono.empty())
+                    .reduce(0L, Long::sum);
+        });
+    }
+
+    private Mono<Integer> batch(Instant inactiveBefore, LocalDate retainFrom, int batchSize) {
+        // Se espera fuera de la transacción, sin tener ya una conexión tomada
+        return poolThrottle.awaitIdleConnection()
+                .then(repository.archiveBatch(inactiveBefore, retainFrom, batchSize)
+                        .collectList()
+                        .as(transactionalOperator::transactional))
+                .map(ids -> {
+                    if (!ids.isEmpty()) {
+                        cache.invalidateAll();
+                        archived.increment(ids.size());
+                    }
+                    return ids.size();
+                });
+    }
+}
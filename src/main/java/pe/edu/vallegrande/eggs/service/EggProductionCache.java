@@ -0,0 +1,87 @@
+package pe.edu.vallegrande.eggs.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché acotada (tamaño + TTL) delante de EggProductionRepository.
+ * Las lecturas guardan el resultado solo si no hubo escrituras mientras consultaban,
+ * así una consulta lenta no vuelve a cachear un valor que ya fue invalidado.
+ * Aciertos, fallos y desalojos se publican como métricas "cache.*".
+ */
+@Component
+public class EggProductionCache {
+
+    private final Cache<Integer, EggProductionModel> records;
+    private final Cache<String, List<EggProductionModel>> activePages;
+    private final AtomicLong generation = new AtomicLong();
+
+    public EggProductionCache(EggProductionProperties properties, MeterRegistry meterRegistry) {
+        EggProductionProperties.Cache config = properties.getCache();
+        this.records = Caffeine.newBuilder()
+                .maximumSize(config.getMaxRecords())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        this.activePages = Caffeine.newBuilder()
+                .maximumSize(config.getMaxActivePages())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, records, "eggProduction.records");
+        CaffeineCacheMetrics.monitor(meterRegistry, activePages, "eggProduction.activePages");
+    }
+
+    // Marca de tiempo lógica que se toma antes de consultar la base de datos
+    public long generation() {
+        return generation.get();
+    }
+
+    public EggProductionModel getRecord(Integer id) {
+        return records.getIfPresent(id);
+    }
+
+    public void putRecord(long readGeneration, EggProductionModel model) {
+        if (readGeneration == generation.get()) {
+            records.put(model.getId(), model);
+        }
+    }
+
+    public List<EggProductionModel> getActivePage(String key) {
+        return activePages.getIfPresent(key);
+    }
+
+    public void putActivePage(long readGeneration, String key, List<EggProductionModel> page) {
+        if (readGeneration == generation.get()) {
+            activePages.put(key, page);
+        }
+    }
+
+    // Se llama después de confirmar una escritura sobre el registro
+    public void invalidate(Integer id) {
+        generation.incrementAndGet();
+        records.invalidate(id);
+        activePages.invalidateAll();
+    }
+
+    // Un registro nuevo no está en caché todavía, pero sí puede cambiar las páginas de activos
+    public void invalidateActivePages() {
+        generation.incrementAndGet();
+        activePages.invalidateAll();
+    }
+
+    // Para escrituras que afectan a muchos registros a la vez
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        records.invalidateAll();
+        activePages.invalidateAll();
+    }
+}
@@ -0,0 +1,157 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.config.ReactiveMetrics;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Cola de altas para el modo write-behind (egg-production.write-behind).
+ * Junta las altas que llegan en ráfaga y las vacía de a una tanda a la vez con la función
+ * que registra EggProductionService (un INSERT multi-fila y una transacción por tanda);
+ * cada llamador recibe su propio registro con el id generado.
+ * Mientras se vacía una tanda, la siguiente se sigue llenando; la cola está acotada y,
+ * llena, rechaza con RejectedExecutionException (503 en la API).
+ * Al apagar espera hasta shutdown-timeout a que se inserte lo encolado, antes de que se cierre el pool.
+ */
+@Slf4j
+@Component
+public class EggProductionCreateBatcher {
+
+    static final String BATCH_SIZE_METRIC = "eggProduction.writeBehind.batch.size";
+    static final String FLUSH_METRIC = "eggProduction.writeBehind.flush";
+    static final String QUEUED_METRIC = "eggProduction.writeBehind.queued";
+    static final String REJECTED_METRIC = "eggProduction.writeBehind.rejected";
+
+    private final EggProductionProperties.WriteBehind config;
+    private final MeterRegistry meterRegistry;
+    private final Sinks.Many<Pending> sink = Sinks.many().unicast()
+            .onBackpressureBuffer(Queues.<Pending>unboundedMultiproducer().get());
+    // Altas aceptadas que todavía no terminan: las encoladas y las de la tanda en curso
+    private final AtomicInteger queued = new AtomicInteger();
+    private final DistributionSummary batchSize;
+    private final Counter rejected;
+
+    private Function<List<EggProductionModel>, Mono<List<EggProductionModel>>> inserter;
+    private Disposable worker;
+    private CountDownLatch drained;
+
+    public EggProductionCreateBatcher(EggProductionProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getWriteBehind();
+        this.meterRegistry = meterRegistry;
+        this.batchSize = DistributionSummary.builder(BATCH_SIZE_METRIC).register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC).register(meterRegistry);
+        Gauge.builder(QUEUED_METRIC, queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    // Sin demanda (concatMap sin prefetch) la tanda siguiente crece hasta max-batch-size mientras se vacía la actual
+    public synchronized void start(Function<List<EggProductionModel>, Mono<List<EggProductionModel>>> inserter) {
+        if (worker != null || !isEnabled()) {
+            return;
+        }
+        this.inserter = inserter;
+        CountDownLatch done = new CountDownLatch(1);
+        drained = done;
+        worker = sink.asFlux()
+                .bufferTimeout(Math.max(1, config.getMaxBatchSize()), config.getMaxDelay(), true)
+                .concatMap(this::flush, 0)
+                .doFinally(signal -> done.countDown())
+                .subscribe();
+    }
+
+    public Mono<EggProductionModel> submit(EggProductionModel model) {
+        return Mono.create(caller -> {
+            if (queued.incrementAndGet() > config.getQueueCapacity() || !emit(new Pending(model, caller))) {
+                queued.decrementAndGet();
+                rejected.increment();
+                caller.error(new RejectedExecutionException("La cola de altas está llena, intente nuevamente"));
+            }
+        });
+    }
+
+    /**
+     * Al apagar se dejan de aceptar altas y se vacía lo que ya estaba encolado. ContextClosedEvent llega antes
+     * de destruir los beans, así que la espera termina antes de que se cierre el pool de conexiones; la espera
+     * va fuera del lock para que las altas que siguen llegando se rechacen sin bloquearse.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void close() {
+        CountDownLatch done;
+        synchronized (this) {
+            sink.tryEmitComplete();
+            done = drained;
+        }
+        if (done == null) {
+            return;
+        }
+        try {
+            if (!done.await(config.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Se apagó con {} altas sin insertar después de esperar {}", queued.get(),
+                        config.getShutdownTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized boolean emit(Pending pending) {
+        return worker != null && sink.tryEmitNext(pending).isSuccess();
+    }
+
+    private Mono<Void> flush(List<Pending> batch) {
+        batchSize.record(batch.size());
+        return insert(batch)
+                // Si falla la tanda, cada alta se reintenta sola para que el error le llegue solo a quien corresponde
+                .onErrorResume(e -> batch.size() == 1
+                        ? fail(batch.get(0), e)
+                        : Flux.fromIterable(batch)
+                                .concatMap(pending -> insert(List.of(pending))
+                                        .onErrorResume(single -> fail(pending, single)))
+                                .then())
+                .doFinally(signal -> queued.addAndGet(-batch.size()));
+    }
+
+    private Mono<Void> insert(List<Pending> batch) {
+        List<EggProductionModel> models = batch.stream().map(Pending::model).toList();
+        return ReactiveMetrics.timed(Mono.defer(() -> inserter.apply(models)), meterRegistry, FLUSH_METRIC, Tags.empty())
+                .doOnNext(saved -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).caller().success(saved.get(i));
+                    }
+                })
+                .then();
+    }
+
+    private static Mono<Void> fail(Pending pending, Throwable error) {
+        pending.caller().error(error);
+        return Mono.empty();
+    }
+
+    private record Pending(EggProductionModel model, MonoSink<EggProductionModel> caller) {
+    }
+}
@@ -0,0 +1,85 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+
+/**
+ * Reparte los cambios de egg_production a los suscriptores del feed en vivo.
+ * La fuente es LISTEN/NOTIFY (EggProductionNotificationListener); sin PostgreSQL, o mientras
+ * esa conexión se recupera, el servicio publica sus propias escrituras.
+ * Cada suscriptor tiene un buffer acotado: un cliente lento pierde sus eventos más antiguos
+ * pero nunca frena la publicación ni a los demás.
+ */
+@Component
+public class EggProductionFeed {
+
+    static final String EVENTS_METRIC = "eggProduction.stream.events";
+    static final String DROPPED_METRIC = "eggProduction.stream.dropped";
+    static final String SUBSCRIBERS_METRIC = "eggProduction.stream.subscribers";
+
+    private final Sinks.Many<EggProductionEvent> sink = Sinks.many().multicast().directBestEffort();
+    private final int bufferSize;
+    private final Counter published;
+    private final Counter dropped;
+
+    private volatile boolean listening;
+
+    public EggProductionFeed(EggProductionProperties properties, MeterRegistry meterRegistry) {
+        this.bufferSize = Math.max(1, properties.getStream().getBufferSize());
+        this.published = Counter.builder(EVENTS_METRIC).register(meterRegistry);
+        this.dropped = Counter.builder(DROPPED_METRIC).register(meterRegistry);
+        Gauge.builder(SUBSCRIBERS_METRIC, sink, Sinks.Many::currentSubscriberCount).register(meterRegistry);
+    }
+
+    // El buffer pide todo al sink, así el sink nunca ve a un suscriptor sin demanda
+    public Flux<EggProductionEvent> subscribe() {
+        return sink.asFlux()
+                .onBackpressureBuffer(bufferSize, discarded -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    // Eventos confirmados en la base de datos (NOTIFY)
+    public synchronized void publish(EggProductionEvent event) {
+        if (sink.tryEmitNext(event).isSuccess()) {
+            published.increment();
+        }
+    }
+
+    // Escrituras del propio servicio: con LISTEN activo ya llegan por NOTIFY y saldrían duplicadas
+    public void publishLocal(EggProductionEvent.Type type, EggProductionModel record) {
+        if (!listening && record != null) {
+            publish(new EggProductionEvent(type, record));
+        }
+    }
+
+    public void publishLocal(EggProductionEvent.Type type, Collection<EggProductionModel> records) {
+        if (!listening && records != null) {
+            records.forEach(record -> publish(new EggProductionEvent(type, record)));
+        }
+    }
+
+    // Se cierra antes del apagado ordenado del servidor: si no, las conexiones SSE abiertas lo harían esperar
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void close() {
+        sink.tryEmitComplete();
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    public void setListening(boolean listening) {
+        this.listening = listening;
+    }
+}
@@ -0,0 +1,278 @@
+package pe.edu.vallegrande.eggs.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.repository.EggProductionIdempotencyRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key en las escrituras que los clientes reintentan (POST y PUT de un registro):
+ * - La primera petición reserva la clave en egg_production_idempotency (V6) y, en la misma transacción, hace
+ *   la escritura y guarda su resultado: o quedan las dos cosas o ninguna. Las que llegan mientras tanto con la
+ *   misma clave se unen a ella en esta instancia; en otra instancia la reserva espera a que la primera confirme
+ *   y responde con lo guardado (KeyInProgressException si aun así no hay resultado).
+ * - El resultado queda ttl en una caché acotada (max-keys) y en la tabla: los reintentos se responden desde
+ *   memoria, sin tocar la base de datos; después de un reinicio, o en otra instancia, con una lectura de la tabla.
+ * - La misma clave con otra petición (método, ruta o cuerpo canónico distintos, ver request) se rechaza con
+ *   KeyReusedException.
+ * - Un error deshace la reserva: la escritura no se hizo y el reintento la vuelve a intentar.
+ * Las claves son por usuario (el sub del JWT). eggProduction.idempotency{result=executed|joined|replayed|restored}
+ * cuenta las escrituras hechas y las respondidas sin repetirlas.
+ */
+@Slf4j
+@Component
+public class EggProductionIdempotency {
+
+    static final String METRIC = "eggProduction.idempotency";
+
+    private final EggProductionIdempotencyRepository repository;
+    private final TransactionalOperator transactionalOperator;
+    private final ConnectionPoolThrottle poolThrottle;
+    private final ObjectMapper objectMapper;
+    private final EggProductionProperties.Idempotency config;
+    private final Clock clock;
+    private final Cache<String, Completed> completed;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter joined;
+    private final Counter replayed;
+    private final Counter restored;
+    private Disposable purge;
+
+    @Autowired
+    public EggProductionIdempotency(EggProductionIdempotencyRepository repository,
+                                    TransactionalOperator transactionalOperator, ConnectionPoolThrottle poolThrottle,
+                                    ObjectMapper objectMapper, EggProductionProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this(repository, transactionalOperator, poolThrottle, objectMapper, properties, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    EggProductionIdempotency(EggProductionIdempotencyRepository repository, TransactionalOperator transactionalOperator,
+                             ConnectionPoolThrottle poolThrottle, ObjectMapper objectMapper,
+                             EggProductionProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.repository = repository;
+        this.transactionalOperator = transactionalOperator;
+        this.poolThrottle = poolThrottle;
+        this.objectMapper = objectMapper;
+        this.config = properties.getIdempotency();
+        this.clock = clock;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(config.getMaxKeys())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "eggProduction.idempotency");
+        this.executed = meterRegistry.counter(METRIC, "result", "executed");
+        this.joined = meterRegistry.counter(METRIC, "result", "joined");
+        this.replayed = meterRegistry.counter(METRIC, "result", "replayed");
+        this.restored = meterRegistry.counter(METRIC, "result", "restored");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (purge != null) {
+            return;
+        }
+        purge = Flux.interval(config.getPurgeInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> purge(), 0)
+                .subscribe();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void close() {
+        if (purge != null) {
+            purge.dispose();
+        }
+    }
+
+    /**
+     * Hace write una sola vez por clave. request describe la petición (ver request(String, EggProductionModel))
+     * y sirve para detectar una clave reutilizada con otra petición. write tiene que escribir en la transacción
+     * en curso (no en segundo plano) y dejar sus efectos para después: se corren solo si la transacción con la
+     * clave se confirma. Sin clave simplemente hace write en su propia transacción.
+     */
+    public Mono<EggProductionModel> execute(String key, String request, Supplier<Mono<EggProductionWrite>> write) {
+        if (key == null) {
+            return Mono.defer(write)
+                    .as(transactionalOperator::transactional)
+                    .doOnNext(done -> done.afterCommit().run())
+                    .map(EggProductionWrite::result);
+        }
+        String fingerprint = fingerprint(request);
+        return subject().flatMap(subject -> {
+            String id = subject + '\n' + key;
+            Completed done = completed.getIfPresent(id);
+            if (done != null) {
+                replayed.increment();
+                return replay(done, fingerprint);
+            }
+            boolean[] started = {false};
+            Flight flight = inFlight.compute(id, (k, current) -> {
+                if (current != null) {
+                    return current;
+                }
+                started[0] = true;
+                return new Flight(self -> repository.claim(subject, key, fingerprint, notBefore())
+                        .flatMap(claimed -> claimed
+                                ? written(subject, key, fingerprint, write)
+                                : stored(subject, key).switchIfEmpty(Mono.error(KeyInProgressException::new)))
+                        .as(transactionalOperator::transactional)
+                        // Ya confirmada: recién ahora caché, serie diaria y feed
+                        .doOnNext(executed -> {
+                            completed.put(k, executed.completed());
+                            executed.afterCommit().run();
+                        })
+                        .map(Executed::completed)
+                        .doFinally(signal -> inFlight.remove(k, self))
+                        .cache());
+            });
+            if (started[0]) {
+                // Suscrita aparte: la escritura llega al commit (o al rollback) aunque se desconecten todos los clientes
+                flight.result.subscribe(result -> { }, error -> { });
+            } else {
+                joined.increment();
+            }
+            return flight.result.flatMap(result -> replay(result, fingerprint));
+        });
+    }
+
+    // Borra de la tabla las claves vencidas, solo con una conexión libre en el pool
+    Mono<Long> purge() {
+        return poolThrottle.awaitIdleConnection()
+                .then(Mono.defer(() -> repository.deleteOlderThan(notBefore())))
+                .onErrorResume(e -> {
+                    log.warn("No se pudieron purgar las Idempotency-Key vencidas: {}", e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private Instant notBefore() {
+        return clock.instant().minus(config.getTtl());
+    }
+
+    private Mono<Executed> stored(String subject, String key) {
+        return repository.find(subject, key, notBefore())
+                .flatMap(stored -> Mono.fromCallable(() -> new Executed(new Completed(stored.fingerprint(),
+                        objectMapper.readValue(stored.response(), EggProductionModel.class)), () -> { })))
+                .doOnNext(done -> restored.increment());
+    }
+
+    // Si no se puede guardar el resultado falla todo y la transacción deshace también la escritura
+    private Mono<Executed> written(String subject, String key, String fingerprint,
+                                   Supplier<Mono<EggProductionWrite>> write) {
+        executed.increment();
+        return Mono.defer(write)
+                .flatMap(done -> Mono.fromCallable(() -> objectMapper.writeValueAsString(done.result()))
+                        .flatMap(json -> repository.complete(subject, key, json))
+                        .thenReturn(new Executed(new Completed(fingerprint, done.result()), done.afterCommit())));
+    }
+
+    private static Mono<EggProductionModel> replay(Completed done, String fingerprint) {
+        return done.fingerprint().equals(fingerprint)
+                ? Mono.just(done.result())
+                : Mono.error(new KeyReusedException());
+    }
+
+    // Sin usuario autenticado (pruebas, rutas públicas) todas las claves comparten un mismo espacio
+    private static Mono<String> subject() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(Objects::nonNull)
+                .map(Authentication::getName)
+                .defaultIfEmpty("");
+    }
+
+    /**
+     * Petición canónica para el fingerprint: método y ruta más los campos que usa la escritura en un orden fijo,
+     * con priceKilo sin ceros de más (12.5 y 12.50 son la misma petición). id y version del cuerpo no cuentan:
+     * el alta los descarta y la actualización toma el id de la ruta y la versión de If-Match.
+     */
+    public static String request(String target, EggProductionModel body) {
+        BigDecimal price = body.getPriceKilo();
+        return target + '\n' + body.getQuantityEggs() + '|' + body.getEggsKilo() + '|'
+                + (price != null ? price.stripTrailingZeros().toPlainString() : null) + '|'
+                + body.getRegistrationDate() + '|' + body.getEstado();
+    }
+
+    static String fingerprint(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Completed(String fingerprint, EggProductionModel result) {
+    }
+
+    // Resultado de la transacción con los efectos que quedan para después del commit (ninguno si se restauró)
+    private record Executed(Completed completed, Runnable afterCommit) {
+    }
+
+    private static final class Flight {
+
+        private final Mono<Completed> result;
+
+        // cache() y una suscripción propia (ver execute): un cliente que cancela solo deja de esperar; la escritura
+        // no queda cortada con la clave reservada. Al terminar, también con error, sale del mapa; si terminó bien el
+        // resultado ya está en la caché
+        Flight(Function<Flight, Mono<Completed>> result) {
+            this.result = result.apply(this);
+        }
+    }
+
+    // La clave ya se usó con otra petición
+    public static class KeyReusedException extends RuntimeException {
+
+        public KeyReusedException() {
+            super("La Idempotency-Key ya se usó con otra petición");
+        }
+    }
+
+    // Otra instancia reservó la clave y no dejó resultado (p. ej. lo purgó justo entonces): reintentar
+    public static class KeyInProgressException extends RuntimeException {
+
+        public KeyInProgressException() {
+            super("La petición con esta Idempotency-Key sigue en curso");
+        }
+    }
+}
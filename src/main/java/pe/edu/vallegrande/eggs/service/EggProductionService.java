@@ -1,63 +1,420 @@
 package pe.edu.vallegrande.eggs.service;
 
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.config.ReplicaRouting;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionChange;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
 import pe.edu.vallegrande.eggs.model.EggProductionModel;
 import pe.edu.vallegrande.eggs.repository.EggProductionRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EggProductionService {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final String CHUNK_FAILED = "No se pudo guardar el bloque; reintente estos registros";
+
     private final EggProductionRepository repository;
+    private final EggProductionProperties properties;
+    private final EggProductionStatsService statsService;
+    private final EggProductionCache cache;
+    private final TransactionalOperator transactionalOperator;
+    private final EggProductionFeed feed;
+    private final EggProductionCreateBatcher createBatcher;
+    private final EggProductionTimeSeries timeSeries;
+    private final ConnectionPoolThrottle poolThrottle;
+    private final EggProductionSingleFlight singleFlight;
 
+    // En modo write-behind las altas se insertan por tandas con el mismo camino que la carga masiva
+    @PostConstruct
+    void startWriteBehind() {
+        createBatcher.start(this::insertCreated);
+    }
+
+    // Los listados son de solo lectura: en un GET pueden ir a una réplica (ver ReplicaRouting)
     public Flux<EggProductionModel> getAll() {
-        return repository.findAllByOrderByIdAsc();
+        return ReplicaRouting.readOnly(repository.findAllByOrderByIdAsc());
+    }
+
+    public Flux<EggProductionModel> getPage(Integer after, Integer limit) {
+        return ReplicaRouting.readOnly(repository.findByIdGreaterThanOrderByIdAsc(cursor(after), page(limit)));
+    }
+
+    // Registros con fecha de registro entre from y to (inclusive); estado null = A e I
+    public Flux<EggProductionModel> getRange(LocalDate from, LocalDate to, String estado) {
+        return ReplicaRouting.readOnly(estado == null
+                ? repository.findByRegistrationDateBetweenOrderByIdAsc(from, to)
+                : repository.findByEstadoAndRegistrationDateBetweenOrderByIdAsc(estado, from, to));
+    }
+
+    public Flux<EggProductionModel> getRangePage(LocalDate from, LocalDate to, String estado, Integer after, Integer limit) {
+        return ReplicaRouting.readOnly(estado == null
+                ? repository.findByRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(from, to, cursor(after), page(limit))
+                : repository.findByEstadoAndRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(
+                        estado, from, to, cursor(after), page(limit)));
+    }
+
+    // Exportación: cada fila del rango pasa directo de la base de datos a rowWriter, sin modelos intermedios
+    public <T> Flux<T> exportRange(LocalDate from, LocalDate to, Function<? super Readable, T> rowWriter) {
+        return ReplicaRouting.readOnly(repository.exportRange(from, to, rowWriter));
+    }
+
+    // Listados con ?fields=: solo esas columnas, de la base de datos a rowWriter sin modelos ni caché.
+    // Página por cursor, acotada igual que getPage; estado null = A e I, from/to null = sin rango
+    public <T> Flux<T> getFieldsPage(Set<EggProductionField> fields, LocalDate from, LocalDate to, String estado,
+                                     Integer after, Integer limit, Function<? super Readable, T> rowWriter) {
+        return ReplicaRouting.readOnly(repository.findFields(fields, from, to, estado, cursor(after),
+                page(limit).getPageSize(), rowWriter));
+    }
+
+    // Igual, como flujo completo (NDJSON)
+    public <T> Flux<T> getFields(Set<EggProductionField> fields, LocalDate from, LocalDate to, String estado,
+                                 Function<? super Readable, T> rowWriter) {
+        return ReplicaRouting.readOnly(repository.findFields(fields, from, to, estado, null, null, rowWriter));
+    }
+
+    // Las páginas de activos son las que más consulta el front, se sirven desde caché
+    public Flux<EggProductionModel> getActivePage(Integer after, Integer limit) {
+        Integer cursor = cursor(after);
+        Pageable page = page(limit);
+        String key = cursor + ":" + page.getPageSize();
+        return Flux.defer(() -> {
+            List<EggProductionModel> cached = cache.getActivePage(key);
+            if (cached != null) {
+                return Flux.fromIterable(cached);
+            }
+            long generation = cache.generation();
+            return singleFlight.activePage(key, generation, () -> ReplicaRouting.readOnlyCached(repository
+                            .findByEstadoAndIdGreaterThanOrderByIdAsc("A", cursor, page)
+                            .collectList())
+                            .doOnNext(rows -> cache.putActivePage(generation, key, rows)))
+                    .flatMapIterable(rows -> rows);
+        });
     }
 
     public Mono<EggProductionModel> getById(Integer id) {
-        return repository.findById(id);
+        return Mono.defer(() -> {
+            EggProductionModel cached = cache.getRecord(id);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long generation = cache.generation();
+            // Los pedidos simultáneos del mismo id comparten una sola consulta
+            return singleFlight.record(id, generation, () -> ReplicaRouting.readOnlyCached(repository.findById(id))
+                    .doOnNext(found -> cache.putRecord(generation, found)));
+        });
     }
 
     public Mono<EggProductionModel> create(EggProductionModel model) {
+        if (!createBatcher.isEnabled()) {
+            return committed(createWrite(model));
+        }
+        String error = registrationDateError(model.getRegistrationDate());
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
         model.setId(null); // Nos aseguramos de que sea nuevo
-        return repository.save(model);
+        model.setVersion(null);
+        return createBatcher.submit(model);
     }
 
-    public Mono<EggProductionModel> update(Integer id, EggProductionModel model) {
-        return repository.findById(id)
-                .flatMap(existing -> {
-                    model.setId(id); // Aseguramos que el ID no cambie
-                    return repository.save(model);
-                });
+    /**
+     * Alta directa, sin write-behind ni transacción propia: escribe en la transacción de quien llama y deja los
+     * efectos para después de su commit (escrituras con Idempotency-Key, ver EggProductionIdempotency).
+     */
+    public Mono<EggProductionWrite> createWrite(EggProductionModel model) {
+        String error = registrationDateError(model.getRegistrationDate());
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
+        model.setId(null); // Nos aseguramos de que sea nuevo
+        model.setVersion(null);
+        return repository.save(model)
+                .flatMap(saved -> statsService.apply(activeOnly(saved), List.of())
+                        .thenReturn(new EggProductionWrite(saved, () -> afterCommit(() -> {
+                            cache.invalidateActivePages();
+                            timeSeries.apply(activeOnly(saved), List.of());
+                            feed.publishLocal(EggProductionEvent.Type.CREATED, saved);
+                        }))));
+    }
+
+    // Carga masiva: se inserta por bloques, un INSERT multi-fila por bloque y uno a la vez
+    public Flux<EggProductionBatchResult> createBatch(Flux<EggProductionModel> models) {
+        return models.index()
+                .buffer(Math.max(1, properties.getBatch().getChunkSize()))
+                .concatMap(this::insertChunk);
+    }
+
+    // Importación de archivos: filas ya numeradas con su línea; un bloque a la vez y solo cuando el pool tiene
+    // una conexión libre, así el archivo se lee al ritmo de la base de datos y no se acumula en memoria
+    public Flux<EggProductionBatchResult> importRows(Flux<Tuple2<Long, EggProductionModel>> rows) {
+        return rows.buffer(Math.max(1, properties.getBatch().getChunkSize()))
+                .concatMap(chunk -> poolThrottle.awaitIdleConnection().thenMany(insertChunk(chunk)), 1);
+    }
+
+    // Un solo UPDATE versionado; con expectedVersion solo se aplica si nadie más modificó la fila
+    public Mono<EggProductionModel> update(Integer id, EggProductionModel model, Long expectedVersion) {
+        return committed(updateWrite(id, model, expectedVersion));
     }
 
+    // Igual que update pero en la transacción de quien llama, con los efectos aparte (ver createWrite)
+    public Mono<EggProductionWrite> updateWrite(Integer id, EggProductionModel model, Long expectedVersion) {
+        String error = registrationDateError(model.getRegistrationDate());
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
+        model.setId(id); // Aseguramos que el ID no cambie
+        return repository.updateVersioned(id, model, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> versionConflict(id, expectedVersion)))
+                .flatMap(change -> statsService.apply(activeOnly(change.getAfter()), activeOnly(change.getBefore()))
+                        .thenReturn(new EggProductionWrite(change.getAfter(), () -> afterCommit(() -> {
+                            cache.invalidate(id);
+                            timeSeries.apply(activeOnly(change.getAfter()), activeOnly(change.getBefore()));
+                            feed.publishLocal(statusChanged(change) ? EggProductionEvent.Type.STATUS_CHANGED
+                                    : EggProductionEvent.Type.UPDATED, change.getAfter());
+                        }))));
+    }
+
+    // Un solo DELETE: los acumulados se restan con la fila que se borró, solo si la borró esta petición
     public Mono<Void> delete(Integer id) {
-        return repository.findById(id)
-                .flatMap(existing -> repository.deleteById(id));
+        return repository.deleteReturningById(id)
+                .flatMap(deleted -> statsService.apply(List.of(), activeOnly(deleted)).thenReturn(deleted))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(deleted -> afterCommit(() -> {
+                    cache.invalidate(id);
+                    if (deleted != null) {
+                        timeSeries.apply(List.of(), activeOnly(deleted));
+                    }
+                    feed.publishLocal(EggProductionEvent.Type.DELETED, deleted);
+                }))
+                .then();
     }
 
+    // Un solo UPDATE condicional; si ya estaba inactivo no cambia nada
     public Mono<Void> inactivate(Integer id) {
-        return repository.findById(id)
-                .flatMap(egg -> {
-                    egg.setEstado("I");
-                    return repository.save(egg);
-                })
+        return repository.inactivateById(id)
+                .flatMap(changed -> statsService.apply(List.of(), List.of(changed)).thenReturn(changed))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(changed -> afterCommit(() -> afterStatusChange(id, changed, false)))
                 .then();
     }
 
+    // Un solo UPDATE condicional; si ya estaba activo no cambia nada
     public Mono<Void> activate(Integer id) {
-        return repository.findById(id)
-                .flatMap(egg -> {
-                    egg.setEstado("A");
-                    return repository.save(egg);
-                })
+        return repository.activateById(id)
+                .flatMap(changed -> statsService.apply(List.of(changed), List.of()).thenReturn(changed))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(changed -> afterCommit(() -> afterStatusChange(id, changed, true)))
                 .then();
     }
+
+    // Cambio de estado masivo por lista de ids, en una sola sentencia
+    public Mono<Long> changeStatusByIds(String estado, Collection<Integer> ids) {
+        return applyStatusChange(estado, "A".equals(estado)
+                ? repository.activateByIds(ids)
+                : repository.inactivateByIds(ids));
+    }
+
+    // Cambio de estado masivo por rango de fechas de registro: el rango no tiene tope de filas, así que va
+    // de a bloques de batch.chunk-size, cada uno en su transacción con sus estadísticas, hasta que no queden
+    public Mono<Long> changeStatusByDateRange(String estado, LocalDate from, LocalDate to) {
+        int chunkSize = Math.max(1, properties.getBatch().getChunkSize());
+        Mono<Long> chunk = Mono.defer(() -> applyStatusChange(estado, "A".equals(estado)
+                ? repository.activateByRegistrationDateBetween(from, to, chunkSize)
+                : repository.inactivateByRegistrationDateBetween(from, to, chunkSize)));
+        return chunk.expand(changed -> changed < chunkSize ? Mono.empty() : chunk)
+                .reduce(0L, Long::sum);
+    }
     public Flux<EggProductionModel> getAllActive() {
-    return repository.findAllByEstadoOrderByIdAsc("A");
-}
+        return ReplicaRouting.readOnly(repository.findAllByEstadoOrderByIdAsc("A"));
+    }
+
+    // Sin filas actualizadas: o el registro no existe o su versión ya cambió
+    private Mono<EggProductionChange> versionConflict(Integer id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return repository.existsById(id)
+                .flatMap(exists -> exists
+                        ? Mono.error(new OptimisticLockingFailureException(
+                                "El registro " + id + " ya no está en la versión " + expectedVersion))
+                        : Mono.empty());
+    }
+
+    private Mono<Long> applyStatusChange(String estado, Flux<EggProductionModel> changed) {
+        return changed.collectList()
+                .flatMap(rows -> ("A".equals(estado)
+                        ? statsService.apply(rows, List.of())
+                        : statsService.apply(List.of(), rows))
+                        .thenReturn(rows))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(rows -> afterCommit(() -> {
+                    cache.invalidateAll();
+                    if ("A".equals(estado)) {
+                        timeSeries.apply(rows, List.of());
+                    } else {
+                        timeSeries.apply(List.of(), rows);
+                    }
+                    feed.publishLocal(EggProductionEvent.Type.STATUS_CHANGED, rows);
+                }))
+                .map(rows -> (long) rows.size());
+    }
+
+    private Flux<EggProductionBatchResult> insertChunk(List<Tuple2<Long, EggProductionModel>> chunk) {
+        List<EggProductionBatchResult> rejected = new ArrayList<>();
+        List<Long> indexes = new ArrayList<>(chunk.size());
+        List<EggProductionModel> valid = new ArrayList<>(chunk.size());
+        for (Tuple2<Long, EggProductionModel> item : chunk) {
+            String error = validate(item.getT2());
+            if (error != null) {
+                rejected.add(EggProductionBatchResult.failed(item.getT1(), error));
+            } else {
+                item.getT2().setId(null);
+                indexes.add(item.getT1());
+                valid.add(item.getT2());
+            }
+        }
+
+        return insertCreated(valid)
+                .map(saved -> IntStream.range(0, saved.size())
+                        .mapToObj(i -> EggProductionBatchResult.ok(indexes.get(i), saved.get(i).getId()))
+                        .toList())
+                // El detalle (SQL, conexión) queda en el log; al cliente solo le sirve saber que reintente
+                .onErrorResume(e -> {
+                    log.warn("No se pudo insertar un bloque de {} registros: {}", valid.size(), e.getMessage(), e);
+                    return Mono.just(indexes.stream()
+                            .map(index -> EggProductionBatchResult.failed(index, CHUNK_FAILED))
+                            .toList());
+                })
+                .flatMapIterable(inserted -> {
+                    // Se responde en el mismo orden de la entrada
+                    List<EggProductionBatchResult> results = new ArrayList<>(rejected);
+                    results.addAll(inserted);
+                    results.sort(Comparator.comparingLong(EggProductionBatchResult::getIndex));
+                    return results;
+                });
+    }
+
+    // Un INSERT multi-fila y sus estadísticas en una sola transacción; los ids vuelven en el mismo orden
+    Mono<List<EggProductionModel>> insertCreated(List<EggProductionModel> models) {
+        return repository.insertAll(models)
+                .collectList()
+                .flatMap(saved -> statsService.apply(saved.stream().filter(this::isActive).toList(), List.of())
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(saved -> afterCommit(() -> {
+                    cache.invalidateActivePages();
+                    timeSeries.apply(saved.stream().filter(this::isActive).toList(), List.of());
+                    feed.publishLocal(EggProductionEvent.Type.CREATED, saved);
+                }));
+    }
+
+    // Validación mínima por elemento para que un registro inválido no tumbe todo el bloque
+    private static String validate(EggProductionModel model) {
+        if (model == null) return "registro vacío";
+        if (model.getRegistrationDate() == null) return "registrationDate es obligatorio";
+        String dateError = registrationDateError(model.getRegistrationDate());
+        if (dateError != null) return dateError;
+        if (model.getQuantityEggs() == null) return "quantityEggs es obligatorio";
+        if (model.getQuantityEggs() < 0) return "quantityEggs no puede ser negativo";
+        if (model.getEggsKilo() != null && model.getEggsKilo() < 0) return "eggsKilo no puede ser negativo";
+        if (model.getPriceKilo() != null && model.getPriceKilo().compareTo(BigDecimal.ZERO) < 0) {
+            return "priceKilo no puede ser negativo";
+        }
+        if (model.getEstado() != null && !"A".equals(model.getEstado()) && !"I".equals(model.getEstado())) {
+            return "estado debe ser A o I";
+        }
+        return null;
+    }
+
+    // Fuera de la ventana admitida; null si la fecha sirve (o no viene)
+    private static String registrationDateError(LocalDate date) {
+        if (date != null && (date.isBefore(EggProductionModel.MIN_REGISTRATION_DATE)
+                || date.isAfter(EggProductionModel.MAX_REGISTRATION_DATE))) {
+            return "registrationDate debe estar entre " + EggProductionModel.MIN_REGISTRATION_DATE
+                    + " y " + EggProductionModel.MAX_REGISTRATION_DATE;
+        }
+        return null;
+    }
+
+    // La escritura en su propia transacción; los efectos, solo si se confirmó
+    private Mono<EggProductionModel> committed(Mono<EggProductionWrite> write) {
+        return write.as(transactionalOperator::transactional)
+                .doOnNext(done -> done.afterCommit().run())
+                .map(EggProductionWrite::result);
+    }
+
+    // Caché, serie diaria y feed se actualizan después del commit: si algo falla ahí la escritura ya está
+    // confirmada, así que solo se registra (la serie se corrige en la siguiente recarga)
+    private static void afterCommit(Runnable effects) {
+        try {
+            effects.run();
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron aplicar los efectos de una escritura confirmada: {}", e.getMessage(), e);
+        }
+    }
+
+    private void afterStatusChange(Integer id, EggProductionModel changed, boolean activated) {
+        cache.invalidate(id);
+        if (changed != null && activated) {
+            timeSeries.apply(List.of(changed), List.of());
+        } else if (changed != null) {
+            timeSeries.apply(List.of(), List.of(changed));
+        }
+        feed.publishLocal(EggProductionEvent.Type.STATUS_CHANGED, changed);
+    }
+
+    private static boolean statusChanged(EggProductionChange change) {
+        return change.getBefore() != null
+                && !Objects.equals(change.getBefore().getEstado(), change.getAfter().getEstado());
+    }
+
+    // Las estadísticas solo acumulan registros activos
+    private boolean isActive(EggProductionModel model) {
+        return "A".equals(model.getEstado());
+    }
+
+    private List<EggProductionModel> activeOnly(EggProductionModel model) {
+        return isActive(model) ? List.of(model) : List.of();
+    }
+
+    // Sin cursor se empieza desde el inicio de la tabla
+    private static Integer cursor(Integer after) {
+        return after != null ? after : 0;
+    }
+
+    // El tamaño de página siempre queda acotado para no traer la tabla completa
+    private static Pageable page(Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        return PageRequest.of(0, size);
+    }
 
 }
@@ -0,0 +1,90 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa las lecturas idénticas que llegan a la vez (mismo id, misma página de activos) cuando no están
+ * en EggProductionCache: solo la primera consulta la base de datos y el resultado se entrega a todas.
+ * Cada consulta en curso lleva la generación de la caché con la que empezó; una lectura que empieza
+ * después de una escritura (generación mayor) no se une a ella y lanza su propia consulta.
+ * eggProduction.singleFlight{result=coalesced} cuenta las consultas ahorradas.
+ */
+@Component
+public class EggProductionSingleFlight {
+
+    static final String METRIC = "eggProduction.singleFlight";
+
+    private final Flights<Integer, EggProductionModel> records;
+    private final Flights<String, List<EggProductionModel>> activePages;
+
+    public EggProductionSingleFlight(MeterRegistry meterRegistry) {
+        this.records = new Flights<>("record", meterRegistry);
+        this.activePages = new Flights<>("activePage", meterRegistry);
+    }
+
+    public Mono<EggProductionModel> record(Integer id, long generation, Supplier<Mono<EggProductionModel>> query) {
+        return records.execute(id, generation, query);
+    }
+
+    public Mono<List<EggProductionModel>> activePage(String key, long generation,
+                                                     Supplier<Mono<List<EggProductionModel>>> query) {
+        return activePages.execute(key, generation, query);
+    }
+
+    int inFlight() {
+        return records.flights.size() + activePages.flights.size();
+    }
+
+    private static final class Flights<K, V> {
+
+        private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+        private final Counter executed;
+        private final Counter coalesced;
+
+        Flights(String query, MeterRegistry meterRegistry) {
+            this.executed = meterRegistry.counter(METRIC, "query", query, "result", "executed");
+            this.coalesced = meterRegistry.counter(METRIC, "query", query, "result", "coalesced");
+        }
+
+        Mono<V> execute(K key, long generation, Supplier<Mono<V>> query) {
+            return Mono.defer(() -> {
+                boolean[] started = {false};
+                Flight<V> flight = flights.compute(key, (k, current) -> {
+                    if (current != null && current.generation >= generation) {
+                        return current;
+                    }
+                    started[0] = true;
+                    return new Flight<>(generation, self -> Mono.defer(query)
+                            .doFinally(signal -> flights.remove(k, self))
+                            .share());
+                });
+                (started[0] ? executed : coalesced).increment();
+                return flight.result;
+            });
+        }
+    }
+
+    private static final class Flight<V> {
+
+        private final long generation;
+        private final Mono<V> result;
+
+        // share(): la consulta sigue mientras quede algún cliente suscrito; si cancela el último (o el único) se
+        // cancela también y no llena la caché, lo que en una lectura no deja nada a medias. Al terminar, también
+        // con error o cancelada, sale del mapa: la siguiente lectura vuelve a la caché o a la base de datos
+        Flight(long generation, Function<Flight<V>, Mono<V>> result) {
+            this.generation = generation;
+            this.result = result.apply(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pe.edu.vallegrande.eggs.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mantiene los acumulados diarios y mensuales de forma incremental.
+ * Solo cuentan los registros activos: quien llama indica qué registros
+ * entran (added) y cuáles salen (removed) del conjunto activo.
+ */
+@Service
+@RequiredArgsConstructor
+public class EggProductionStatsService {
+
+    private final EggProductionStatsRepository repository;
+
+    public Mono<Void> apply(Collection<EggProductionModel> added, Collection<EggProductionModel> removed) {
+        return Flux.fromArray(StatsGranularity.values())
+                .concatMap(granularity -> repository.accumulate(granularity, deltas(granularity, added, removed)))
+                .then();
+    }
+
+    public Flux<EggProductionStatsModel> getStats(LocalDate from, LocalDate to, StatsGranularity granularity) {
+        return repository.findRange(granularity, granularity.periodStart(from), to);
+    }
+
+    private static List<EggProductionStatsModel> deltas(StatsGranularity granularity,
+                                                        Collection<EggProductionModel> added,
+                                                        Collection<EggProductionModel> removed) {
+        Map<LocalDate, EggProductionStatsModel> byPeriod = new TreeMap<>();
+        added.forEach(model -> accumulate(byPeriod, granularity, model, 1));
+        removed.forEach(model -> accumulate(byPeriod, granularity, model, -1));
+
+        // Si lo que entra y lo que sale se compensan (p. ej. una edición sin cambios) no se escribe nada
+        List<EggProductionStatsModel> deltas = new ArrayList<>(byPeriod.size());
+        for (EggProductionStatsModel delta : byPeriod.values()) {
+            if (delta.getRecords() != 0 || delta.getTotalEggs() != 0 || delta.getTotalKilos() != 0
+                    || delta.getRevenue().signum() != 0) {
+                deltas.add(delta);
+            }
+        }
+        return deltas;
+    }
+
+    private static void accumulate(Map<LocalDate, EggProductionStatsModel> byPeriod, StatsGranularity granularity,
+                                   EggProductionModel model, int sign) {
+        if (model.getRegistrationDate() == null) return;
+
+        EggProductionStatsModel delta = byPeriod.computeIfAbsent(granularity.periodStart(model.getRegistrationDate()),
+                period -> new EggProductionStatsModel(period, 0, 0, 0, BigDecimal.ZERO));
+        long eggs = model.getQuantityEggs() != null ? model.getQuantityEggs() : 0;
+        long kilos = model.getEggsKilo() != null ? model.getEggsKilo() : 0;
+        BigDecimal revenue = model.getPriceKilo() != null
+                ? model.getPriceKilo().multiply(BigDecimal.valueOf(kilos))
+                : BigDecimal.ZERO;
+
+        delta.setRecords(delta.getRecords() + sign);
+        delta.setTotalEggs(delta.getTotalEggs() + sign * eggs);
+        delta.setTotalKilos(delta.getTotalKilos() + sign * kilos);
+        delta.setRevenue(sign > 0 ? delta.getRevenue().add(revenue) : delta.getRevenue().subtract(revenue));
+    }
+}
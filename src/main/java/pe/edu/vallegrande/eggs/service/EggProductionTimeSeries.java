@@ -0,0 +1,330 @@
+package pe.edu.vallegrande.eggs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesPoint;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesSummary;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serie diaria de producción en memoria, en columnas de primitivos indexadas por día (epoch day):
+ * registros, huevos, kilos e ingresos en céntimos (long de punto fijo en lugar de BigDecimal).
+ * Se carga leyendo como flujo los acumulados diarios (egg_production_stats) y se mantiene al día
+ * con las escrituras que confirma EggProductionService; cada refresh-interval se vuelve a cargar
+ * para incluir lo escrito por otras instancias.
+ * Las consultas de rango y de ventana móvil recorren los arreglos sin crear objetos por día.
+ */
+@Slf4j
+@Component
+public class EggProductionTimeSeries {
+
+    private static final int INITIAL_CAPACITY = 366;
+    // Solo los días de la ventana admitida para registrationDate: una fecha extrema no hace crecer las columnas
+    private static final long FIRST_DAY = EggProductionModel.MIN_REGISTRATION_DATE.toEpochDay();
+    private static final long LAST_DAY = EggProductionModel.MAX_REGISTRATION_DATE.toEpochDay();
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final EggProductionStatsRepository statsRepository;
+    private final EggProductionProperties.TimeSeries config;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // columns y generation se leen y escriben con el lock tomado
+    private Columns columns = new Columns();
+    private long generation;
+    private volatile boolean ready;
+    private Disposable refresher;
+
+    public EggProductionTimeSeries(EggProductionStatsRepository statsRepository, EggProductionProperties properties) {
+        this.statsRepository = statsRepository;
+        this.config = properties.getTimeSeries();
+    }
+
+    // Hasta terminar la primera carga las consultas no tendrían el histórico completo
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (refresher != null) {
+            return;
+        }
+        Mono<Void> first = load();
+        refresher = !config.getRefreshInterval().isZero() && !config.getRefreshInterval().isNegative()
+                ? first.thenMany(Flux.interval(config.getRefreshInterval())
+                        .onBackpressureDrop()
+                        .concatMap(tick -> load(), 0))
+                        .subscribe()
+                : first.subscribe();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    // Se arma una copia nueva fuera del lock; si hubo escrituras mientras se leía, se vuelve a leer
+    public Mono<Void> load() {
+        long start = System.nanoTime();
+        return Mono.defer(() -> {
+                    long readGeneration = generation();
+                    Columns loaded = new Columns();
+                    return statsRepository.findAll(StatsGranularity.DAY)
+                            .doOnNext(day -> loaded.add(day.getPeriodStart().toEpochDay(), day.getRecords(),
+                                    day.getTotalEggs(), day.getTotalKilos(), cents(day.getRevenue())))
+                            .then(Mono.fromSupplier(() -> replace(readGeneration, loaded)));
+                })
+                .filter(Boolean::booleanValue)
+                .repeatWhenEmpty(MAX_LOAD_ATTEMPTS, attempts -> attempts)
+                .doOnNext(replaced -> log.debug("Serie diaria cargada en {} ms", (System.nanoTime() - start) / 1_000_000))
+                .onErrorResume(e -> {
+                    log.warn("No se pudo cargar la serie diaria: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Se llama después de confirmar la escritura, con los mismos registros que recibe EggProductionStatsService
+    public void apply(Collection<EggProductionModel> added, Collection<EggProductionModel> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            generation++;
+            for (EggProductionModel model : added) accumulate(model, 1);
+            for (EggProductionModel model : removed) accumulate(model, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public EggProductionSeriesSummary summarize(SeriesMetric metric, LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int start = c.clamp(from.toEpochDay());
+            int end = c.clamp(to.toEpochDay() + 1);
+            return metric == SeriesMetric.PRICE_KILO
+                    ? summarizePrice(c, start, end, from, to)
+                    : summarize(c, c.column(metric), metric, start, end, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Promedio por día de la ventana [d - window + 1, d] para cada día d del rango; los días sin producción cuentan 0.
+    // Para price_kilo es el precio ponderado de la ventana (ingresos / kilos)
+    public List<EggProductionSeriesPoint> movingAverage(SeriesMetric metric, LocalDate from, LocalDate to, int window) {
+        long first = from.toEpochDay();
+        int days = (int) (to.toEpochDay() - first + 1);
+        List<EggProductionSeriesPoint> points = new ArrayList<>(days);
+        boolean price = metric == SeriesMetric.PRICE_KILO;
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            long[] values = c.column(price ? SeriesMetric.REVENUE : metric);
+            long sum = 0;
+            long kilos = 0;
+            for (long day = first - window; day < first; day++) {
+                sum += c.get(values, day);
+                kilos += c.get(c.kilos, day);
+            }
+            for (int i = 0; i < days; i++) {
+                long day = first + i;
+                sum += c.get(values, day) - c.get(values, day - window);
+                kilos += c.get(c.kilos, day) - c.get(c.kilos, day - window);
+                Double value = null;
+                if (!price) {
+                    value = round(scale(metric, (double) sum / window));
+                } else if (kilos > 0) {
+                    value = round(scale(metric, (double) sum / kilos));
+                }
+                points.add(new EggProductionSeriesPoint(LocalDate.ofEpochDay(day), value));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return points;
+    }
+
+    private long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean replace(long readGeneration, Columns loaded) {
+        lock.writeLock().lock();
+        try {
+            if (generation != readGeneration) {
+                return false;
+            }
+            columns = loaded;
+            ready = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void accumulate(EggProductionModel model, int sign) {
+        if (model.getRegistrationDate() == null) return;
+
+        long eggs = model.getQuantityEggs() != null ? model.getQuantityEggs() : 0;
+        long kilos = model.getEggsKilo() != null ? model.getEggsKilo() : 0;
+        long revenue = model.getPriceKilo() != null ? cents(model.getPriceKilo()) * kilos : 0;
+        columns.add(model.getRegistrationDate().toEpochDay(), sign, sign * eggs, sign * kilos, sign * revenue);
+    }
+
+    private static EggProductionSeriesSummary summarize(Columns c, long[] values, SeriesMetric metric,
+                                                        int start, int end, LocalDate from, LocalDate to) {
+        long days = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            if (c.records[i] == 0) continue;
+            long value = values[i];
+            days++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (days == 0) {
+            return new EggProductionSeriesSummary(metric, from, to, 0, 0.0, null, null, null);
+        }
+        return new EggProductionSeriesSummary(metric, from, to, days, scale(metric, sum),
+                round(scale(metric, (double) sum / days)), scale(metric, min), scale(metric, max));
+    }
+
+    private static EggProductionSeriesSummary summarizePrice(Columns c, int start, int end, LocalDate from, LocalDate to) {
+        long days = 0;
+        long revenue = 0;
+        long kilos = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            if (c.records[i] == 0 || c.kilos[i] == 0) continue;
+            double price = (double) c.revenue[i] / c.kilos[i];
+            days++;
+            revenue += c.revenue[i];
+            kilos += c.kilos[i];
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+        SeriesMetric metric = SeriesMetric.PRICE_KILO;
+        if (days == 0) {
+            return new EggProductionSeriesSummary(metric, from, to, 0, null, null, null, null);
+        }
+        return new EggProductionSeriesSummary(metric, from, to, days, null,
+                round(scale(metric, (double) revenue / kilos)), round(scale(metric, min)), round(scale(metric, max)));
+    }
+
+    // Los montos se guardan en céntimos
+    private static double scale(SeriesMetric metric, double value) {
+        return metric.isMoney() ? value / 100 : value;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Columnas paralelas: la posición i corresponde al día origin + i. Crecen por ambos extremos
+     * al registrar días fuera del rango, sin salir de [FIRST_DAY, LAST_DAY] (los demás días se ignoran);
+     * las posiciones sin datos quedan en 0.
+     */
+    private static final class Columns {
+
+        private long origin;
+        private long[] records = new long[0];
+        private long[] eggs = new long[0];
+        private long[] kilos = new long[0];
+        private long[] revenue = new long[0];
+
+        void add(long day, long records, long eggs, long kilos, long revenue) {
+            if (day < FIRST_DAY || day > LAST_DAY) {
+                return;
+            }
+            int i = slot(day);
+            this.records[i] += records;
+            this.eggs[i] += eggs;
+            this.kilos[i] += kilos;
+            this.revenue[i] += revenue;
+        }
+
+        long[] column(SeriesMetric metric) {
+            return switch (metric) {
+                case RECORDS -> records;
+                case EGGS -> eggs;
+                case KILOS -> kilos;
+                case REVENUE, PRICE_KILO -> revenue;
+            };
+        }
+
+        long get(long[] column, long day) {
+            long i = day - origin;
+            return i >= 0 && i < column.length ? column[(int) i] : 0;
+        }
+
+        // Posición dentro de [0, length] para recorrer un rango de días
+        int clamp(long day) {
+            return (int) Math.max(0, Math.min(records.length, day - origin));
+        }
+
+        private int slot(long day) {
+            if (records.length == 0) {
+                origin = day;
+                resize(0, INITIAL_CAPACITY);
+            } else if (day < origin) {
+                int shift = (int) Math.max(origin - day, records.length / 2);
+                resize(shift, records.length + shift);
+                origin -= shift;
+            } else if (day - origin >= records.length) {
+                resize(0, (int) Math.max(day - origin + 1, records.length * 2L));
+            }
+            return (int) (day - origin);
+        }
+
+        private void resize(int shift, int capacity) {
+            records = copy(records, shift, capacity);
+            eggs = copy(eggs, shift, capacity);
+            kilos = copy(kilos, shift, capacity);
+            revenue = copy(revenue, shift, capacity);
+        }
+
+        private static long[] copy(long[] column, int shift, int capacity) {
+            long[] copy = new long[capacity];
+            System.arraycopy(column, 0, copy, shift, column.length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package pe.edu.vallegrande.eggs.service;
+
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+/**
+ * Escritura hecha en la transacción de quien llama (ver EggProductionService.createWrite/updateWrite) con sus
+ * efectos en memoria (caché, serie diaria, feed) aparte: quien confirma la transacción corre afterCommit solo
+ * después del commit, y si la transacción se deshace no lo corre.
+ */
+public record EggProductionWrite(EggProductionModel result, Runnable afterCommit) {
+}
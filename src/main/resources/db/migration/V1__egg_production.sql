@@ -0,0 +1,12 @@
+-- Tabla principal (ya existente en producción; se declara para entornos nuevos)
+CREATE TABLE IF NOT EXISTS egg_production (
+    id                SERIAL PRIMARY KEY,
+    quantity_eggs     INTEGER,
+    eggs_kilo         INTEGER,
+    price_kilo        NUMERIC(10, 2),
+    registration_date DATE,
+    estado            VARCHAR(1)
+);
+
+-- Versión de cada fila para bloqueo optimista y ETag
+ALTER TABLE egg_production ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,27 @@
+-- Acumulados por día y por mes de los registros activos, mantenidos por el servicio
+CREATE TABLE IF NOT EXISTS egg_production_stats (
+    granularity   VARCHAR(5)     NOT NULL,
+    period_start  DATE           NOT NULL,
+    record_count  BIGINT         NOT NULL DEFAULT 0,
+    total_eggs    BIGINT         NOT NULL DEFAULT 0,
+    total_kilos   BIGINT         NOT NULL DEFAULT 0,
+    total_revenue NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularity, period_start)
+);
+
+-- Carga inicial de los acumulados a partir del histórico (solo si aún no existen)
+INSERT INTO egg_production_stats (granularity, period_start, record_count, total_eggs, total_kilos, total_revenue)
+SELECT 'DAY', registration_date, COUNT(*), COALESCE(SUM(quantity_eggs), 0), COALESCE(SUM(eggs_kilo), 0),
+       COALESCE(SUM(eggs_kilo * price_kilo), 0)
+FROM egg_production
+WHERE estado = 'A' AND registration_date IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM egg_production_stats WHERE granularity = 'DAY')
+GROUP BY registration_date;
+
+INSERT INTO egg_production_stats (granularity, period_start, record_count, total_eggs, total_kilos, total_revenue)
+SELECT 'MONTH', CAST(date_trunc('month', registration_date) AS DATE), COUNT(*), COALESCE(SUM(quantity_eggs), 0),
+       COALESCE(SUM(eggs_kilo), 0), COALESCE(SUM(eggs_kilo * price_kilo), 0)
+FROM egg_production
+WHERE estado = 'A' AND registration_date IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM egg_production_stats WHERE granularity = 'MONTH')
+GROUP BY CAST(date_trunc('month', registration_date) AS DATE);
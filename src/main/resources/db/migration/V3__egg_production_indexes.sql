@@ -0,0 +1,11 @@
+-- Consultas por rango de fecha de registro (GET /egg-production?from=&to=)
+-- CONCURRENTLY para no bloquear escrituras en la tabla de producción; Flyway lo ejecuta fuera de transacción
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_egg_production_registration_date
+    ON egg_production (registration_date);
+
+-- Solo registros activos: rangos con estado=A y páginas de /active (ordenadas por id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_egg_production_active_registration_date
+    ON egg_production (registration_date) WHERE estado = 'A';
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_egg_production_active_id
+    ON egg_production (id) WHERE estado = 'A';
@@ -0,0 +1,41 @@
+-- Cada cambio en egg_production se avisa por NOTIFY en el canal egg_production_changes,
+-- con el registro completo en JSON (mismos nombres que la API). PostgreSQL entrega los avisos
+-- al confirmar la transacción, así que nunca se publica algo que luego se revierte.
+CREATE OR REPLACE FUNCTION egg_production_notify() RETURNS trigger AS $$
+DECLARE
+    rec  egg_production%ROWTYPE;
+    kind text;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        rec := NEW;
+        kind := 'CREATED';
+    ELSIF TG_OP = 'DELETE' THEN
+        rec := OLD;
+        kind := 'DELETED';
+    ELSIF NEW.estado IS DISTINCT FROM OLD.estado THEN
+        rec := NEW;
+        kind := 'STATUS_CHANGED';
+    ELSE
+        rec := NEW;
+        kind := 'UPDATED';
+    END IF;
+
+    PERFORM pg_notify('egg_production_changes', json_build_object(
+            'type', kind,
+            'record', json_build_object(
+                    'id', rec.id,
+                    'quantityEggs', rec.quantity_eggs,
+                    'eggsKilo', rec.eggs_kilo,
+                    'priceKilo', rec.price_kilo,
+                    'registrationDate', rec.registration_date,
+                    'estado', rec.estado,
+                    'version', rec.version))::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS egg_production_notify ON egg_production;
+
+CREATE TRIGGER egg_production_notify
+    AFTER INSERT OR UPDATE OR DELETE ON egg_production
+    FOR EACH ROW EXECUTE FUNCTION egg_production_notify();
@@ -0,0 +1,181 @@
+-- egg_production pasa a ser una tabla particionada por mes de registration_date (egg_production_YYYY_MM).
+-- Las consultas con rango de fechas (GET ?from=&to=, export.csv, cambios de estado por rango) solo leen
+-- las particiones del rango. Las filas sin fecha, o de un mes sin partición todavía, quedan en
+-- egg_production_default hasta que EggProductionArchiver cree la partición de ese mes.
+-- Una clave única debe incluir la columna de partición y registration_date admite NULL, así que id
+-- deja de ser PRIMARY KEY y queda solo con índice; la secuencia sigue dando ids únicos.
+
+-- Momento en que el registro pasó a inactivo: se archiva después de egg-production.archive.inactive-after.
+-- A los que ya estaban inactivos se les cuenta desde ahora
+ALTER TABLE egg_production ADD COLUMN IF NOT EXISTS inactivated_at TIMESTAMPTZ;
+UPDATE egg_production SET inactivated_at = now() WHERE estado = 'I' AND inactivated_at IS NULL;
+
+ALTER TABLE egg_production RENAME TO egg_production_unpartitioned;
+DROP TRIGGER IF EXISTS egg_production_notify ON egg_production_unpartitioned;
+DROP INDEX IF EXISTS idx_egg_production_registration_date;
+DROP INDEX IF EXISTS idx_egg_production_active_registration_date;
+DROP INDEX IF EXISTS idx_egg_production_active_id;
+
+CREATE TABLE egg_production (
+    id                INTEGER     NOT NULL DEFAULT nextval('egg_production_id_seq'),
+    quantity_eggs     INTEGER,
+    eggs_kilo         INTEGER,
+    price_kilo        NUMERIC(10, 2),
+    registration_date DATE,
+    estado            VARCHAR(1),
+    version           BIGINT      NOT NULL DEFAULT 0,
+    inactivated_at    TIMESTAMPTZ
+) PARTITION BY RANGE (registration_date);
+
+-- Si no, la secuencia se borraría junto con la tabla anterior
+ALTER SEQUENCE egg_production_id_seq OWNED BY egg_production.id;
+
+CREATE TABLE egg_production_default PARTITION OF egg_production DEFAULT;
+
+-- Crea la partición de un mes; lo que ya estaba en egg_production_default para ese mes se mueve a ella
+-- (ATTACH falla si la partición por defecto tiene filas del rango). Sin avisos al feed: no cambia ningún registro
+CREATE OR REPLACE FUNCTION egg_production_create_partition(any_day DATE) RETURNS void AS $$
+DECLARE
+    first_day      DATE := date_trunc('month', any_day);
+    next_day       DATE := first_day + INTERVAL '1 month';
+    partition_name TEXT := 'egg_production_' || to_char(first_day, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    PERFORM set_config('egg_production.notify', 'off', true);
+    EXECUTE format('CREATE TABLE %I (LIKE egg_production INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM egg_production_default '
+                       || 'WHERE registration_date >= %L AND registration_date < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved', first_day, next_day, partition_name);
+    EXECUTE format('ALTER TABLE egg_production ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, first_day, next_day);
+    PERFORM set_config('egg_production.notify', 'on', true);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Particiones del mes actual y los months_ahead siguientes, y de cualquier mes que haya caído en la
+-- partición por defecto. Devuelve cuántas creó; el bloqueo evita que dos instancias creen la misma
+CREATE OR REPLACE FUNCTION egg_production_ensure_partitions(months_ahead INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    created     INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('egg_production_partitions'));
+    FOR month_start IN
+        SELECT CAST(generate_series(date_trunc('month', current_date),
+                                    date_trunc('month', current_date) + make_interval(months => months_ahead),
+                                    INTERVAL '1 month') AS DATE)
+        UNION
+        SELECT DISTINCT CAST(date_trunc('month', registration_date) AS DATE)
+        FROM egg_production_default
+        WHERE registration_date IS NOT NULL
+    LOOP
+        IF to_regclass('egg_production_' || to_char(month_start, 'YYYY_MM')) IS NULL THEN
+            PERFORM egg_production_create_partition(month_start);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Particiones para el histórico y los próximos meses antes de copiar, así las filas van directo a su mes
+SELECT egg_production_create_partition(month_start)
+FROM (SELECT DISTINCT CAST(date_trunc('month', registration_date) AS DATE) AS month_start
+      FROM egg_production_unpartitioned
+      WHERE registration_date IS NOT NULL) AS months;
+SELECT egg_production_ensure_partitions(3);
+
+INSERT INTO egg_production (id, quantity_eggs, eggs_kilo, price_kilo, registration_date, estado, version, inactivated_at)
+SELECT id, quantity_eggs, eggs_kilo, price_kilo, registration_date, estado, version, inactivated_at
+FROM egg_production_unpartitioned;
+
+DROP TABLE egg_production_unpartitioned;
+
+-- Índices en la tabla particionada (cada partición, también las nuevas, tiene los suyos); se crean después
+-- de copiar los datos. GET /{id} busca en el índice de id de cada partición
+CREATE INDEX idx_egg_production_id ON egg_production (id);
+CREATE INDEX idx_egg_production_registration_date ON egg_production (registration_date);
+CREATE INDEX idx_egg_production_active_registration_date ON egg_production (registration_date) WHERE estado = 'A';
+CREATE INDEX idx_egg_production_active_id ON egg_production (id) WHERE estado = 'A';
+-- Candidatos a archivar
+CREATE INDEX idx_egg_production_inactivated_at ON egg_production (inactivated_at) WHERE estado = 'I';
+
+ANALYZE egg_production;
+
+-- Registros archivados: fuera de la tabla particionada, ya no aparecen en la API
+CREATE TABLE IF NOT EXISTS egg_production_archive (
+    id                INTEGER     PRIMARY KEY,
+    quantity_eggs     INTEGER,
+    eggs_kilo         INTEGER,
+    price_kilo        NUMERIC(10, 2),
+    registration_date DATE,
+    estado            VARCHAR(1),
+    version           BIGINT      NOT NULL,
+    inactivated_at    TIMESTAMPTZ,
+    archived_at       TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_egg_production_archive_registration_date
+    ON egg_production_archive (registration_date);
+
+-- inactivated_at lo mantiene la base de datos: se marca al pasar a 'I' y se limpia al reactivar.
+-- Si ya trae valor (una fila que cambia de partición) se respeta
+CREATE OR REPLACE FUNCTION egg_production_track_inactivation() RETURNS trigger AS $$
+BEGIN
+    IF NEW.estado IS DISTINCT FROM 'I' THEN
+        NEW.inactivated_at := NULL;
+    ELSIF TG_OP = 'INSERT' THEN
+        NEW.inactivated_at := COALESCE(NEW.inactivated_at, now());
+    ELSIF OLD.estado IS DISTINCT FROM 'I' THEN
+        NEW.inactivated_at := now();
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER egg_production_track_inactivation
+    BEFORE INSERT OR UPDATE OF estado ON egg_production
+    FOR EACH ROW EXECUTE FUNCTION egg_production_track_inactivation();
+
+-- Igual que en V4, salvo que no avisa cuando la transacción lo desactiva (archivo y creación de particiones)
+CREATE OR REPLACE FUNCTION egg_production_notify() RETURNS trigger AS $$
+DECLARE
+    rec  egg_production%ROWTYPE;
+    kind text;
+BEGIN
+    IF current_setting('egg_production.notify', true) = 'off' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        rec := NEW;
+        kind := 'CREATED';
+    ELSIF TG_OP = 'DELETE' THEN
+        rec := OLD;
+        kind := 'DELETED';
+    ELSIF NEW.estado IS DISTINCT FROM OLD.estado THEN
+        rec := NEW;
+        kind := 'STATUS_CHANGED';
+    ELSE
+        rec := NEW;
+        kind := 'UPDATED';
+    END IF;
+
+    PERFORM pg_notify('egg_production_changes', json_build_object(
+            'type', kind,
+            'record', json_build_object(
+                    'id', rec.id,
+                    'quantityEggs', rec.quantity_eggs,
+                    'eggsKilo', rec.eggs_kilo,
+                    'priceKilo', rec.price_kilo,
+                    'registrationDate', rec.registration_date,
+                    'estado', rec.estado,
+                    'version', rec.version))::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER egg_production_notify
+    AFTER INSERT OR UPDATE OR DELETE ON egg_production
+    FOR EACH ROW EXECUTE FUNCTION egg_production_notify();
@@ -0,0 +1,15 @@
+-- Resultados de POST y PUT con Idempotency-Key (EggProductionIdempotency): un reintento con la misma clave
+-- recibe la respuesta guardada en lugar de repetir la escritura, también después de reiniciar el servicio.
+-- La clave es por usuario (sub del JWT); fingerprint identifica la petición original (método, ruta y cuerpo).
+-- La fila se inserta sin response al reservar la clave y se completa en la misma transacción que la escritura
+CREATE TABLE IF NOT EXISTS egg_production_idempotency (
+    subject         VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint     CHAR(64)     NOT NULL,
+    response        TEXT,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    PRIMARY KEY (subject, idempotency_key)
+);
+
+-- Purga de las claves vencidas
+CREATE INDEX IF NOT EXISTS idx_egg_production_idempotency_created_at ON egg_production_idempotency (created_at);
@@ -0,0 +1,122 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final WebFilterChain passThrough = exchange -> Mono.empty();
+    private EggProductionProperties.Admission config;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        config = new EggProductionProperties().getAdmission();
+        config.getRoles().put("USER", new EggProductionProperties.Rate(1, 2));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Agotada la ráfaga del usuario debería responder 429 hasta que se recargue su bucket")
+    void rateLimitsPerSubject() {
+        AdmissionControlFilter filter = new AdmissionControlFilter(config, meterRegistry, clock::get);
+
+        assertThat(status(filter, exchange("/egg-production", "uid-1", "USER"), passThrough)).isNull();
+        assertThat(status(filter, exchange("/egg-production", "uid-1", "USER"), passThrough)).isNull();
+        ServerWebExchange limited = exchange("/egg-production", "uid-1", "USER");
+        assertThat(status(filter, limited, passThrough)).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        // Otro usuario tiene su propio bucket y un ADMIN usa la tasa de su rol
+        assertThat(status(filter, exchange("/egg-production", "uid-2", "USER"), passThrough)).isNull();
+        assertThat(status(filter, exchange("/egg-production", "uid-1", "ADMIN"), passThrough)).isNull();
+
+        clock.addAndGet(1_000_000_000L);
+        assertThat(status(filter, exchange("/egg-production", "uid-1", "USER"), passThrough)).isNull();
+        assertThat(meterRegistry.counter(AdmissionControlFilter.REJECTED_METRIC, "reason", "rate").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con el tope de peticiones a la base de datos ocupado debería responder 503 sin esperar")
+    void shedsDatabaseBoundRequests() {
+        config.setMaxConcurrentRequests(1);
+        config.getRoles().clear();
+        config.getDefaultRate().setRequestsPerSecond(0);
+        AdmissionControlFilter filter = new AdmissionControlFilter(config, meterRegistry, clock::get);
+        Sinks.Empty<Void> slow = Sinks.empty();
+
+        filter.filter(exchange("/egg-production/export.csv", "uid-1", "USER"), exchange -> slow.asMono()).subscribe();
+        assertThat(filter.inFlight()).isEqualTo(1);
+
+        ServerWebExchange rejected = exchange("/egg-production/7", "uid-2", "USER");
+        assertThat(status(filter, rejected, passThrough)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        // Las series en memoria y el feed no usan conexiones
+        assertThat(status(filter, exchange("/egg-production/series/summary", "uid-2", "USER"), passThrough)).isNull();
+        assertThat(status(filter, exchange("/egg-production/stream", "uid-2", "USER"), passThrough)).isNull();
+
+        slow.tryEmitEmpty();
+        assertThat(filter.inFlight()).isZero();
+        assertThat(status(filter, exchange("/egg-production/7", "uid-2", "USER"), passThrough)).isNull();
+        assertThat(meterRegistry.get(AdmissionControlFilter.IN_FLIGHT_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Las rutas públicas no tienen límite por usuario y los roles se configuran sin distinguir mayúsculas")
+    void anonymousAndRoleBinding() {
+        config.getDefaultRate().setBurst(1);
+        AdmissionControlFilter filter = new AdmissionControlFilter(config, meterRegistry, clock::get);
+        for (int i = 0; i < 5; i++) {
+            ServerWebExchange probe = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health/readiness"));
+            assertThat(status(filter, probe, passThrough)).isNull();
+        }
+
+        EggProductionProperties.Admission bound = new Binder(new MapConfigurationPropertySource(Map.of(
+                "egg-production.admission.roles.user.requests-per-second", "3")))
+                .bindOrCreate("egg-production", EggProductionProperties.class)
+                .getAdmission();
+        assertThat(bound.getRoles().get("USER").getRequestsPerSecond()).isEqualTo(3);
+        assertThat(bound.getRoles().get("ADMIN").getRequestsPerSecond()).isEqualTo(50);
+    }
+
+    private static HttpStatus status(AdmissionControlFilter filter, ServerWebExchange exchange, WebFilterChain chain) {
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static ServerWebExchange exchange(String path, String subject, String role) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        CustomAuthenticationToken token = new CustomAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)).mutate()
+                .principal(Mono.just(token))
+                .build();
+    }
+}
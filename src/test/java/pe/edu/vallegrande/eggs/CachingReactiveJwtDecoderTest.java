@@ -0,0 +1,214 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verificación de tokens contra un JWKS en disco, sin salir a la red.
+ */
+public class CachingReactiveJwtDecoderTest {
+
+    @TempDir
+    Path dir;
+
+    private RSAKey signingKey;
+    private Path jwksFile;
+    private RefreshingJwkSource jwkSource;
+    private ReactiveJwtDecoder verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        jwksFile = dir.resolve("jwks.json");
+        Files.writeString(jwksFile, new JWKSet(signingKey.toPublicJWK()).toString());
+
+        jwkSource = new RefreshingJwkSource(new FileSystemResource(jwksFile), Duration.ofHours(1), Duration.ZERO,
+                Duration.ofSeconds(5));
+        jwkSource.refresh().block();
+        verifier = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwkSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Debería verificar la firma una sola vez por token")
+    void decodesOncePerToken() throws Exception {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifier, 100, Duration.ofHours(1));
+        String token = sign(signingKey, "uid-1", Instant.now().plusSeconds(3600));
+
+        Jwt first = decoder.decode(token).block();
+        Jwt second = decoder.decode(token).block();
+
+        assertThat(first.getSubject()).isEqualTo("uid-1");
+        assertThat(second).isSameAs(first);
+        assertThat(decoder.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("No debería guardar tokens inválidos")
+    void doesNotCacheInvalidTokens() throws Exception {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifier, 100, Duration.ofHours(1));
+        RSAKey otherKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        String forged = sign(otherKey, "intruso", Instant.now().plusSeconds(3600));
+
+        StepVerifier.create(decoder.decode(forged))
+                .expectError(JwtException.class)
+                .verify();
+
+        assertThat(decoder.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Debería recargar el JWKS cuando llega un kid desconocido")
+    void refreshesOnKeyRotation() throws Exception {
+        RSAKey rotated = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        Files.writeString(jwksFile, new JWKSet(List.of(signingKey.toPublicJWK(), rotated.toPublicJWK())).toString());
+
+        StepVerifier.create(verifier.decode(sign(rotated, "uid-2", Instant.now().plusSeconds(3600))))
+                .assertNext(jwt -> assertThat(jwt.getSubject()).isEqualTo("uid-2"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Recién creado debería refrescar ante un kid desconocido aunque la primera lectura haya fallado")
+    void refreshesBeforeFirstSuccessfulLoad() throws Exception {
+        Path missing = dir.resolve("later.json");
+        RefreshingJwkSource source = new RefreshingJwkSource(new FileSystemResource(missing),
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(5));
+        try {
+            Files.writeString(missing, new JWKSet(signingKey.toPublicJWK()).toString());
+            ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(source::select).build();
+
+            StepVerifier.create(decoder.decode(sign(signingKey, "uid-1", Instant.now().plusSeconds(3600))))
+                    .assertNext(jwt -> assertThat(jwt.getSubject()).isEqualTo("uid-1"))
+                    .verifyComplete();
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Los kid desconocidos que llegan a la vez deberían esperar una sola lectura del JWKS")
+    void sharesInFlightRefresh() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        FileSystemResource slow = new FileSystemResource(jwksFile) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getInputStream();
+            }
+        };
+        RefreshingJwkSource source = new RefreshingJwkSource(slow, Duration.ofHours(1), Duration.ZERO,
+                Duration.ofSeconds(5));
+        try {
+            source.refresh().block();
+            RSAKey rotated = new RSAKeyGenerator(2048).keyID("key-2").generate();
+            Files.writeString(jwksFile, new JWKSet(List.of(signingKey.toPublicJWK(), rotated.toPublicJWK())).toString());
+            ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(source::select).build();
+            String token = sign(rotated, "uid-2", Instant.now().plusSeconds(3600));
+            int before = loads.get();
+
+            StepVerifier.create(Flux.range(0, 5).flatMap(i -> decoder.decode(token)))
+                    .expectNextCount(5)
+                    .verifyComplete();
+
+            assertThat(loads.get() - before).isEqualTo(1);
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Un JWKS que no responde debería fallar por timeout y dejar refrescar de nuevo")
+    void hangingRefreshTimesOut() throws Exception {
+        AtomicBoolean hang = new AtomicBoolean();
+        CountDownLatch release = new CountDownLatch(1);
+        FileSystemResource unresponsive = new FileSystemResource(jwksFile) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                if (hang.get()) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getInputStream();
+            }
+        };
+        RefreshingJwkSource source = new RefreshingJwkSource(unresponsive, Duration.ofHours(1), Duration.ZERO,
+                Duration.ofMillis(200));
+        try {
+            source.refresh().block();
+            RSAKey rotated = new RSAKeyGenerator(2048).keyID("key-2").generate();
+            Files.writeString(jwksFile, new JWKSet(List.of(signingKey.toPublicJWK(), rotated.toPublicJWK())).toString());
+            ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(source::select).build();
+            String token = sign(rotated, "uid-2", Instant.now().plusSeconds(3600));
+
+            hang.set(true);
+            StepVerifier.create(decoder.decode(token))
+                    .expectError()
+                    .verify(Duration.ofSeconds(5));
+
+            hang.set(false);
+            StepVerifier.create(decoder.decode(token))
+                    .assertNext(jwt -> assertThat(jwt.getSubject()).isEqualTo("uid-2"))
+                    .verifyComplete();
+        } finally {
+            release.countDown();
+            source.destroy();
+        }
+    }
+
+    private static String sign(RSAKey key, String subject, Instant expiresAt) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .claim("role", "admin")
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,99 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionPoolHealthIndicatorTest {
+
+    private ConnectionPool pool;
+    private DatabaseWarmup warmup;
+    private EggProductionProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID()))
+                .initialSize(0)
+                .maxSize(1)
+                .maxAcquireTime(Duration.ofSeconds(5))
+                .build());
+        warmup = mock(DatabaseWarmup.class);
+        properties = new EggProductionProperties();
+        properties.getPool().setReadinessMaxPending(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.dispose();
+    }
+
+    @Test
+    @DisplayName("Debería estar fuera de servicio hasta terminar el calentamiento")
+    void outOfServiceWhileWarmingUp() {
+        when(warmup.isFinished()).thenReturn(false);
+
+        StepVerifier.create(indicator().health())
+                .assertNext(health -> assertThat(health.getStatus())
+                        .isEqualTo(Status.OUT_OF_SERVICE))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Debería reportar el pool y salir de servicio si hay peticiones esperando conexión")
+    void reflectsPoolSaturation() {
+        when(warmup.isFinished()).thenReturn(true);
+        ConnectionPoolHealthIndicator indicator = indicator();
+
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> {
+                    assertThat(health.getStatus()).isEqualTo(Status.UP);
+                    assertThat(health.getDetails()).containsEntry("maxAllocated", 1);
+                })
+                .verifyComplete();
+
+        // La única conexión queda tomada y una segunda petición queda en espera
+        Connection held = Mono.from(pool.create()).block();
+        Disposable waiting = Mono.from(pool.create()).subscribe();
+
+        StepVerifier.create(indicator.health())
+                .assertNext(health -> {
+                    assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+                    assertThat(health.getDetails()).containsEntry("pending", 1);
+                })
+                .verifyComplete();
+
+        waiting.dispose();
+        Mono.from(held.close()).block();
+    }
+
+    @Test
+    @DisplayName("Debería encontrar el pool detrás del envoltorio de métricas")
+    void unwrapsTimedConnectionFactory() {
+        MetricsConfig.TimedConnectionFactory timed =
+                new MetricsConfig.TimedConnectionFactory(pool, new SimpleMeterRegistry(), "connectionFactory");
+
+        assertThat(DatabaseWarmup.pool(timed)).isSameAs(pool);
+    }
+
+    private ConnectionPoolHealthIndicator indicator() {
+        return new ConnectionPoolHealthIndicator(pool, warmup, properties);
+    }
+}
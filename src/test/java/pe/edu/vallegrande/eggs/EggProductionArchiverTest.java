@@ -0,0 +1,104 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.repository.EggProductionArchiveRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EggProductionArchiverTest {
+
+    private static final Instant NOW = Instant.parse("2025-06-15T10:00:00Z");
+
+    private EggProductionArchiveRepository repository;
+    private EggProductionProperties properties;
+    private EggProductionCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private EggProductionArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EggProductionArchiveRepository.class);
+        properties = new EggProductionProperties();
+        properties.getArchive().setBatchSize(2);
+        properties.getArchive().setInactiveAfter(Duration.ofDays(30));
+        cache = new EggProductionCache(properties, new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        TransactionalOperator transactions = mock(TransactionalOperator.class);
+        when(transactions.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(inv -> inv.getArgument(0));
+        archiver = new EggProductionArchiver(repository, transactions, cache, new ConnectionPoolThrottle(null, properties),
+                properties, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+        when(repository.ensurePartitions(anyInt())).thenReturn(Mono.just(0));
+    }
+
+    @Test
+    @DisplayName("Debería archivar por tandas hasta que una venga incompleta y vaciar la caché")
+    void archivesInBatches() {
+        Instant inactiveBefore = NOW.minus(Duration.ofDays(30));
+        when(repository.archiveBatch(inactiveBefore, null, 2))
+                .thenReturn(Flux.just(1, 2))
+                .thenReturn(Flux.just(3, 4))
+                .thenReturn(Flux.just(5));
+        EggProductionModel cached = new EggProductionModel();
+        cached.setId(1);
+        cache.putRecord(cache.generation(), cached);
+
+        StepVerifier.create(archiver.run())
+                .expectNext(5L)
+                .verifyComplete();
+
+        verify(repository).ensurePartitions(properties.getArchive().getPartitionsAhead());
+        verify(repository, times(3)).archiveBatch(inactiveBefore, null, 2);
+        assertThat(cache.getRecord(1)).isNull();
+        assertThat(meterRegistry.counter(EggProductionArchiver.METRIC).count()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Con retention debería archivar también lo registrado antes de esa antigüedad")
+    void archivesOldRecordsWithRetention() {
+        properties.getArchive().setRetention(Period.ofYears(5));
+        when(repository.archiveBatch(any(), eq(LocalDate.of(2020, 6, 15)), eq(2))).thenReturn(Flux.empty());
+
+        StepVerifier.create(archiver.run())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(repository).archiveBatch(NOW.minus(Duration.ofDays(30)), LocalDate.of(2020, 6, 15), 2);
+    }
+
+    @Test
+    @DisplayName("Un error de la base de datos no debería cortar el trabajo periódico")
+    void errorsWaitForNextRun() {
+        when(repository.ensurePartitions(anyInt())).thenReturn(Mono.error(new IllegalStateException("sin conexión")));
+        when(repository.archiveBatch(any(), isNull(), anyInt())).thenReturn(Flux.empty());
+
+        StepVerifier.create(archiver.run())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+}
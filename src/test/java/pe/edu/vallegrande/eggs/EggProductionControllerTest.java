@@ -1,16 +1,61 @@
 package pe.edu.vallegrande.eggs.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Readable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.MultiValueMap;
+import pe.edu.vallegrande.eggs.config.CodecConfig;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionImportProgress;
 import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesPoint;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesSummary;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionIdempotencyRepository;
+import pe.edu.vallegrande.eggs.service.EggProductionFeed;
+import pe.edu.vallegrande.eggs.service.EggProductionIdempotency;
 import pe.edu.vallegrande.eggs.service.EggProductionService;
+import pe.edu.vallegrande.eggs.service.EggProductionStatsService;
+import pe.edu.vallegrande.eggs.service.EggProductionTimeSeries;
+import pe.edu.vallegrande.eggs.service.EggProductionWrite;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -18,12 +63,35 @@ public class EggProductionControllerTest {
 
     private WebTestClient webTestClient;
     private EggProductionService service;
+    private EggProductionStatsService statsService;
+    private SimpleMeterRegistry meterRegistry;
+    private EggProductionFeed feed;
+    private EggProductionTimeSeries timeSeries;
 
     @BeforeEach
     void setup() {
         service = mock(EggProductionService.class);
-        EggProductionController controller = new EggProductionController(service);
-        webTestClient = WebTestClient.bindToController(controller).build();
+        statsService = mock(EggProductionStatsService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        EggProductionProperties properties = new EggProductionProperties();
+        // Un latido corto hace que la respuesta SSE arranque enseguida
+        properties.getStream().setHeartbeat(Duration.ofMillis(50));
+        feed = new EggProductionFeed(properties, meterRegistry);
+        timeSeries = mock(EggProductionTimeSeries.class);
+        EggProductionIdempotencyRepository idempotencyRepository = mock(EggProductionIdempotencyRepository.class);
+        when(idempotencyRepository.claim(any(), any(), any(), any())).thenReturn(Mono.just(true));
+        when(idempotencyRepository.complete(any(), any(), any())).thenReturn(Mono.empty());
+        TransactionalOperator transactions = mock(TransactionalOperator.class);
+        when(transactions.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(inv -> inv.getArgument(0));
+        EggProductionIdempotency idempotency = new EggProductionIdempotency(idempotencyRepository, transactions,
+                new ConnectionPoolThrottle(null, properties), Jackson2ObjectMapperBuilder.json().build(), properties,
+                meterRegistry);
+        EggProductionController controller = new EggProductionController(service, statsService, timeSeries, feed,
+                idempotency, properties, meterRegistry);
+        webTestClient = WebTestClient.bindToController(controller)
+                .httpMessageCodecs(configurer -> CodecConfig.register(configurer, Jackson2ObjectMapperBuilder.json().build(),
+                        Jackson2ObjectMapperBuilder.cbor().build(), Jackson2ObjectMapperBuilder.smile().build()))
+                .build();
     }
 
     @Test
@@ -33,7 +101,7 @@ public class EggProductionControllerTest {
         model.setId(1);
         model.setEstado("A");
 
-        when(service.getAll()).thenReturn(Flux.just(model));
+        when(service.getPage(null, null)).thenReturn(Flux.just(model));
 
         webTestClient.get().uri("/egg-production")
                 .exchange()
@@ -43,7 +111,222 @@ public class EggProductionControllerTest {
                 .jsonPath("$[0].id").isEqualTo(1)
                 .jsonPath("$[0].estado").isEqualTo("A");
 
+        verify(service).getPage(null, null);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production?after=&limit= - debería pasar el cursor y el tamaño de página")
+    void getAllWithCursor() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(21);
+
+        when(service.getPage(20, 10)).thenReturn(Flux.just(model));
+
+        webTestClient.get().uri("/egg-production?after=20&limit=10")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(21);
+
+        verify(service).getPage(20, 10);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production (Accept CBOR o Protobuf) - debería negociar el formato binario")
+    void getAllBinaryFormats() throws Exception {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(7);
+        model.setEstado("A");
+        when(service.getPage(null, null)).thenAnswer(inv -> Flux.just(model));
+
+        byte[] cbor = webTestClient.get().uri("/egg-production")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        JsonNode rows = Jackson2ObjectMapperBuilder.cbor().build().readTree(cbor);
+        assertThat(rows.get(0).get("id").asInt()).isEqualTo(7);
+
+        webTestClient.get().uri("/egg-production")
+                .accept(MediaType.parseMediaType(EggProductionController.APPLICATION_PROTOBUF))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(EggProductionController.APPLICATION_PROTOBUF)
+                // EggProductionList { items { id: 7, estado: "A" } }
+                .expectBody(byte[].class).isEqualTo(new byte[]{0x0A, 0x05, 0x08, 0x07, 0x32, 0x01, 'A'});
+    }
+
+    @Test
+    @DisplayName("GET /egg-production?from=&to=&estado= - debería consultar solo el rango de fechas")
+    void getAllByRange() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(5);
+        LocalDate from = LocalDate.of(2025, 1, 6);
+        LocalDate to = LocalDate.of(2025, 1, 12);
+
+        when(service.getRangePage(from, to, "A", null, null)).thenReturn(Flux.just(model));
+
+        webTestClient.get().uri("/egg-production?from=2025-01-06&to=2025-01-12&estado=A")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(5);
+
+        verify(service, never()).getPage(any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /egg-production?from= - debería responder 400 si el rango está incompleto o invertido")
+    void getAllByInvalidRange() {
+        webTestClient.get().uri("/egg-production?from=2025-01-06")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/egg-production?from=2025-01-12&to=2025-01-06")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/egg-production?from=2025-01-06&to=2025-01-12&estado=X")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production (NDJSON) - debería transmitir todos los registros fila por fila")
+    void streamAll() {
+        EggProductionModel first = new EggProductionModel();
+        first.setId(1);
+        EggProductionModel second = new EggProductionModel();
+        second.setId(2);
+
+        when(service.getAll()).thenReturn(Flux.just(first, second));
+
+        webTestClient.get().uri("/egg-production")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(EggProductionModel.class)
+                .getResponseBody()
+                .map(EggProductionModel::getId)
+                .as(StepVerifier::create)
+                .expectNext(1, 2)
+                .verifyComplete();
+
         verify(service).getAll();
+        verify(service, never()).getPage(any(), any());
+        assertThat(meterRegistry.counter(EggProductionController.ROWS_METRIC, "endpoint", "/egg-production").count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production?fields= - debería devolver solo esos campos, con ETag de la página")
+    void getAllFields() {
+        LocalDate date = LocalDate.of(2025, 1, 6);
+        when(service.getFieldsPage(any(), any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            Function<Readable, ?> writer = inv.getArgument(6);
+            return Flux.just(
+                    EggProductionCsvWriterTest.row(1, 1200, 65, 750L, date, "A"),
+                    EggProductionCsvWriterTest.row(2, 900, 50, 725L, date, "A")).map(writer);
+        });
+
+        var result = webTestClient.get()
+                .uri("/egg-production?fields=registrationDate,id,quantityEggs&from=2025-01-06&to=2025-01-12&after=0&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(String.class).returnResult();
+
+        assertThat(result.getResponseBody()).isEqualTo("["
+                + "{\"id\":1,\"quantityEggs\":1200,\"registrationDate\":\"2025-01-06\"},"
+                + "{\"id\":2,\"quantityEggs\":900,\"registrationDate\":\"2025-01-06\"}]");
+        // id y version siempre se consultan para el ETag
+        verify(service).getFieldsPage(eq(EnumSet.of(EggProductionField.ID, EggProductionField.QUANTITY_EGGS,
+                        EggProductionField.REGISTRATION_DATE, EggProductionField.VERSION)),
+                eq(date), eq(LocalDate.of(2025, 1, 12)), isNull(), eq(0), eq(2), any());
+        verify(service, never()).getRangePage(any(), any(), any(), any(), any());
+
+        webTestClient.get().uri("/egg-production?fields=id&from=2025-01-06&to=2025-01-12&after=0&limit=2")
+                .header(HttpHeaders.IF_NONE_MATCH, result.getResponseHeaders().getETag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/active?fields= (NDJSON) - debería transmitir un objeto por línea")
+    void streamAllActiveFields() {
+        when(service.getFields(any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            Function<Readable, ?> writer = inv.getArgument(4);
+            return Flux.just(EggProductionCsvWriterTest.row(7, 1200, 65, 750L, LocalDate.of(2025, 1, 6), "A"))
+                    .map(writer);
+        });
+
+        String body = webTestClient.get().uri("/egg-production/active?fields=id,priceKilo")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(body).isEqualTo("{\"id\":7,\"priceKilo\":7.50}\n");
+        verify(service).getFields(eq(EnumSet.of(EggProductionField.ID, EggProductionField.PRICE_KILO)),
+                isNull(), isNull(), eq("A"), any());
+        verify(service, never()).getAllActive();
+        assertThat(meterRegistry.counter(EggProductionController.ROWS_METRIC, "endpoint", "/egg-production/active")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production?fields= - debería rechazar campos desconocidos")
+    void getAllFieldsUnknown() {
+        webTestClient.get().uri("/egg-production?fields=id,password")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/export.csv - debería escribir el rango como CSV descargable")
+    void exportCsv() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+        when(service.exportRange(eq(from), eq(to), any())).thenAnswer(inv -> {
+            Function<Readable, ?> writer = inv.getArgument(2);
+            return Flux.just(
+                    EggProductionCsvWriterTest.row(1, 1200, 65, 750L, from, "A"),
+                    EggProductionCsvWriterTest.row(2, 900, 50, 725L, to, "I")).map(writer);
+        });
+
+        String csv = webTestClient.get().uri("/egg-production/export.csv?from=2025-01-01&to=2025-01-31")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("text/csv;charset=UTF-8")
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"egg-production_2025-01-01_2025-01-31.csv\"")
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(csv).isEqualTo("id,quantityEggs,eggsKilo,priceKilo,registrationDate,estado\r\n"
+                + "1,1200,65,7.50,2025-01-01,A\r\n"
+                + "2,900,50,7.25,2025-01-31,I\r\n");
+        assertThat(meterRegistry.counter(EggProductionController.ROWS_METRIC, "endpoint", "/egg-production/export.csv")
+                .count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/export.csv - debería rechazar un rango de más de un año")
+    void exportCsvRangeTooLong() {
+        webTestClient.get().uri("/egg-production/export.csv?from=2024-01-01&to=2025-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(service);
     }
 
     @Test
@@ -53,7 +336,7 @@ public class EggProductionControllerTest {
         model.setId(2);
         model.setEstado("A");
 
-        when(service.getAllActive()).thenReturn(Flux.just(model));
+        when(service.getActivePage(null, null)).thenReturn(Flux.just(model));
 
         webTestClient.get().uri("/egg-production/active")
                 .exchange()
@@ -62,9 +345,125 @@ public class EggProductionControllerTest {
                 .expectBody()
                 .jsonPath("$[0].estado").isEqualTo("A");
 
+        verify(service).getActivePage(null, null);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/active (NDJSON) - debería transmitir solo registros activos")
+    void streamAllActive() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(2);
+        model.setEstado("A");
+
+        when(service.getAllActive()).thenReturn(Flux.just(model));
+
+        webTestClient.get().uri("/egg-production/active")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON);
+
         verify(service).getAllActive();
     }
 
+    @Test
+    @DisplayName("GET /egg-production/stats - debería retornar los acumulados mensuales")
+    void getStats() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 12, 31);
+        when(statsService.getStats(from, to, StatsGranularity.MONTH)).thenReturn(Flux.just(
+                new EggProductionStatsModel(from, 30, 9000, 600, new BigDecimal("4500.00"))));
+
+        webTestClient.get().uri("/egg-production/stats?from=2025-01-01&to=2025-12-31&granularity=month")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].totalEggs").isEqualTo(9000)
+                .jsonPath("$[0].averagePriceKilo").isEqualTo(7.5);
+
+        verify(statsService).getStats(from, to, StatsGranularity.MONTH);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/stats - debería rechazar una granularidad desconocida")
+    void getStatsInvalidGranularity() {
+        webTestClient.get().uri("/egg-production/stats?from=2025-01-01&to=2025-12-31&granularity=week")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(statsService);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/series/summary - debería resumir la métrica desde la serie en memoria")
+    void getSeriesSummary() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+        when(timeSeries.isReady()).thenReturn(true);
+        when(timeSeries.summarize(SeriesMetric.PRICE_KILO, from, to)).thenReturn(
+                new EggProductionSeriesSummary(SeriesMetric.PRICE_KILO, from, to, 20, null, 7.5, 7.0, 8.25));
+
+        webTestClient.get().uri("/egg-production/series/summary?from=2025-01-01&to=2025-01-31&metric=price_kilo")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.days").isEqualTo(20)
+                .jsonPath("$.average").isEqualTo(7.5)
+                .jsonPath("$.max").isEqualTo(8.25);
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/series/moving-average - debería validar la ventana y responder 503 sin carga")
+    void getSeriesMovingAverage() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        when(timeSeries.isReady()).thenReturn(false, true);
+
+        webTestClient.get().uri("/egg-production/series/moving-average?from=2025-01-01&to=2025-01-02")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+
+        when(timeSeries.movingAverage(SeriesMetric.EGGS, from, from.plusDays(1), 7)).thenReturn(List.of(
+                new EggProductionSeriesPoint(from, 100.0), new EggProductionSeriesPoint(from.plusDays(1), 120.5)));
+        webTestClient.get().uri("/egg-production/series/moving-average?from=2025-01-01&to=2025-01-02")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].value").isEqualTo(120.5);
+
+        webTestClient.get().uri("/egg-production/series/moving-average?from=2025-01-01&to=2025-01-02&window=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /egg-production/stream (SSE) - debería enviar los cambios publicados con su tipo como evento")
+    void stream() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(8);
+        model.setEstado("I");
+
+        Flux<ServerSentEvent<EggProductionModel>> body = webTestClient.get().uri("/egg-production/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<EggProductionModel>>() {})
+                .getResponseBody();
+
+        StepVerifier.create(body.filter(event -> event.data() != null))
+                .then(() -> feed.publishLocal(EggProductionEvent.Type.STATUS_CHANGED, model))
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("STATUS_CHANGED");
+                    assertThat(event.data().getId()).isEqualTo(8);
+                    assertThat(event.data().getEstado()).isEqualTo("I");
+                })
+                // Al apagar la aplicación el stream se cierra, latidos incluidos
+                .then(feed::close)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("GET /egg-production/{id} - debería retornar un registro por ID")
     void getById() {
@@ -82,6 +481,52 @@ public class EggProductionControllerTest {
         verify(service).getById(5);
     }
 
+    @Test
+    @DisplayName("GET /egg-production/{id} - debería responder 304 si el cliente tiene la misma versión")
+    void getByIdNotModified() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(5);
+        model.setVersion(2L);
+
+        when(service.getById(5)).thenReturn(Mono.just(model));
+
+        webTestClient.get().uri("/egg-production/5")
+                .header("If-None-Match", "\"2\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", "\"2\"")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("GET /egg-production - debería responder 304 si la página no cambió")
+    void getAllNotModified() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(1);
+        model.setVersion(0L);
+
+        when(service.getPage(null, null)).thenReturn(Flux.just(model));
+
+        String etag = webTestClient.get().uri("/egg-production")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get().uri("/egg-production")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        model.setVersion(1L);
+        webTestClient.get().uri("/egg-production")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     @Test
     @DisplayName("POST /egg-production - debería crear un nuevo registro")
     void create() {
@@ -102,13 +547,128 @@ public class EggProductionControllerTest {
         verify(service).create(any());
     }
 
+    @Test
+    @DisplayName("POST /egg-production con Idempotency-Key - un reintento debería recibir el mismo registro sin crear otro")
+    void createIdempotent() {
+        EggProductionModel saved = new EggProductionModel();
+        saved.setId(3);
+        saved.setQuantityEggs(1200);
+        when(service.createWrite(any())).thenReturn(Mono.just(new EggProductionWrite(saved, () -> { })));
+        EggProductionModel body = new EggProductionModel();
+        body.setQuantityEggs(1200);
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient.post().uri("/egg-production")
+                    .header(EggProductionController.IDEMPOTENCY_KEY, "tablet-1:42")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo(3);
+        }
+        verify(service, times(1)).createWrite(any());
+
+        // La misma clave con otro cuerpo no es un reintento
+        body.setQuantityEggs(1300);
+        webTestClient.post().uri("/egg-production")
+                .header(EggProductionController.IDEMPOTENCY_KEY, "tablet-1:42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        webTestClient.post().uri("/egg-production")
+                .header(EggProductionController.IDEMPOTENCY_KEY, "x".repeat(EggProductionController.MAX_IDEMPOTENCY_KEY_LENGTH + 1))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(service, times(1)).createWrite(any());
+        verify(service, never()).create(any());
+    }
+
+    @Test
+    @DisplayName("POST /egg-production - con la cola de altas llena debería responder 503 con Retry-After")
+    void createQueueFull() {
+        when(service.create(any())).thenReturn(Mono.error(new RejectedExecutionException("La cola de altas está llena")));
+
+        webTestClient.post().uri("/egg-production")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"quantityEggs\":10}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    @DisplayName("POST /egg-production/batch - debería aceptar un arreglo y responder por elemento")
+    void createBatch() {
+        when(service.createBatch(any())).thenReturn(Flux.just(
+                EggProductionBatchResult.ok(0, 11),
+                EggProductionBatchResult.failed(1, "quantityEggs es obligatorio")));
+
+        webTestClient.post().uri("/egg-production/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"quantityEggs\":10},{}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(11)
+                .jsonPath("$[0].error").doesNotExist()
+                .jsonPath("$[1].error").isEqualTo("quantityEggs es obligatorio");
+
+        verify(service).createBatch(any());
+    }
+
+    @Test
+    @DisplayName("POST /egg-production/import - debería rechazar por línea lo ilegible e informar el total")
+    @SuppressWarnings("unchecked")
+    void importCsv() {
+        when(service.importRows(any())).thenAnswer(invocation -> ((Flux<Tuple2<Long, EggProductionModel>>) invocation
+                .getArgument(0)).map(row -> EggProductionBatchResult.ok(row.getT1(), row.getT2().getQuantityEggs())));
+
+        List<EggProductionImportProgress> events = webTestClient.post().uri("/egg-production/import")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .bodyValue(csv("\uFEFFid,quantityEggs,eggsKilo,priceKilo,registrationDate,estado\r\n"
+                        + "1,120,8,7.50,2025-01-06,A\r\n"
+                        + "\r\n"
+                        + "2,90,6,7.50,06/01/2025,A\r\n"
+                        + ",\"60\",4,,2025-01-07,\"A\"\r\n"))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(EggProductionImportProgress.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getLine()).isEqualTo(4);
+        assertThat(events.get(0).getError()).isEqualTo("registrationDate no es válido: 06/01/2025");
+        assertThat(events.get(1).isDone()).isTrue();
+        assertThat(events.get(1).getImported()).isEqualTo(2);
+        assertThat(events.get(1).getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("POST /egg-production/import - sin las columnas obligatorias debería responder 400")
+    void importCsvBadHeader() {
+        webTestClient.post().uri("/egg-production/import")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .bodyValue(csv("cantidad,fecha\n120,2025-01-06\n"))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(service, never()).importRows(any());
+    }
+
     @Test
     @DisplayName("PUT /egg-production/{id} - debería actualizar un registro existente")
     void update() {
         EggProductionModel model = new EggProductionModel();
         model.setId(4);
 
-        when(service.update(eq(4), any())).thenReturn(Mono.just(model));
+        when(service.update(eq(4), any(), isNull())).thenReturn(Mono.just(model));
 
         webTestClient.put().uri("/egg-production/4")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -118,7 +678,87 @@ public class EggProductionControllerTest {
                 .expectBody()
                 .jsonPath("$.id").isEqualTo(4);
 
-        verify(service).update(eq(4), any());
+        verify(service).update(eq(4), any(), isNull());
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/{id} con If-Match - debería pasar la versión esperada")
+    void updateWithIfMatch() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(4);
+        model.setVersion(8L);
+
+        when(service.update(eq(4), any(), eq(7L))).thenReturn(Mono.just(model));
+
+        webTestClient.put().uri("/egg-production/4")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"7\"")
+                .bodyValue(model)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"8\"");
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/{id} con Idempotency-Key - el reintento no debería fallar con 412 ni actualizar otra vez")
+    void updateIdempotent() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(4);
+        model.setVersion(8L);
+
+        when(service.updateWrite(eq(4), any(), eq(7L))).thenReturn(Mono.just(new EggProductionWrite(model, () -> { })));
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient.put().uri("/egg-production/4")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("If-Match", "\"7\"")
+                    .header(EggProductionController.IDEMPOTENCY_KEY, "tablet-1:43")
+                    .bodyValue(model)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals("ETag", "\"8\"");
+        }
+        verify(service, times(1)).updateWrite(eq(4), any(), eq(7L));
+        verify(service, never()).update(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/{id} con If-Match - debería responder 412 si la versión cambió")
+    void updateVersionConflict() {
+        when(service.update(eq(4), any(), eq(7L)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("versión distinta")));
+
+        webTestClient.put().uri("/egg-production/4")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"7\"")
+                .bodyValue(new EggProductionModel())
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/{id} - debería responder 404 si el registro no existe")
+    void updateMissing() {
+        when(service.update(eq(99), any(), isNull())).thenReturn(Mono.empty());
+
+        webTestClient.put().uri("/egg-production/99")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new EggProductionModel())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/{id} con If-Match - debería responder 412 si el registro no existe")
+    void updateMissingWithIfMatch() {
+        when(service.update(eq(99), any(), eq(7L))).thenReturn(Mono.empty());
+
+        webTestClient.put().uri("/egg-production/99")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"7\"")
+                .bodyValue(new EggProductionModel())
+                .exchange()
+                .expectStatus().isEqualTo(412);
     }
 
     @Test
@@ -156,4 +796,57 @@ public class EggProductionControllerTest {
 
         verify(service).inactivate(8);
     }
+
+    @Test
+    @DisplayName("PUT /egg-production/status - debería cambiar el estado por lista de ids")
+    void changeStatusByIds() {
+        when(service.changeStatusByIds("I", List.of(1, 2, 3))).thenReturn(Mono.just(3L));
+
+        webTestClient.put().uri("/egg-production/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"estado\":\"I\",\"ids\":[1,2,3]}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.affected").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/status - debería cambiar el estado por rango de fechas")
+    void changeStatusByDateRange() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 3, 31);
+        when(service.changeStatusByDateRange("I", from, to)).thenReturn(Mono.just(90L));
+
+        webTestClient.put().uri("/egg-production/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"estado\":\"I\",\"from\":\"2025-01-01\",\"to\":\"2025-03-31\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.affected").isEqualTo(90);
+    }
+
+    @Test
+    @DisplayName("PUT /egg-production/status - debería rechazar ids y rango a la vez")
+    void changeStatusRejectsAmbiguousRequest() {
+        webTestClient.put().uri("/egg-production/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"estado\":\"I\",\"ids\":[1],\"from\":\"2025-01-01\",\"to\":\"2025-03-31\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(service);
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> csv(String content) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "produccion.csv";
+            }
+        }).contentType(EggProductionController.TEXT_CSV);
+        return builder.build();
+    }
 }
@@ -0,0 +1,151 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionCreateBatcherTest {
+
+    private EggProductionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private EggProductionCreateBatcher batcher;
+    private final List<Integer> flushedSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    @BeforeEach
+    void setUp() {
+        properties = new EggProductionProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setMaxBatchSize(10);
+        properties.getWriteBehind().setMaxDelay(Duration.ofMillis(50));
+        meterRegistry = new SimpleMeterRegistry();
+        batcher = new EggProductionCreateBatcher(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    @DisplayName("Las altas concurrentes deberían insertarse en una sola tanda, cada una con su id")
+    void coalescesConcurrentCreates() {
+        batcher.start(this::assignIds);
+
+        StepVerifier.create(Flux.merge(batcher.submit(model(10)), batcher.submit(model(20)), batcher.submit(model(30)))
+                        .map(EggProductionModel::getQuantityEggs)
+                        .collectList())
+                .assertNext(quantities -> assertThat(quantities).containsExactlyInAnyOrder(10, 20, 30))
+                .verifyComplete();
+
+        assertThat(flushedSizes).containsExactly(3);
+        assertThat(meterRegistry.get(EggProductionCreateBatcher.BATCH_SIZE_METRIC).summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(EggProductionCreateBatcher.FLUSH_METRIC).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(EggProductionCreateBatcher.QUEUED_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Con la cola llena debería rechazar el alta en lugar de esperar")
+    void rejectsWhenFull() {
+        properties.getWriteBehind().setQueueCapacity(1);
+        properties.getWriteBehind().setShutdownTimeout(Duration.ofMillis(100));
+        Sinks.One<List<EggProductionModel>> pending = Sinks.one();
+        batcher.start(models -> pending.asMono());
+
+        batcher.submit(model(10)).subscribe();
+        StepVerifier.create(batcher.submit(model(20)))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+
+        assertThat(meterRegistry.counter(EggProductionCreateBatcher.REJECTED_METRIC).count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sin iniciar (write-behind deshabilitado) debería rechazar las altas")
+    void rejectsWhenNotStarted() {
+        properties.getWriteBehind().setEnabled(false);
+        batcher.start(this::assignIds);
+
+        StepVerifier.create(batcher.submit(model(10)))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Si falla la tanda, el error debería llegar solo al alta que lo provoca")
+    void batchFailureFallsBackPerItem() {
+        batcher.start(models -> models.stream().anyMatch(model -> model.getQuantityEggs() < 0)
+                ? Mono.error(new IllegalArgumentException("cantidad negativa"))
+                : assignIds(models));
+
+        Mono<Object> ok = batcher.submit(model(10)).map(EggProductionModel::getId);
+        Mono<Object> failed = batcher.submit(model(-1)).map(saved -> (Object) saved)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(e.getMessage()));
+
+        StepVerifier.create(Flux.merge(ok, failed).collectList())
+                .assertNext(results -> assertThat(results).hasSize(2).contains("cantidad negativa"))
+                .verifyComplete();
+
+        assertThat(flushedSizes).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("Al cerrar debería esperar a que se inserten las altas encoladas")
+    void closeDrainsQueue() {
+        properties.getWriteBehind().setMaxDelay(Duration.ofMillis(200));
+        batcher.start(this::assignIds);
+        AtomicReference<EggProductionModel> saved = new AtomicReference<>();
+
+        batcher.submit(model(10)).subscribe(saved::set);
+        batcher.close();
+
+        assertThat(saved.get().getId()).isEqualTo(1);
+        assertThat(flushedSizes).containsExactly(1);
+        StepVerifier.create(batcher.submit(model(20)))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Al cerrar no debería esperar más de shutdown-timeout")
+    void closeGivesUpAfterTimeout() {
+        properties.getWriteBehind().setShutdownTimeout(Duration.ofMillis(100));
+        batcher.start(models -> Mono.never());
+
+        batcher.submit(model(10)).subscribe();
+        long start = System.nanoTime();
+        batcher.close();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get(EggProductionCreateBatcher.QUEUED_METRIC).gauge().value()).isEqualTo(1);
+    }
+
+    private Mono<List<EggProductionModel>> assignIds(List<EggProductionModel> models) {
+        flushedSizes.add(models.size());
+        models.forEach(model -> model.setId(nextId.getAndIncrement()));
+        return Mono.just(models);
+    }
+
+    private static EggProductionModel model(int quantity) {
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(quantity);
+        return model;
+    }
+}
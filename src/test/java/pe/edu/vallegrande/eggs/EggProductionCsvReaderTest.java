@@ -0,0 +1,55 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EggProductionCsvReaderTest {
+
+    @Test
+    @DisplayName("Debería leer las columnas por nombre, en cualquier orden y con campos entre comillas")
+    void parseByHeaderName() {
+        EggProductionCsvReader reader = EggProductionCsvReader.fromHeader("RegistrationDate,estado,quantityEggs,priceKilo");
+
+        EggProductionModel model = reader.parse("2025-01-06,\"A\",120,7.50");
+
+        assertThat(model.getRegistrationDate()).isEqualTo(LocalDate.of(2025, 1, 6));
+        assertThat(model.getEstado()).isEqualTo("A");
+        assertThat(model.getQuantityEggs()).isEqualTo(120);
+        assertThat(model.getPriceKilo()).isEqualByComparingTo(new BigDecimal("7.50"));
+        assertThat(model.getEggsKilo()).isNull();
+        assertThat(model.getId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Debería leer lo que escribe la exportación, incluidas las comillas dobles escapadas")
+    void parseExportedLine() {
+        EggProductionCsvReader reader = EggProductionCsvReader
+                .fromHeader("\uFEFFid,quantityEggs,eggsKilo,priceKilo,registrationDate,estado");
+
+        EggProductionModel model = reader.parse("7,90,6,,2025-02-01,\"dice \"\"A\"\", luego I\"");
+
+        assertThat(model.getQuantityEggs()).isEqualTo(90);
+        assertThat(model.getPriceKilo()).isNull();
+        assertThat(model.getEstado()).isEqualTo("dice \"A\", luego I");
+    }
+
+    @Test
+    @DisplayName("Un valor con formato inválido o un encabezado incompleto debería indicar la columna")
+    void rejectsInvalidValues() {
+        EggProductionCsvReader reader = EggProductionCsvReader.fromHeader("quantityEggs,registrationDate");
+
+        assertThatThrownBy(() -> reader.parse("doce,2025-01-06"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("quantityEggs no es válido: doce");
+        assertThatThrownBy(() -> EggProductionCsvReader.fromHeader("quantityEggs,fecha"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("registrationDate");
+    }
+}
@@ -0,0 +1,85 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import io.r2dbc.spi.Readable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionCsvWriterTest {
+
+    private static final String HEADER = "id,quantityEggs,eggsKilo,priceKilo,registrationDate,estado\r\n";
+
+    @Test
+    @DisplayName("Debería escribir encabezado y filas con precio en soles, fecha ISO y campos vacíos para null")
+    void writesRows() {
+        EggProductionCsvWriter writer = new EggProductionCsvWriter(DefaultDataBufferFactory.sharedInstance, 1024);
+
+        assertThat(writer.write(row(1, 1200, 65, 750L, LocalDate.of(2025, 3, 7), "A"))).isFalse();
+        assertThat(writer.write(row(2, null, null, 5L, LocalDate.of(999, 12, 31), null))).isFalse();
+        assertThat(writer.write(row(3, 0, 0, null, null, "x,\"y\""))).isFalse();
+
+        assertThat(text(writer.finish())).isEqualTo(HEADER
+                + "1,1200,65,7.50,2025-03-07,A\r\n"
+                + "2,,,0.05,0999-12-31,\r\n"
+                + "3,0,0,,,\"x,\"\"y\"\"\"\r\n");
+    }
+
+    @Test
+    @DisplayName("Debería avisar cuando el bloque se llena y seguir en un buffer nuevo")
+    void splitsIntoChunks() {
+        EggProductionCsvWriter writer = new EggProductionCsvWriter(DefaultDataBufferFactory.sharedInstance, 80);
+
+        assertThat(writer.write(row(1, 1200, 65, 750L, LocalDate.of(2025, 3, 7), "A"))).isTrue();
+        String first = text(writer.take());
+        assertThat(writer.write(row(2, 1300, 66, 800L, LocalDate.of(2025, 3, 8), "I"))).isFalse();
+        String last = text(writer.finish());
+
+        assertThat(first).isEqualTo(HEADER + "1,1200,65,7.50,2025-03-07,A\r\n");
+        assertThat(last).isEqualTo("2,1300,66,8.00,2025-03-08,I\r\n");
+    }
+
+    @Test
+    @DisplayName("Después de liberar (cancelación) debería ignorar las filas que aún lleguen")
+    void ignoresRowsAfterRelease() {
+        EggProductionCsvWriter writer = new EggProductionCsvWriter(DefaultDataBufferFactory.sharedInstance, 10);
+        writer.release();
+
+        assertThat(writer.write(row(1, 1200, 65, 750L, LocalDate.of(2025, 3, 7), "A"))).isFalse();
+        assertThat(writer.finish()).isNull();
+    }
+
+    static Readable row(Integer id, Integer eggs, Integer kilos, Long cents, LocalDate date, String estado) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", id);
+        values.put("quantity_eggs", eggs);
+        values.put("eggs_kilo", kilos);
+        values.put("price_cents", cents);
+        values.put("registration_date", date);
+        values.put("estado", estado);
+        List<String> columns = List.of("id", "quantity_eggs", "eggs_kilo", "price_cents", "registration_date", "estado");
+        return new Readable() {
+            @Override
+            public <T> T get(int index, Class<T> type) {
+                return get(columns.get(index), type);
+            }
+
+            @Override
+            public <T> T get(String name, Class<T> type) {
+                return type.cast(values.get(name));
+            }
+        };
+    }
+
+    private static String text(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package pe.edu.vallegrande.eggs.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba contra H2 en memoria como sustituto local de PostgreSQL.
+ */
+public class EggProductionCustomRepositoryTest {
+
+    private DatabaseClient databaseClient;
+    private EggProductionCustomRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionFactory connectionFactory =
+                ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+        databaseClient = DatabaseClient.create(connectionFactory);
+        databaseClient.sql("CREATE TABLE egg_production (" +
+                        "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
+                        "quantity_eggs INTEGER, eggs_kilo INTEGER, price_kilo DECIMAL(10, 2), " +
+                        "registration_date DATE, estado VARCHAR(1), version BIGINT DEFAULT 0 NOT NULL)")
+                .then()
+                .block();
+        repository = new EggProductionCustomRepositoryImpl(databaseClient);
+    }
+
+    @Test
+    @DisplayName("Debería insertar varias filas en un INSERT y devolver sus ids en orden")
+    void insertAll() {
+        List<EggProductionModel> models = List.of(record(1), record(2), record(3));
+
+        StepVerifier.create(repository.insertAll(models).map(EggProductionModel::getQuantityEggs))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+
+        assertThat(models).extracting(EggProductionModel::getId).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Debería exportar el rango por fecha e id con el precio en céntimos")
+    void exportRange() {
+        repository.insertAll(List.of(record(3), record(1), record(400), record(2))).blockLast();
+
+        StepVerifier.create(repository.exportRange(LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3),
+                        row -> row.get("quantity_eggs", Integer.class) + "@" + row.get("registration_date", LocalDate.class)
+                                + "=" + row.get("price_cents", Long.class)))
+                .expectNext("1@2025-01-02=750", "2@2025-01-03=750")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Con fields debería traer solo esas columnas, filtradas y paginadas por id")
+    void findFields() {
+        List<EggProductionModel> models = List.of(record(1), record(2), record(3), record(400));
+        models.get(1).setEstado("I");
+        repository.insertAll(models).blockLast();
+        Set<EggProductionField> fields = EnumSet.of(EggProductionField.ID, EggProductionField.PRICE_KILO);
+
+        StepVerifier.create(repository.findFields(fields, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31),
+                        "A", 1, 5, row -> row.get("id", Integer.class) + "=" + row.get("price_cents", Long.class)
+                                + ":" + row.get("quantity_eggs", Integer.class)))
+                .expectErrorSatisfies(error -> assertThat(error.getMessage()).containsIgnoringCase("quantity_eggs"))
+                .verify();
+
+        StepVerifier.create(repository.findFields(fields, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31),
+                        "A", 1, 5, row -> row.get("id", Integer.class) + "=" + row.get("price_cents", Long.class)))
+                .expectNext("3=750")
+                .verifyComplete();
+
+        StepVerifier.create(repository.findFields(EnumSet.of(EggProductionField.ID), null, null, null, null, 2,
+                        row -> row.get("id", Integer.class)))
+                .expectNext(1, 2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Debería insertar en bloques sin perder filas y con los ids en orden")
+    void insertAllInChunks() {
+        int rows = 2_000;
+        List<Integer> ids = Flux.range(0, rows)
+                .map(EggProductionCustomRepositoryTest::record)
+                .buffer(500)
+                .concatMap(repository::insertAll)
+                .map(EggProductionModel::getId)
+                .collectList()
+                .block();
+
+        assertThat(ids).hasSize(rows).isSorted().doesNotHaveDuplicates();
+        Long total = databaseClient.sql("SELECT COUNT(*) AS total FROM egg_production")
+                .map(row -> row.get("total", Long.class))
+                .one()
+                .block();
+        assertThat(total).isEqualTo((long) rows);
+    }
+
+    private static EggProductionModel record(int quantity) {
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(quantity);
+        model.setEggsKilo(quantity % 20);
+        model.setPriceKilo(new BigDecimal("7.50"));
+        model.setRegistrationDate(LocalDate.of(2025, 1, 1).plusDays(quantity % 365));
+        model.setEstado("A");
+        return model;
+    }
+}
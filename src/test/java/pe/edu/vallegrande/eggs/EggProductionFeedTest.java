@@ -0,0 +1,99 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionFeedTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private EggProductionFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        EggProductionProperties properties = new EggProductionProperties();
+        properties.getStream().setBufferSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        feed = new EggProductionFeed(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Un suscriptor lento debería conservar solo los eventos más recientes")
+    void slowSubscriberKeepsLatest() {
+        StepVerifier.create(feed.subscribe(), 0)
+                .then(() -> {
+                    for (int id = 1; id <= 5; id++) {
+                        feed.publish(event(id));
+                    }
+                })
+                .thenRequest(2)
+                .assertNext(event -> assertThat(event.getRecord().getId()).isEqualTo(4))
+                .assertNext(event -> assertThat(event.getRecord().getId()).isEqualTo(5))
+                .thenCancel()
+                .verify();
+
+        assertThat(meterRegistry.counter(EggProductionFeed.DROPPED_METRIC).count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Un suscriptor lento no debería frenar a los demás")
+    void slowSubscriberDoesNotBlockOthers() {
+        List<EggProductionEvent> fast = new ArrayList<>();
+        Disposable subscription = feed.subscribe().subscribe(fast::add);
+
+        StepVerifier.create(feed.subscribe(), 0)
+                .then(() -> {
+                    for (int id = 1; id <= 5; id++) {
+                        feed.publish(event(id));
+                    }
+                })
+                .then(() -> assertThat(fast).hasSize(5))
+                .thenCancel()
+                .verify();
+        subscription.dispose();
+
+        assertThat(meterRegistry.counter(EggProductionFeed.EVENTS_METRIC).count()).isEqualTo(5);
+        assertThat(meterRegistry.get(EggProductionFeed.SUBSCRIBERS_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Las escrituras locales solo se publican mientras no haya LISTEN activo")
+    void publishLocalOnlyWithoutListener() {
+        List<EggProductionEvent> received = new ArrayList<>();
+        Disposable subscription = feed.subscribe().subscribe(received::add);
+
+        feed.setListening(true);
+        feed.publishLocal(EggProductionEvent.Type.CREATED, event(1).getRecord());
+        feed.setListening(false);
+        feed.publishLocal(EggProductionEvent.Type.CREATED, event(2).getRecord());
+        feed.publishLocal(EggProductionEvent.Type.DELETED, (EggProductionModel) null);
+        subscription.dispose();
+
+        assertThat(received).extracting(event -> event.getRecord().getId()).containsExactly(2);
+    }
+
+    @Test
+    @DisplayName("Al cerrar el feed deberían terminar todos los suscriptores")
+    void closeCompletesSubscribers() {
+        StepVerifier.create(feed.subscribe())
+                .then(feed::close)
+                .verifyComplete();
+    }
+
+    private static EggProductionEvent event(int id) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(id);
+        return new EggProductionEvent(EggProductionEvent.Type.UPDATED, model);
+    }
+}
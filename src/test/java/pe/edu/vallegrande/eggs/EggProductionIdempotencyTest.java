@@ -0,0 +1,246 @@
+package pe.edu.vallegrande.eggs.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.repository.EggProductionIdempotencyRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EggProductionIdempotencyTest {
+
+    private static final Instant NOW = Instant.parse("2025-06-15T10:00:00Z");
+
+    private EggProductionIdempotencyRepository repository;
+    private TransactionalOperator transactions;
+    private SimpleMeterRegistry meterRegistry;
+    private ObjectMapper objectMapper;
+    private EggProductionIdempotency idempotency;
+    private AtomicInteger writes;
+    private AtomicInteger effects;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EggProductionIdempotencyRepository.class);
+        when(repository.claim(anyString(), anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(repository.find(anyString(), anyString(), any())).thenReturn(Mono.empty());
+        when(repository.complete(anyString(), anyString(), anyString())).thenReturn(Mono.empty());
+        transactions = mock(TransactionalOperator.class);
+        when(transactions.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(inv -> inv.getArgument(0));
+        EggProductionProperties properties = new EggProductionProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        idempotency = new EggProductionIdempotency(repository, transactions, new ConnectionPoolThrottle(null, properties),
+                objectMapper, properties, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+        writes = new AtomicInteger();
+        effects = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Un reintento con la misma clave debería recibir el mismo registro sin repetir la escritura")
+    void replaysFromMemory() {
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNextMatches(model -> model.getId() == 1)
+                .verifyComplete();
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNextMatches(model -> model.getId() == 1)
+                .verifyComplete();
+
+        assertThat(writes).hasValue(1);
+        assertThat(effects).hasValue(1);
+        verify(repository).claim("", "k1", EggProductionIdempotency.fingerprint("POST a"), NOW.minus(Duration.ofHours(24)));
+        verify(repository).complete(eq(""), eq("k1"), anyString());
+        // Reserva, escritura y resultado en una sola transacción
+        verify(transactions).transactional(ArgumentMatchers.<Mono<Object>>any());
+        assertThat(meterRegistry.counter(EggProductionIdempotency.METRIC, "result", "replayed").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Las peticiones con la misma clave que llegan mientras la primera escribe deberían unirse a ella")
+    void joinsInFlightWrite() {
+        Sinks.One<EggProductionModel> saved = Sinks.one();
+
+        StepVerifier first = StepVerifier.create(idempotency.execute("k1", "POST a",
+                        () -> saved.asMono().map(this::written)))
+                .expectNextMatches(model -> model.getId() == 7)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNextMatches(model -> model.getId() == 7)
+                .expectComplete()
+                .verifyLater();
+        assertThat(idempotency.inFlight()).isEqualTo(1);
+
+        saved.tryEmitValue(record(7));
+        first.verify();
+        second.verify();
+
+        assertThat(writes).hasValue(0);
+        assertThat(idempotency.inFlight()).isZero();
+        assertThat(meterRegistry.counter(EggProductionIdempotency.METRIC, "result", "joined").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Si el único cliente se desconecta la escritura debería terminar y el reintento recibir su resultado")
+    void completesWriteWhenCallerCancels() {
+        Sinks.One<EggProductionModel> saved = Sinks.one();
+
+        idempotency.execute("k1", "POST a", () -> saved.asMono().map(this::written)).subscribe().dispose();
+        saved.tryEmitValue(record(7));
+
+        assertThat(idempotency.inFlight()).isZero();
+        assertThat(effects).hasValue(1);
+        verify(repository).complete(eq(""), eq("k1"), anyString());
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNextMatches(model -> model.getId() == 7)
+                .verifyComplete();
+        assertThat(writes).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Si la clave ya estaba reservada debería responder con lo guardado en la tabla")
+    void restoresFromTable() throws Exception {
+        when(repository.claim(anyString(), anyString(), anyString(), any())).thenReturn(Mono.just(false));
+        when(repository.find(eq(""), eq("k1"), any())).thenReturn(Mono.just(new EggProductionIdempotencyRepository
+                .StoredResponse(EggProductionIdempotency.fingerprint("POST a"), objectMapper.writeValueAsString(record(3)))));
+
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNext(record(3))
+                .verifyComplete();
+
+        assertThat(writes).hasValue(0);
+        assertThat(effects).hasValue(0);
+        verify(repository, never()).complete(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Una clave reservada sin resultado debería informarse como en curso")
+    void reportsKeyInProgress() {
+        when(repository.claim(anyString(), anyString(), anyString(), any())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .verifyError(EggProductionIdempotency.KeyInProgressException.class);
+        assertThat(writes).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("La misma clave con otra petición debería rechazarse")
+    void rejectsReusedKey() {
+        idempotency.execute("k1", "POST a", this::create).block();
+
+        StepVerifier.create(idempotency.execute("k1", "POST b", this::create))
+                .verifyError(EggProductionIdempotency.KeyReusedException.class);
+        assertThat(writes).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Un error no debería guardarse: el reintento vuelve a escribir")
+    void retriesAfterError() {
+        StepVerifier.create(idempotency.execute("k1", "POST a", () -> Mono.error(new IllegalStateException("sin conexión"))))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(writes).hasValue(1);
+        assertThat(idempotency.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Si no se puede guardar el resultado la petición debería fallar sin quedar recordada")
+    void failsWhenResultCannotBeSaved() {
+        when(repository.complete(anyString(), anyString(), anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("sin conexión")))
+                .thenReturn(Mono.empty());
+
+        // La transacción deshace también la escritura, así que el reintento la vuelve a hacer
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create)).verifyError(IllegalStateException.class);
+        assertThat(effects).hasValue(0);
+        StepVerifier.create(idempotency.execute("k1", "POST a", this::create)).expectNextCount(1).verifyComplete();
+
+        assertThat(writes).hasValue(2);
+        assertThat(effects).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("El mismo cuerpo con otra escala de priceKilo, id o version debería ser la misma petición")
+    void canonicalRequest() {
+        EggProductionModel first = record(1);
+        EggProductionModel second = record(2);
+        second.setPriceKilo(new BigDecimal("7.5"));
+        second.setVersion(9L);
+        EggProductionModel other = record(1);
+        other.setPriceKilo(new BigDecimal("7.51"));
+
+        assertThat(EggProductionIdempotency.request("POST /egg-production", first))
+                .isEqualTo(EggProductionIdempotency.request("POST /egg-production", second))
+                .isNotEqualTo(EggProductionIdempotency.request("POST /egg-production", other))
+                .isNotEqualTo(EggProductionIdempotency.request("PUT /egg-production/1 null", first));
+    }
+
+    @Test
+    @DisplayName("Sin clave cada petición debería escribir")
+    void withoutKey() {
+        idempotency.execute(null, "POST a", this::create).block();
+        idempotency.execute(null, "POST a", this::create).block();
+
+        assertThat(writes).hasValue(2);
+        assertThat(effects).hasValue(2);
+        verify(repository, never()).claim(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("La purga debería borrar de la tabla las claves vencidas")
+    void purgesExpiredKeys() {
+        when(repository.deleteOlderThan(any())).thenReturn(Mono.just(4L));
+
+        StepVerifier.create(idempotency.purge()).expectNext(4L).verifyComplete();
+
+        verify(repository).deleteOlderThan(NOW.minus(Duration.ofHours(24)));
+    }
+
+    private Mono<EggProductionWrite> create() {
+        return Mono.fromSupplier(() -> written(record(writes.incrementAndGet())));
+    }
+
+    private EggProductionWrite written(EggProductionModel result) {
+        return new EggProductionWrite(result, effects::incrementAndGet);
+    }
+
+    private static EggProductionModel record(int id) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(id);
+        model.setQuantityEggs(1200);
+        model.setPriceKilo(new BigDecimal("7.50"));
+        model.setRegistrationDate(LocalDate.of(2025, 6, 15));
+        model.setEstado("A");
+        model.setVersion(0L);
+        return model;
+    }
+}
@@ -0,0 +1,67 @@
+package pe.edu.vallegrande.eggs.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pe.edu.vallegrande.eggs.controller.EggProductionCsvWriterTest.row;
+
+public class EggProductionJsonWriterTest {
+
+    @Test
+    @DisplayName("Debería escribir solo los campos pedidos, con null y el texto escapado")
+    void writesSelectedFields() {
+        EggProductionJsonWriter writer = new EggProductionJsonWriter(DefaultDataBufferFactory.sharedInstance, 1024,
+                EnumSet.of(EggProductionField.ID, EggProductionField.REGISTRATION_DATE, EggProductionField.ESTADO), false);
+
+        assertThat(writer.write(row(1, 1200, 65, 750L, LocalDate.of(2025, 3, 7), "A"))).isFalse();
+        assertThat(writer.write(row(2, null, null, null, null, "x\"\\ñ"))).isFalse();
+
+        assertThat(text(writer.finish())).isEqualTo("["
+                + "{\"id\":1,\"registrationDate\":\"2025-03-07\",\"estado\":\"A\"},"
+                + "{\"id\":2,\"registrationDate\":null,\"estado\":\"x\\\"\\\\\\u00f1\"}]");
+    }
+
+    @Test
+    @DisplayName("Debería dar los mismos valores que Jackson con el modelo completo")
+    void matchesJackson() throws Exception {
+        EggProductionJsonWriter writer = new EggProductionJsonWriter(DefaultDataBufferFactory.sharedInstance, 1024,
+                EnumSet.of(EggProductionField.QUANTITY_EGGS, EggProductionField.PRICE_KILO), true);
+        writer.write(row(1, 1200, 65, 750L, LocalDate.of(2025, 3, 7), "A"));
+        String line = text(writer.finish());
+
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(1200);
+        model.setPriceKilo(new BigDecimal("7.50"));
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        assertThat(line).isEqualTo("{\"quantityEggs\":1200,\"priceKilo\":7.50}\n");
+        assertThat(mapper.readValue(line, EggProductionModel.class)).isEqualTo(model);
+    }
+
+    @Test
+    @DisplayName("Sin filas debería quedar un arreglo vacío; en NDJSON, nada")
+    void writesEmptyResults() {
+        EnumSet<EggProductionField> fields = EnumSet.of(EggProductionField.ID);
+
+        assertThat(text(new EggProductionJsonWriter(DefaultDataBufferFactory.sharedInstance, 64, fields, false)
+                .finish())).isEqualTo("[]");
+        assertThat(text(new EggProductionJsonWriter(DefaultDataBufferFactory.sharedInstance, 64, fields, true)
+                .finish())).isEmpty();
+    }
+
+    private static String text(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
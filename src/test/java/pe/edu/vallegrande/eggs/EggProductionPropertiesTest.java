@@ -0,0 +1,35 @@
+package pe.edu.vallegrande.eggs.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionPropertiesTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(PropertiesConfig.class);
+
+    @Test
+    @DisplayName("batch.chunk-size fuera de 1..6553 debería impedir el arranque")
+    void rejectsInvalidChunkSize() {
+        runner.withPropertyValues("egg-production.batch.chunk-size=0")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("egg-production.batch.chunk-size=6554")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("egg-production.batch.chunk-size=6553")
+                .run(context -> assertThat(context.getBean(EggProductionProperties.class).getBatch().getChunkSize())
+                        .isEqualTo(6553));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(EggProductionProperties.class)
+    static class PropertiesConfig {
+    }
+}
@@ -0,0 +1,101 @@
+package pe.edu.vallegrande.eggs.config;
+
+import com.google.protobuf.CodedInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionProtobufEncoderTest {
+
+    private final EggProductionProtobufEncoder encoder = new EggProductionProtobufEncoder();
+
+    @Test
+    @DisplayName("Debería aceptar solo modelos o listas de modelos pedidos explícitamente en application/x-protobuf")
+    void canEncode() {
+        assertThat(encoder.canEncode(ResolvableType.forClass(EggProductionModel.class),
+                EggProductionProtobufEncoder.APPLICATION_PROTOBUF)).isTrue();
+        assertThat(encoder.canEncode(ResolvableType.forClassWithGenerics(List.class, EggProductionModel.class),
+                EggProductionProtobufEncoder.APPLICATION_PROTOBUF)).isTrue();
+        assertThat(encoder.canEncode(ResolvableType.forClassWithGenerics(List.class, String.class),
+                EggProductionProtobufEncoder.APPLICATION_PROTOBUF)).isFalse();
+        assertThat(encoder.canEncode(ResolvableType.forClass(EggProductionModel.class),
+                MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(encoder.canEncode(ResolvableType.forClass(EggProductionModel.class), MediaType.ALL)).isFalse();
+        assertThat(encoder.canEncode(ResolvableType.forClass(EggProductionModel.class), null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Debería escribir cada campo con su número del .proto y omitir los nulos")
+    void encodeFields() throws Exception {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(300);
+        model.setQuantityEggs(1200);
+        model.setPriceKilo(new BigDecimal("7.55"));
+        model.setRegistrationDate(LocalDate.of(2025, 1, 6));
+        model.setEstado("A");
+        model.setVersion(3L);
+
+        DataBuffer buffer = encoder.encodeValue(model, DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(EggProductionModel.class), EggProductionProtobufEncoder.APPLICATION_PROTOBUF, Map.of());
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        assertThat(in.readTag() >>> 3).isEqualTo(1);
+        assertThat(in.readInt32()).isEqualTo(300);
+        assertThat(in.readTag() >>> 3).isEqualTo(2);
+        assertThat(in.readInt32()).isEqualTo(1200);
+        assertThat(in.readTag() >>> 3).isEqualTo(4); // eggsKilo (3) es nulo
+        assertThat(in.readInt64()).isEqualTo(755);
+        assertThat(in.readTag() >>> 3).isEqualTo(5);
+        assertThat(LocalDate.ofEpochDay(in.readInt32())).isEqualTo(LocalDate.of(2025, 1, 6));
+        assertThat(in.readTag() >>> 3).isEqualTo(6);
+        assertThat(in.readString()).isEqualTo("A");
+        assertThat(in.readTag() >>> 3).isEqualTo(7);
+        assertThat(in.readInt64()).isEqualTo(3);
+        assertThat(in.isAtEnd()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Debería escribir un flujo como mensajes con prefijo de longitud")
+    void encodeDelimitedStream() throws Exception {
+        EggProductionModel first = new EggProductionModel();
+        first.setId(1);
+        EggProductionModel second = new EggProductionModel();
+        second.setId(2);
+
+        byte[] bytes = DataBufferUtils.join(encoder.encode(Flux.just(first, second), DefaultDataBufferFactory.sharedInstance,
+                        ResolvableType.forClass(EggProductionModel.class), EggProductionProtobufEncoder.APPLICATION_PROTOBUF,
+                        Map.of()))
+                .map(buffer -> {
+                    byte[] joined = new byte[buffer.readableByteCount()];
+                    buffer.read(joined);
+                    DataBufferUtils.release(buffer);
+                    return joined;
+                })
+                .block();
+
+        CodedInputStream in = CodedInputStream.newInstance(bytes);
+        for (int id = 1; id <= 2; id++) {
+            int limit = in.pushLimit(in.readRawVarint32());
+            assertThat(in.readTag() >>> 3).isEqualTo(1);
+            assertThat(in.readInt32()).isEqualTo(id);
+            in.popLimit(limit);
+        }
+        assertThat(in.isAtEnd()).isTrue();
+    }
+}
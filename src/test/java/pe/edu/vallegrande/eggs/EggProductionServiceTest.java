@@ -2,26 +2,67 @@ package pe.edu.vallegrande.eggs.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.eggs.config.ConnectionPoolThrottle;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionBatchResult;
+import pe.edu.vallegrande.eggs.model.EggProductionChange;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionField;
 import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+import pe.edu.vallegrande.eggs.repository.EggProductionIdempotencyRepository;
 import pe.edu.vallegrande.eggs.repository.EggProductionRepository;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class EggProductionServiceTest {
 
     private EggProductionRepository repository;
     private EggProductionService service;
+    private EggProductionProperties properties;
+    private EggProductionStatsService statsService;
+    private EggProductionFeed feed;
+    private EggProductionTimeSeries timeSeries;
+    private EggProductionCache cache;
 
     @BeforeEach
     void setUp() {
         repository = mock(EggProductionRepository.class);
-        service = new EggProductionService(repository);
+        properties = new EggProductionProperties();
+        statsService = mock(EggProductionStatsService.class);
+        when(statsService.apply(any(), any())).thenReturn(Mono.empty());
+        feed = new EggProductionFeed(properties, new SimpleMeterRegistry());
+        timeSeries = new EggProductionTimeSeries(mock(EggProductionStatsRepository.class), properties);
+        cache = new EggProductionCache(properties, new SimpleMeterRegistry());
+        service = new EggProductionService(repository, properties, statsService, cache, passThroughTransactions(), feed,
+                new EggProductionCreateBatcher(properties, new SimpleMeterRegistry()), timeSeries,
+                new ConnectionPoolThrottle(null, properties),
+                new EggProductionSingleFlight(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -38,6 +79,78 @@ public class EggProductionServiceTest {
         verify(repository).findAllByOrderByIdAsc();
     }
 
+    @Test
+    @DisplayName("Debería paginar por cursor con el tamaño de página por defecto")
+    void getPageDefaults() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(1);
+        when(repository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, EggProductionService.DEFAULT_PAGE_SIZE)))
+                .thenReturn(Flux.just(model));
+
+        StepVerifier.create(service.getPage(null, null))
+                .assertNext(result -> assertThat(result.getId()).isEqualTo(1))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Debería acotar el tamaño de página al máximo permitido")
+    void getPageCapsLimit() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.getPage(40, 1_000_000))
+                .verifyComplete();
+
+        verify(repository).findByIdGreaterThanOrderByIdAsc(40, PageRequest.of(0, EggProductionService.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    @DisplayName("Con fields debería pedir solo esas columnas, con el cursor y la página acotados igual")
+    void getFieldsPage() {
+        Set<EggProductionField> fields = EnumSet.of(EggProductionField.ID, EggProductionField.QUANTITY_EGGS);
+        when(repository.findFields(any(), any(), any(), any(), any(), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.getFieldsPage(fields, null, null, "A", null, 1_000_000, row -> row)).verifyComplete();
+        StepVerifier.create(service.getFields(fields, null, null, null, row -> row)).verifyComplete();
+
+        verify(repository).findFields(eq(fields), isNull(), isNull(), eq("A"), eq(0),
+                eq(EggProductionService.MAX_PAGE_SIZE), any());
+        verify(repository).findFields(eq(fields), isNull(), isNull(), isNull(), isNull(), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("Debería consultar solo el rango de fechas, con o sin filtro de estado")
+    void getRangePage() {
+        LocalDate from = LocalDate.of(2025, 1, 6);
+        LocalDate to = LocalDate.of(2025, 1, 12);
+        when(repository.findByRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(any(), any(), any(), any()))
+                .thenReturn(Flux.empty());
+        when(repository.findByEstadoAndRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(any(), any(), any(), any(), any()))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(service.getRangePage(from, to, null, null, null)).verifyComplete();
+        StepVerifier.create(service.getRangePage(from, to, "A", 30, 10)).verifyComplete();
+
+        verify(repository).findByRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc(from, to, 0,
+                PageRequest.of(0, EggProductionService.DEFAULT_PAGE_SIZE));
+        verify(repository).findByEstadoAndRegistrationDateBetweenAndIdGreaterThanOrderByIdAsc("A", from, to, 30,
+                PageRequest.of(0, 10));
+        verify(repository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    @Test
+    @DisplayName("Debería paginar solo los registros activos")
+    void getActivePage() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(8);
+        model.setEstado("A");
+        when(repository.findByEstadoAndIdGreaterThanOrderByIdAsc("A", 7, PageRequest.of(0, 5)))
+                .thenReturn(Flux.just(model));
+
+        StepVerifier.create(service.getActivePage(7, 5))
+                .assertNext(result -> assertThat(result.getId()).isEqualTo(8))
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("Debería obtener registro por ID")
     void getById() {
@@ -52,6 +165,133 @@ public class EggProductionServiceTest {
         verify(repository).findById(1);
     }
 
+    @Test
+    @DisplayName("Debería servir desde caché las lecturas repetidas por ID")
+    void getByIdCached() {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(1);
+        when(repository.findById(1)).thenReturn(Mono.just(model));
+
+        StepVerifier.create(service.getById(1)).expectNext(model).verifyComplete();
+        StepVerifier.create(service.getById(1)).expectNext(model).verifyComplete();
+
+        verify(repository, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("Debería volver a la base de datos después de una escritura")
+    void getByIdInvalidatedByWrite() {
+        EggProductionModel model = record(3);
+        model.setId(1);
+        when(repository.findById(1)).thenReturn(Mono.just(model));
+        when(repository.updateVersioned(eq(1), any(), any()))
+                .thenAnswer(inv -> Mono.just(new EggProductionChange(model, inv.getArgument(1))));
+
+        StepVerifier.create(service.getById(1)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.update(1, record(4), null)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.getById(1)).expectNextCount(1).verifyComplete();
+
+        verify(repository, times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("No debería cachear una lectura que se cruzó con una escritura")
+    void getByIdDoesNotCacheStaleRead() {
+        EggProductionModel model = record(3);
+        model.setId(1);
+        Sinks.One<EggProductionModel> slowRead = Sinks.one();
+        when(repository.findById(1)).thenReturn(slowRead.asMono());
+        when(repository.deleteReturningById(1)).thenReturn(Mono.just(model));
+
+        StepVerifier.create(service.getById(1))
+                .then(() -> {
+                    // La escritura termina mientras la lectura sigue en curso
+                    service.delete(1).block();
+                    slowRead.tryEmitValue(model);
+                })
+                .expectNext(model)
+                .verifyComplete();
+
+        when(repository.findById(1)).thenReturn(Mono.empty());
+        StepVerifier.create(service.getById(1)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Las lecturas simultáneas del mismo id deberían compartir una sola consulta")
+    void getByIdCoalesced() {
+        EggProductionModel model = record(3);
+        model.setId(1);
+        Sinks.One<EggProductionModel> slowRead = Sinks.one();
+        when(repository.findById(1)).thenReturn(slowRead.asMono());
+
+        List<EggProductionModel> results = new ArrayList<>();
+        service.getById(1).subscribe(results::add);
+        service.getById(1).subscribe(results::add);
+        slowRead.tryEmitValue(model);
+
+        assertThat(results).containsExactly(model, model);
+        verify(repository, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("Una lectura que empieza después de una escritura no debería unirse a la consulta anterior")
+    void getByIdNotCoalescedAcrossWrites() {
+        EggProductionModel before = record(3);
+        before.setId(1);
+        EggProductionModel after = record(4);
+        after.setId(1);
+        Sinks.One<EggProductionModel> slowRead = Sinks.one();
+        when(repository.findById(1)).thenReturn(slowRead.asMono());
+        when(repository.updateVersioned(eq(1), any(), any()))
+                .thenAnswer(inv -> Mono.just(new EggProductionChange(before, inv.getArgument(1))));
+
+        List<EggProductionModel> first = new ArrayList<>();
+        service.getById(1).subscribe(first::add);
+        StepVerifier.create(service.update(1, after, null)).expectNextCount(1).verifyComplete();
+        when(repository.findById(1)).thenReturn(Mono.just(after));
+
+        StepVerifier.create(service.getById(1)).expectNext(after).verifyComplete();
+        slowRead.tryEmitValue(before);
+        assertThat(first).containsExactly(before);
+        verify(repository, times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("Las mismas páginas de activos pedidas a la vez deberían consultarse una vez")
+    void getActivePageCoalesced() {
+        EggProductionModel model = record(5);
+        model.setId(9);
+        Sinks.Many<EggProductionModel> slowPage = Sinks.many().replay().all();
+        when(repository.findByEstadoAndIdGreaterThanOrderByIdAsc(any(), any(), any())).thenReturn(slowPage.asFlux());
+
+        List<EggProductionModel> results = new ArrayList<>();
+        service.getActivePage(null, 10).subscribe(results::add);
+        service.getActivePage(null, 10).subscribe(results::add);
+        service.getActivePage(null, 20).subscribe(results::add);
+        slowPage.tryEmitNext(model);
+        slowPage.tryEmitComplete();
+
+        assertThat(results).containsExactly(model, model, model);
+        verify(repository, times(2)).findByEstadoAndIdGreaterThanOrderByIdAsc(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debería cachear las páginas de activos hasta la siguiente escritura")
+    void getActivePageCached() {
+        EggProductionModel model = record(5);
+        model.setId(9);
+        when(repository.findByEstadoAndIdGreaterThanOrderByIdAsc(any(), any(), any())).thenReturn(Flux.just(model));
+        when(repository.save(any())).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        StepVerifier.create(service.getActivePage(null, 10)).expectNext(model).verifyComplete();
+        StepVerifier.create(service.getActivePage(null, 10)).expectNext(model).verifyComplete();
+        verify(repository, times(1)).findByEstadoAndIdGreaterThanOrderByIdAsc(any(), any(), any());
+
+        StepVerifier.create(service.create(record(6))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.getActivePage(null, 10)).expectNext(model).verifyComplete();
+        verify(repository, times(2)).findByEstadoAndIdGreaterThanOrderByIdAsc(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Debería crear un nuevo registro")
     void create() {
@@ -73,70 +313,431 @@ public class EggProductionServiceTest {
     }
 
     @Test
-    @DisplayName("Debería actualizar un registro existente")
+    @DisplayName("En modo write-behind el alta debería insertarse por tandas con el id generado")
+    void createWriteBehind() {
+        properties.getWriteBehind().setEnabled(true);
+        EggProductionCreateBatcher batcher = new EggProductionCreateBatcher(properties, new SimpleMeterRegistry());
+        EggProductionService writeBehind = new EggProductionService(repository, properties, statsService,
+                new EggProductionCache(properties, new SimpleMeterRegistry()), passThroughTransactions(), feed, batcher,
+                timeSeries, new ConnectionPoolThrottle(null, properties),
+                new EggProductionSingleFlight(new SimpleMeterRegistry()));
+        writeBehind.startWriteBehind();
+        EggProductionModel input = record(12);
+        input.setId(999);
+        when(repository.insertAll(any())).thenAnswer(inv -> {
+            List<EggProductionModel> models = inv.getArgument(0);
+            models.forEach(model -> model.setId(7));
+            return Flux.fromIterable(models);
+        });
+
+        StepVerifier.create(writeBehind.create(input))
+                .assertNext(result -> assertThat(result.getId()).isEqualTo(7))
+                .verifyComplete();
+        batcher.close();
+
+        verify(repository, never()).save(any());
+        verify(statsService).apply(List.of(input), List.of());
+    }
+
+    @Test
+    @DisplayName("Debería sumar a las estadísticas y a la serie diaria un registro activo recién creado")
+    void createUpdatesStats() {
+        EggProductionModel input = record(12);
+        when(repository.save(any())).thenReturn(Mono.just(input));
+
+        StepVerifier.create(service.create(input))
+                .expectNext(input)
+                .verifyComplete();
+
+        verify(statsService).apply(List.of(input), List.of());
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, input.getRegistrationDate(), input.getRegistrationDate())
+                .getSum()).isEqualTo(12.0);
+    }
+
+    @Test
+    @DisplayName("Debería rechazar una fecha de registro fuera de la ventana admitida al crear, actualizar o cargar")
+    void rejectsRegistrationDateOutsideWindow() {
+        EggProductionModel tooOld = record(1);
+        tooOld.setRegistrationDate(LocalDate.of(1, 1, 1));
+        EggProductionModel tooNew = record(2);
+        tooNew.setRegistrationDate(LocalDate.of(9999, 12, 31));
+        when(repository.insertAll(any())).thenAnswer(inv -> Flux.fromIterable(inv.<List<EggProductionModel>>getArgument(0)));
+
+        StepVerifier.create(service.create(tooOld)).verifyError(IllegalArgumentException.class);
+        StepVerifier.create(service.update(1, tooNew, null)).verifyError(IllegalArgumentException.class);
+        StepVerifier.create(service.createBatch(Flux.just(tooOld, tooNew)))
+                .assertNext(r -> assertThat(r.getError()).contains("registrationDate"))
+                .assertNext(r -> assertThat(r.getError()).contains("registrationDate"))
+                .verifyComplete();
+
+        verify(repository, never()).save(any());
+        verify(repository, never()).updateVersioned(any(), any(), any());
+        verify(repository).insertAll(List.of());
+    }
+
+    @Test
+    @DisplayName("Si falla un efecto posterior al commit el alta igual debería responder con el registro")
+    void createSurvivesFailingSideEffect() {
+        EggProductionTimeSeries failing = mock(EggProductionTimeSeries.class);
+        doThrow(new IllegalStateException("sin memoria")).when(failing).apply(any(), any());
+        EggProductionService withFailingSeries = new EggProductionService(repository, properties, statsService,
+                new EggProductionCache(properties, new SimpleMeterRegistry()), passThroughTransactions(), feed,
+                new EggProductionCreateBatcher(properties, new SimpleMeterRegistry()), failing,
+                new ConnectionPoolThrottle(null, properties),
+                new EggProductionSingleFlight(new SimpleMeterRegistry()));
+        EggProductionModel input = record(12);
+        when(repository.save(any())).thenReturn(Mono.just(input));
+
+        StepVerifier.create(withFailingSeries.create(input))
+                .expectNext(input)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Con Idempotency-Key caché, serie diaria y feed deberían cambiar solo si se confirma también la clave")
+    void idempotentCreateEffectsAfterCommit() {
+        EggProductionModel input = record(12);
+        input.setId(5);
+        when(repository.save(any())).thenReturn(Mono.just(input));
+        EggProductionIdempotencyRepository keys = mock(EggProductionIdempotencyRepository.class);
+        when(keys.claim(any(), any(), any(), any())).thenReturn(Mono.just(true));
+        when(keys.complete(any(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("sin conexión")))
+                .thenReturn(Mono.empty());
+        EggProductionIdempotency idempotency = new EggProductionIdempotency(keys, passThroughTransactions(),
+                new ConnectionPoolThrottle(null, properties), Jackson2ObjectMapperBuilder.json().build(), properties,
+                new SimpleMeterRegistry());
+        cache.putActivePage(cache.generation(), "0:100", List.of(record(1)));
+        List<EggProductionEvent> events = new ArrayList<>();
+        Disposable subscription = feed.subscribe().subscribe(events::add);
+        LocalDate day = input.getRegistrationDate();
+
+        // No se pudo guardar el resultado: la transacción se deshace y la escritura no cuenta
+        StepVerifier.create(idempotency.execute("k1", "POST a", () -> service.createWrite(input)))
+                .verifyError(IllegalStateException.class);
+
+        assertThat(cache.getActivePage("0:100")).isNotNull();
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, day, day).getDays()).isZero();
+        assertThat(events).isEmpty();
+
+        StepVerifier.create(idempotency.execute("k1", "POST a", () -> service.createWrite(input)))
+                .expectNext(input)
+                .verifyComplete();
+        subscription.dispose();
+
+        assertThat(cache.getActivePage("0:100")).isNull();
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, day, day).getSum()).isEqualTo(12.0);
+        assertThat(events).extracting(EggProductionEvent::getType).containsExactly(EggProductionEvent.Type.CREATED);
+    }
+
+    @Test
+    @DisplayName("Debería insertar en lote por bloques y reportar errores por elemento")
+    void createBatch() {
+        properties.getBatch().setChunkSize(2);
+        when(repository.insertAll(any())).thenAnswer(inv -> {
+            List<EggProductionModel> chunk = inv.getArgument(0);
+            return Flux.fromIterable(chunk).map(m -> {
+                m.setId(100 + m.getQuantityEggs());
+                return m;
+            });
+        });
+
+        EggProductionModel invalid = record(1);
+        invalid.setRegistrationDate(null);
+
+        StepVerifier.create(service.createBatch(Flux.just(record(0), invalid, record(2))))
+                .assertNext(r -> assertThat(r.getId()).isEqualTo(100))
+                .assertNext(r -> {
+                    assertThat(r.getIndex()).isEqualTo(1);
+                    assertThat(r.getError()).contains("registrationDate");
+                })
+                .assertNext(r -> {
+                    assertThat(r.getIndex()).isEqualTo(2);
+                    assertThat(r.getId()).isEqualTo(102);
+                })
+                .verifyComplete();
+
+        verify(repository, times(2)).insertAll(any());
+    }
+
+    @Test
+    @DisplayName("La importación debería pedir filas de a un bloque y conservar el número de línea")
+    void importRowsOneChunkAtATime() {
+        properties.getBatch().setChunkSize(2);
+        when(repository.insertAll(any())).thenAnswer(inv -> Flux.fromIterable(inv.<List<EggProductionModel>>getArgument(0))
+                .map(m -> {
+                    m.setId(100 + m.getQuantityEggs());
+                    return m;
+                }));
+        List<Long> requests = new ArrayList<>();
+        Flux<Tuple2<Long, EggProductionModel>> rows = Flux.range(0, 5)
+                .map(i -> Tuples.of(i + 2L, record(i)))
+                .doOnRequest(requests::add);
+
+        StepVerifier.create(service.importRows(rows).map(EggProductionBatchResult::getIndex))
+                .expectNext(2L, 3L, 4L, 5L, 6L)
+                .verifyComplete();
+
+        verify(repository, times(3)).insertAll(any());
+        assertThat(requests).allMatch(n -> n <= 2);
+    }
+
+    @Test
+    @DisplayName("Debería marcar con error todo el bloque si falla el INSERT")
+    void createBatchChunkFailure() {
+        when(repository.insertAll(any())).thenReturn(Flux.error(new IllegalStateException("sin conexión")));
+
+        StepVerifier.create(service.createBatch(Flux.just(record(5), record(6))))
+                .assertNext(r -> assertThat(r.getError()).isEqualTo(EggProductionService.CHUNK_FAILED))
+                .assertNext(r -> {
+                    assertThat(r.getIndex()).isEqualTo(1);
+                    assertThat(r.getId()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Debería actualizar un registro existente con un solo UPDATE")
     void update() {
         EggProductionModel existing = new EggProductionModel();
         existing.setId(1);
         existing.setEstado("A");
+        existing.setVersion(3L);
+        EggProductionModel updated = new EggProductionModel();
+        updated.setId(1);
+        updated.setEstado("A");
+        updated.setVersion(4L);
 
-        when(repository.findById(1)).thenReturn(Mono.just(existing));
-        when(repository.save(any())).thenReturn(Mono.just(existing));
+        when(repository.updateVersioned(1, updated, 3L)).thenReturn(Mono.just(new EggProductionChange(existing, updated)));
 
-        StepVerifier.create(service.update(1, existing))
-                .assertNext(result -> assertThat(result.getId()).isEqualTo(1))
+        StepVerifier.create(service.update(1, updated, 3L))
+                .assertNext(result -> assertThat(result.getVersion()).isEqualTo(4L))
                 .verifyComplete();
 
-        verify(repository).findById(1);
-        verify(repository).save(any());
+        verify(repository).updateVersioned(1, updated, 3L);
+        verify(repository, never()).findById(anyInt());
+        verify(repository, never()).save(any());
     }
 
     @Test
-    @DisplayName("Debería eliminar un registro por ID")
+    @DisplayName("Debería reemplazar en las estadísticas el registro anterior por el actualizado")
+    void updateReplacesStats() {
+        EggProductionModel existing = record(10);
+        existing.setId(1);
+        EggProductionModel changes = record(15);
+
+        when(repository.updateVersioned(eq(1), any(), any()))
+                .thenReturn(Mono.just(new EggProductionChange(existing, changes)));
+
+        StepVerifier.create(service.update(1, changes, null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(statsService).apply(List.of(changes), List.of(existing));
+    }
+
+    @Test
+    @DisplayName("Debería fallar por versión si el registro existe pero cambió")
+    void updateVersionConflict() {
+        when(repository.updateVersioned(eq(1), any(), eq(2L))).thenReturn(Mono.empty());
+        when(repository.existsById(1)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.update(1, record(1), 2L))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+
+        verifyNoInteractions(statsService);
+    }
+
+    @Test
+    @DisplayName("No debería fallar por versión si el registro no existe")
+    void updateMissingRecord() {
+        when(repository.updateVersioned(eq(1), any(), eq(2L))).thenReturn(Mono.empty());
+        when(repository.existsById(1)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.update(1, record(1), 2L))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Debería eliminar un registro por ID y restar de los acumulados la fila borrada")
     void delete() {
-        EggProductionModel model = new EggProductionModel();
+        EggProductionModel model = record(7);
         model.setId(1);
-        when(repository.findById(1)).thenReturn(Mono.just(model));
-        when(repository.deleteById(1)).thenReturn(Mono.empty());
+        timeSeries.apply(List.of(model), List.of());
+        when(repository.deleteReturningById(1)).thenReturn(Mono.just(model));
 
         StepVerifier.create(service.delete(1))
                 .verifyComplete();
 
-        verify(repository).findById(1);
-        verify(repository).deleteById(1);
+        verify(repository).deleteReturningById(1);
+        verify(repository, never()).findById(anyInt());
+        verify(statsService).apply(List.of(), List.of(model));
+        LocalDate day = model.getRegistrationDate();
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, day, day).getDays()).isZero();
     }
 
     @Test
-    @DisplayName("Debería inactivar un registro")
+    @DisplayName("Si otra petición ya borró el registro no debería volver a restarlo de los acumulados")
+    void deleteAlreadyDeleted() {
+        EggProductionModel model = record(7);
+        timeSeries.apply(List.of(model), List.of());
+        when(repository.deleteReturningById(1)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.delete(1))
+                .verifyComplete();
+
+        verify(statsService, never()).apply(any(), any());
+        LocalDate day = model.getRegistrationDate();
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, day, day).getSum()).isEqualTo(7.0);
+    }
+
+    @Test
+    @DisplayName("Debería inactivar un registro con un solo UPDATE")
     void inactivate() {
         EggProductionModel model = new EggProductionModel();
         model.setId(1);
-        model.setEstado("A");
+        model.setEstado("I");
 
-        when(repository.findById(1)).thenReturn(Mono.just(model));
-        when(repository.save(any())).thenReturn(Mono.just(model));
+        when(repository.inactivateById(1)).thenReturn(Mono.just(model));
 
         StepVerifier.create(service.inactivate(1))
                 .verifyComplete();
 
-        verify(repository).findById(1);
-        verify(repository).save(any());
+        verify(repository).inactivateById(1);
+        verify(repository, never()).findById(anyInt());
+        verify(repository, never()).save(any());
+        verify(statsService).apply(List.of(), List.of(model));
+    }
+
+    @Test
+    @DisplayName("Al inactivar debería restar el registro de la serie diaria")
+    void inactivateUpdatesTimeSeries() {
+        EggProductionModel active = record(30);
+        timeSeries.apply(List.of(active), List.of());
+        EggProductionModel inactive = record(30);
+        inactive.setEstado("I");
+        when(repository.inactivateById(1)).thenReturn(Mono.just(inactive));
+
+        StepVerifier.create(service.inactivate(1))
+                .verifyComplete();
+
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, active.getRegistrationDate(), active.getRegistrationDate())
+                .getDays()).isZero();
+    }
+
+    @Test
+    @DisplayName("No debería tocar las estadísticas si el registro ya estaba inactivo")
+    void inactivateAlreadyInactive() {
+        when(repository.inactivateById(1)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.inactivate(1))
+                .verifyComplete();
+
+        verifyNoInteractions(statsService);
     }
 
     @Test
-    @DisplayName("Debería activar un registro")
+    @DisplayName("Debería activar un registro con un solo UPDATE")
     void activate() {
         EggProductionModel model = new EggProductionModel();
         model.setId(1);
-        model.setEstado("I");
+        model.setEstado("A");
 
-        when(repository.findById(1)).thenReturn(Mono.just(model));
-        when(repository.save(any())).thenReturn(Mono.just(model));
+        when(repository.activateById(1)).thenReturn(Mono.just(model));
 
         StepVerifier.create(service.activate(1))
                 .verifyComplete();
 
-        verify(repository).findById(1);
-        verify(repository).save(any());
+        verify(repository).activateById(1);
+        verify(repository, never()).save(any());
+        verify(statsService).apply(List.of(model), List.of());
+    }
+
+    @Test
+    @DisplayName("Debería inactivar en bloque por ids y devolver la cantidad afectada")
+    void changeStatusByIds() {
+        EggProductionModel first = record(1);
+        EggProductionModel second = record(2);
+        when(repository.inactivateByIds(List.of(1, 2, 3))).thenReturn(Flux.just(first, second));
+
+        StepVerifier.create(service.changeStatusByIds("I", List.of(1, 2, 3)))
+                .expectNext(2L)
+                .verifyComplete();
+
+        verify(statsService).apply(List.of(), List.of(first, second));
+    }
+
+    @Test
+    @DisplayName("Debería publicar en el feed cada registro que cambió de estado en bloque")
+    void changeStatusByIdsPublishesEvents() {
+        EggProductionModel first = record(1);
+        EggProductionModel second = record(2);
+        when(repository.inactivateByIds(List.of(1, 2))).thenReturn(Flux.just(first, second));
+        List<EggProductionEvent> events = new ArrayList<>();
+        Disposable subscription = feed.subscribe().subscribe(events::add);
+
+        StepVerifier.create(service.changeStatusByIds("I", List.of(1, 2)))
+                .expectNext(2L)
+                .verifyComplete();
+        subscription.dispose();
+
+        assertThat(events).extracting(EggProductionEvent::getType)
+                .containsExactly(EggProductionEvent.Type.STATUS_CHANGED, EggProductionEvent.Type.STATUS_CHANGED);
+        assertThat(events).extracting(EggProductionEvent::getRecord).containsExactly(first, second);
+    }
+
+    @Test
+    @DisplayName("No debería publicar sus escrituras si el feed ya recibe los avisos de PostgreSQL")
+    void createDoesNotPublishWhileListening() {
+        EggProductionModel input = record(12);
+        when(repository.save(any())).thenReturn(Mono.just(input));
+        List<EggProductionEvent> events = new ArrayList<>();
+        Disposable subscription = feed.subscribe().subscribe(events::add);
+        feed.setListening(true);
+
+        StepVerifier.create(service.create(input))
+                .expectNext(input)
+                .verifyComplete();
+        subscription.dispose();
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Debería activar en bloque por rango de fechas")
+    void changeStatusByDateRange() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 6, 30);
+        EggProductionModel model = record(1);
+        when(repository.activateByRegistrationDateBetween(eq(from), eq(to), anyInt())).thenReturn(Flux.just(model));
+
+        StepVerifier.create(service.changeStatusByDateRange("A", from, to))
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(statsService).apply(List.of(model), List.of());
+    }
+
+    @Test
+    @DisplayName("Por rango de fechas debería cambiar de a bloques, cada uno con sus estadísticas, hasta que no queden")
+    void changeStatusByDateRangeInChunks() {
+        properties.getBatch().setChunkSize(2);
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 6, 30);
+        List<EggProductionModel> first = List.of(record(1), record(2));
+        List<EggProductionModel> second = List.of(record(3));
+        when(repository.inactivateByRegistrationDateBetween(from, to, 2))
+                .thenReturn(Flux.fromIterable(first))
+                .thenReturn(Flux.fromIterable(second));
+
+        StepVerifier.create(service.changeStatusByDateRange("I", from, to))
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(repository, times(2)).inactivateByRegistrationDateBetween(from, to, 2);
+        verify(statsService).apply(List.of(), first);
+        verify(statsService).apply(List.of(), second);
     }
 
     @Test
@@ -154,4 +755,21 @@ public class EggProductionServiceTest {
 
         verify(repository).findAllByEstadoOrderByIdAsc("A");
     }
+
+    // Ejecuta el flujo tal cual, sin transacción real
+    @SuppressWarnings("unchecked")
+    private static TransactionalOperator passThroughTransactions() {
+        TransactionalOperator operator = mock(TransactionalOperator.class);
+        when(operator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(inv -> inv.getArgument(0));
+        when(operator.transactional(any(Flux.class))).thenAnswer(inv -> inv.getArgument(0));
+        return operator;
+    }
+
+    private static EggProductionModel record(int quantity) {
+        EggProductionModel model = new EggProductionModel();
+        model.setQuantityEggs(quantity);
+        model.setRegistrationDate(LocalDate.of(2025, 1, 1));
+        model.setEstado("A");
+        return model;
+    }
 }
\ No newline at end of file
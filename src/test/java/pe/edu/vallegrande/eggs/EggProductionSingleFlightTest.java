@@ -0,0 +1,94 @@
+package pe.edu.vallegrande.eggs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EggProductionSingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private EggProductionSingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new EggProductionSingleFlight(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Debería contar como ahorradas las lecturas que se unen a una consulta en curso")
+    void countsCoalescedQueries() {
+        Sinks.One<EggProductionModel> pending = Sinks.one();
+        AtomicInteger queries = new AtomicInteger();
+        List<EggProductionModel> results = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            singleFlight.record(1, 1, () -> {
+                queries.incrementAndGet();
+                return pending.asMono();
+            }).subscribe(results::add);
+        }
+        // Mismo id con generación más antigua (leída antes de otra escritura): también se une
+        Disposable older = singleFlight.record(1, 0, Mono::empty).subscribe(results::add);
+        pending.tryEmitValue(model(1));
+
+        assertThat(queries).hasValue(1);
+        assertThat(results).hasSize(4);
+        assertThat(older.isDisposed()).isTrue();
+        assertThat(singleFlight.inFlight()).isZero();
+        assertThat(meterRegistry.counter(EggProductionSingleFlight.METRIC, "query", "record", "result", "executed").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter(EggProductionSingleFlight.METRIC, "query", "record", "result", "coalesced").count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Un error debería llegar a todos los que esperan y la siguiente lectura debería reintentar")
+    void errorReachesAllWaitersThenRetries() {
+        Sinks.One<EggProductionModel> pending = Sinks.one();
+        Mono<EggProductionModel> first = singleFlight.record(1, 0, pending::asMono);
+        Mono<EggProductionModel> second = singleFlight.record(1, 0, Mono::empty);
+        List<Throwable> errors = new ArrayList<>();
+        first.subscribe(model -> { }, errors::add);
+        second.subscribe(model -> { }, errors::add);
+
+        pending.tryEmitError(new IllegalStateException("sin conexión"));
+
+        assertThat(errors).hasSize(2).allMatch(IllegalStateException.class::isInstance);
+        StepVerifier.create(singleFlight.record(1, 0, () -> Mono.just(model(1))))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Que un cliente cancele no debería cortar la consulta de los demás")
+    void cancelDoesNotAffectOtherWaiters() {
+        Sinks.One<EggProductionModel> pending = Sinks.one();
+        Disposable cancelled = singleFlight.record(1, 0, pending::asMono).subscribe();
+        List<EggProductionModel> results = new ArrayList<>();
+        singleFlight.record(1, 0, Mono::empty).subscribe(results::add);
+
+        cancelled.dispose();
+        pending.tryEmitValue(model(1));
+
+        assertThat(results).hasSize(1);
+    }
+
+    private static EggProductionModel model(int id) {
+        EggProductionModel model = new EggProductionModel();
+        model.setId(id);
+        return model;
+    }
+}
@@ -0,0 +1,103 @@
+package pe.edu.vallegrande.eggs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class EggProductionStatsServiceTest {
+
+    private EggProductionStatsRepository repository;
+    private EggProductionStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EggProductionStatsRepository.class);
+        when(repository.accumulate(any(), any())).thenReturn(Mono.empty());
+        service = new EggProductionStatsService(repository);
+    }
+
+    @Test
+    @DisplayName("Debería agrupar los deltas por día y por mes")
+    @SuppressWarnings("unchecked")
+    void applyGroupsByPeriod() {
+        EggProductionModel first = record(LocalDate.of(2025, 3, 10), 100, 6, "7.00");
+        EggProductionModel second = record(LocalDate.of(2025, 3, 10), 50, 3, "8.00");
+        EggProductionModel third = record(LocalDate.of(2025, 3, 20), 30, 2, "7.50");
+
+        StepVerifier.create(service.apply(List.of(first, second, third), List.of()))
+                .verifyComplete();
+
+        ArgumentCaptor<List<EggProductionStatsModel>> days = ArgumentCaptor.forClass(List.class);
+        verify(repository).accumulate(eq(StatsGranularity.DAY), days.capture());
+        assertThat(days.getValue()).hasSize(2);
+        assertThat(days.getValue().get(0).getRecords()).isEqualTo(2);
+        assertThat(days.getValue().get(0).getTotalEggs()).isEqualTo(150);
+        assertThat(days.getValue().get(0).getRevenue()).isEqualByComparingTo("66.00");
+
+        ArgumentCaptor<List<EggProductionStatsModel>> months = ArgumentCaptor.forClass(List.class);
+        verify(repository).accumulate(eq(StatsGranularity.MONTH), months.capture());
+        assertThat(months.getValue()).singleElement().satisfies(month -> {
+            assertThat(month.getPeriodStart()).isEqualTo(LocalDate.of(2025, 3, 1));
+            assertThat(month.getRecords()).isEqualTo(3);
+            assertThat(month.getTotalKilos()).isEqualTo(11);
+            assertThat(month.getAveragePriceKilo()).isEqualByComparingTo("7.36");
+        });
+    }
+
+    @Test
+    @DisplayName("Debería restar el registro anterior y sumar el nuevo en una actualización")
+    @SuppressWarnings("unchecked")
+    void applyUpdateNetsOut() {
+        EggProductionModel before = record(LocalDate.of(2025, 3, 10), 100, 6, "7.00");
+        EggProductionModel after = record(LocalDate.of(2025, 3, 10), 120, 6, "7.00");
+
+        StepVerifier.create(service.apply(List.of(after), List.of(before)))
+                .verifyComplete();
+
+        ArgumentCaptor<List<EggProductionStatsModel>> days = ArgumentCaptor.forClass(List.class);
+        verify(repository).accumulate(eq(StatsGranularity.DAY), days.capture());
+        assertThat(days.getValue()).singleElement().satisfies(day -> {
+            assertThat(day.getRecords()).isZero();
+            assertThat(day.getTotalEggs()).isEqualTo(20);
+            assertThat(day.getRevenue()).isEqualByComparingTo("0");
+        });
+    }
+
+    @Test
+    @DisplayName("Debería consultar los meses desde el inicio del mes de la fecha inicial")
+    void getStatsAlignsMonth() {
+        when(repository.findRange(any(), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.getStats(LocalDate.of(2025, 3, 15), LocalDate.of(2025, 6, 30), StatsGranularity.MONTH))
+                .verifyComplete();
+
+        verify(repository).findRange(StatsGranularity.MONTH, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 6, 30));
+    }
+
+    private static EggProductionModel record(LocalDate date, int eggs, int kilos, String price) {
+        EggProductionModel model = new EggProductionModel();
+        model.setRegistrationDate(date);
+        model.setQuantityEggs(eggs);
+        model.setEggsKilo(kilos);
+        model.setPriceKilo(new BigDecimal(price));
+        model.setEstado("A");
+        return model;
+    }
+}
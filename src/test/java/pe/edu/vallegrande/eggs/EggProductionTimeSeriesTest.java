@@ -0,0 +1,155 @@
+package pe.edu.vallegrande.eggs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.eggs.config.EggProductionProperties;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesPoint;
+import pe.edu.vallegrande.eggs.model.EggProductionSeriesSummary;
+import pe.edu.vallegrande.eggs.model.EggProductionStatsModel;
+import pe.edu.vallegrande.eggs.model.SeriesMetric;
+import pe.edu.vallegrande.eggs.model.StatsGranularity;
+import pe.edu.vallegrande.eggs.repository.EggProductionStatsRepository;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EggProductionTimeSeriesTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2025, 1, 1);
+
+    private EggProductionStatsRepository statsRepository;
+    private EggProductionTimeSeries timeSeries;
+
+    @BeforeEach
+    void setUp() {
+        statsRepository = mock(EggProductionStatsRepository.class);
+        timeSeries = new EggProductionTimeSeries(statsRepository, new EggProductionProperties());
+    }
+
+    @Test
+    @DisplayName("Debería cargar los acumulados diarios y resumir un rango solo con los días con producción")
+    void loadAndSummarize() {
+        when(statsRepository.findAll(StatsGranularity.DAY)).thenReturn(Flux.just(
+                day(JAN_1, 100, 10, "75.00"),
+                day(JAN_1.plusDays(2), 300, 30, "240.00"),
+                day(JAN_1.plusDays(40), 999, 99, "999.00")));
+
+        assertThat(timeSeries.isReady()).isFalse();
+        StepVerifier.create(timeSeries.load()).verifyComplete();
+        assertThat(timeSeries.isReady()).isTrue();
+
+        EggProductionSeriesSummary eggs = timeSeries.summarize(SeriesMetric.EGGS, JAN_1, JAN_1.plusDays(30));
+        assertThat(eggs.getDays()).isEqualTo(2);
+        assertThat(eggs.getSum()).isEqualTo(400.0);
+        assertThat(eggs.getAverage()).isEqualTo(200.0);
+        assertThat(eggs.getMin()).isEqualTo(100.0);
+        assertThat(eggs.getMax()).isEqualTo(300.0);
+
+        EggProductionSeriesSummary revenue = timeSeries.summarize(SeriesMetric.REVENUE, JAN_1, JAN_1.plusDays(30));
+        assertThat(revenue.getSum()).isEqualTo(315.0);
+
+        // Precio ponderado por kilos: 315 / 40; mínimo y máximo son los precios de cada día
+        EggProductionSeriesSummary price = timeSeries.summarize(SeriesMetric.PRICE_KILO, JAN_1, JAN_1.plusDays(30));
+        assertThat(price.getSum()).isNull();
+        assertThat(price.getAverage()).isEqualTo(7.88);
+        assertThat(price.getMin()).isEqualTo(7.5);
+        assertThat(price.getMax()).isEqualTo(8.0);
+    }
+
+    @Test
+    @DisplayName("Un rango sin producción debería resumirse con 0 días")
+    void summarizeEmptyRange() {
+        EggProductionSeriesSummary summary = timeSeries.summarize(SeriesMetric.KILOS, JAN_1, JAN_1.plusDays(6));
+
+        assertThat(summary.getDays()).isZero();
+        assertThat(summary.getSum()).isEqualTo(0.0);
+        assertThat(summary.getAverage()).isNull();
+    }
+
+    @Test
+    @DisplayName("Las escrituras deberían sumar y restar por día, también antes del primer día cargado")
+    void applyGrowsInBothDirections() {
+        timeSeries.apply(List.of(record(JAN_1, 100, 10, "7.50")), List.of());
+        timeSeries.apply(List.of(record(JAN_1.minusYears(3), 50, 5, "6.00"),
+                record(JAN_1.plusYears(3), 70, 7, "9.00")), List.of());
+        timeSeries.apply(List.of(), List.of(record(JAN_1, 100, 10, "7.50")));
+
+        EggProductionSeriesSummary eggs = timeSeries.summarize(SeriesMetric.EGGS, JAN_1.minusYears(5), JAN_1.plusYears(5));
+        assertThat(eggs.getDays()).isEqualTo(2);
+        assertThat(eggs.getSum()).isEqualTo(120.0);
+        assertThat(timeSeries.summarize(SeriesMetric.RECORDS, JAN_1, JAN_1).getDays()).isZero();
+    }
+
+    @Test
+    @DisplayName("Los días fuera de la ventana admitida deberían ignorarse sin hacer crecer las columnas")
+    void ignoresDaysOutsideWindow() {
+        timeSeries.apply(List.of(record(JAN_1, 100, 10, "7.50"),
+                record(LocalDate.of(1, 1, 1), 50, 5, "6.00"),
+                record(LocalDate.of(9999, 12, 31), 70, 7, "9.00")), List.of());
+
+        EggProductionSeriesSummary eggs = timeSeries.summarize(SeriesMetric.EGGS,
+                LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31));
+        assertThat(eggs.getDays()).isEqualTo(1);
+        assertThat(eggs.getSum()).isEqualTo(100.0);
+    }
+
+    @Test
+    @DisplayName("El promedio móvil debería contar como 0 los días sin producción dentro de la ventana")
+    void movingAverage() {
+        timeSeries.apply(List.of(
+                record(JAN_1, 30, 3, "7.00"),
+                record(JAN_1.plusDays(1), 60, 6, "8.00"),
+                record(JAN_1.plusDays(3), 90, 9, "9.00")), List.of());
+
+        List<EggProductionSeriesPoint> eggs = timeSeries.movingAverage(SeriesMetric.EGGS, JAN_1, JAN_1.plusDays(4), 3);
+        assertThat(eggs).extracting(EggProductionSeriesPoint::getValue).containsExactly(10.0, 30.0, 30.0, 50.0, 30.0);
+        assertThat(eggs.get(4).getDate()).isEqualTo(JAN_1.plusDays(4));
+
+        // Sin kilos en la ventana no hay precio
+        List<EggProductionSeriesPoint> price = timeSeries.movingAverage(SeriesMetric.PRICE_KILO,
+                JAN_1.minusDays(1), JAN_1.plusDays(1), 2);
+        assertThat(price).extracting(EggProductionSeriesPoint::getValue).containsExactly(null, 7.0, 7.67);
+    }
+
+    @Test
+    @DisplayName("Si hubo escrituras mientras se cargaba, debería volver a leer los acumulados")
+    void reloadsWhenWrittenDuringLoad() {
+        AtomicInteger reads = new AtomicInteger();
+        when(statsRepository.findAll(StatsGranularity.DAY)).thenReturn(Flux.defer(() -> {
+            if (reads.incrementAndGet() == 1) {
+                timeSeries.apply(List.of(record(JAN_1, 5, 1, "7.00")), List.of());
+                return Flux.just(day(JAN_1, 100, 10, "75.00"));
+            }
+            return Flux.just(day(JAN_1, 105, 11, "82.00"));
+        }));
+
+        StepVerifier.create(timeSeries.load()).verifyComplete();
+
+        assertThat(reads).hasValue(2);
+        assertThat(timeSeries.summarize(SeriesMetric.EGGS, JAN_1, JAN_1).getSum()).isEqualTo(105.0);
+    }
+
+    private static EggProductionStatsModel day(LocalDate date, long eggs, long kilos, String revenue) {
+        return new EggProductionStatsModel(date, 1, eggs, kilos, new BigDecimal(revenue));
+    }
+
+    private static EggProductionModel record(LocalDate date, int eggs, int kilos, String price) {
+        EggProductionModel model = new EggProductionModel();
+        model.setRegistrationDate(date);
+        model.setQuantityEggs(eggs);
+        model.setEggsKilo(kilos);
+        model.setPriceKilo(new BigDecimal(price));
+        model.setEstado("A");
+        return model;
+    }
+}
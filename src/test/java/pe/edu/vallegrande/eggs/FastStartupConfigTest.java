@@ -0,0 +1,50 @@
+package pe.edu.vallegrande.eggs.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.mock.env.MockEnvironment;
+import pe.edu.vallegrande.eggs.model.EggProductionEvent;
+import pe.edu.vallegrande.eggs.model.EggProductionModel;
+import pe.edu.vallegrande.eggs.repository.EggProductionCustomRepositoryImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class FastStartupConfigTest {
+
+    @Test
+    @DisplayName("Los hints deberían cubrir los modelos de Jackson, la entidad, el repositorio y las migraciones")
+    void registersRuntimeHints() {
+        RuntimeHints hints = new RuntimeHints();
+        new EggProductionRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onType(EggProductionModel.class)
+                .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(EggProductionEvent.class, "setRecord")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(EggProductionCustomRepositoryImpl.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("db/migration/V1__egg_production.sql")).accepts(hints);
+    }
+
+    @Test
+    @DisplayName("En la corrida de entrenamiento de AppCDS no debería migrar; en un arranque normal sí")
+    void skipsMigrationsWhileTraining() {
+        FastStartupConfig config = new FastStartupConfig();
+        Flyway flyway = mock(Flyway.class);
+
+        FlywayMigrationStrategy training = config.flywayMigrationStrategy(
+                new MockEnvironment().withProperty(FastStartupConfig.CONTEXT_EXIT, "onRefresh"));
+        training.migrate(flyway);
+        verify(flyway, never()).migrate();
+
+        config.flywayMigrationStrategy(new MockEnvironment()).migrate(flyway);
+        verify(flyway).migrate();
+    }
+}
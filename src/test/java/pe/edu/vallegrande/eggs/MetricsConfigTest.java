@@ -0,0 +1,76 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.eggs.repository.EggProductionRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricsConfigTest {
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Debería medir la espera por conexión sin ocultar el ConnectionFactory original")
+    void timedConnectionFactory() {
+        ConnectionFactory h2 = ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID());
+        MetricsConfig.TimedConnectionFactory timed = new MetricsConfig.TimedConnectionFactory(h2, registry, "connectionFactory");
+
+        StepVerifier.create(DatabaseClient.create(timed).sql("SELECT 1").fetch().rowsUpdated().then())
+                .verifyComplete();
+
+        assertThat(registry.get(MetricsConfig.POOL_ACQUIRE)
+                .tags("name", "connectionFactory", "outcome", "SUCCESS").timer().count()).isEqualTo(1);
+        assertThat(((Wrapped<?>) timed).unwrap()).isSameAs(h2);
+    }
+
+    @Test
+    @DisplayName("Debería medir las consultas reactivas del repositorio al terminar, con filas emitidas")
+    void repositoryInterceptor() throws Throwable {
+        MethodInterceptor interceptor = MetricsConfig.repositoryInterceptor(registry, "EggProductionRepository");
+
+        Object flux = interceptor.invoke(invocation("findAllByOrderByIdAsc", Flux.just(1, 2, 3)));
+        Object mono = interceptor.invoke(invocation("existsById", Mono.error(new IllegalStateException())));
+
+        // Nada se registra hasta que alguien se suscribe
+        assertThat(registry.find(MetricsConfig.REPOSITORY_INVOCATIONS).timers()).isEmpty();
+
+        StepVerifier.create((Flux<?>) flux).expectNextCount(3).verifyComplete();
+        StepVerifier.create((Mono<?>) mono).verifyError(IllegalStateException.class);
+
+        assertThat(registry.get(MetricsConfig.REPOSITORY_INVOCATIONS)
+                .tags("method", "findAllByOrderByIdAsc", "outcome", "SUCCESS").timer().count()).isEqualTo(1);
+        assertThat(registry.get(MetricsConfig.REPOSITORY_ROWS)
+                .tags("method", "findAllByOrderByIdAsc").counter().count()).isEqualTo(3);
+        assertThat(registry.get(MetricsConfig.REPOSITORY_INVOCATIONS)
+                .tags("method", "existsById", "outcome", "ERROR").timer().count()).isEqualTo(1);
+    }
+
+    private static MethodInvocation invocation(String method, Object result) throws Throwable {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(EggProductionRepository.class.getMethod(method,
+                method.equals("existsById") ? new Class<?>[]{Object.class} : new Class<?>[0]));
+        when(invocation.proceed()).thenReturn(result);
+        return invocation;
+    }
+}
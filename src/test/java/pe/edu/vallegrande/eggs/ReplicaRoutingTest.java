@@ -0,0 +1,127 @@
+package pe.edu.vallegrande.eggs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos bases H2 en memoria hacen de primario y réplica: cada una responde con su propio nombre.
+ */
+public class ReplicaRoutingTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private ReplicaRouting routing;
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        EggProductionProperties.ReadReplicas config = new EggProductionProperties.ReadReplicas();
+        config.setUrls(List.of("r2dbc:h2:mem:///replica-1", "r2dbc:h2:mem:///replica-2"));
+        config.setStickyWindow(Duration.ofSeconds(5));
+        routing = new ReplicaRouting(config, clock::get);
+        databaseClient = DatabaseClient.create(new ReplicaRoutingConnectionFactory(database("primary"),
+                List.of(database("replica-1"), database("replica-2")), routing));
+    }
+
+    @Test
+    @DisplayName("Solo las lecturas marcadas de un GET deberían ir a las réplicas, por turnos")
+    void routesReadOnlyGetsToReplicas() {
+        assertThat(get("uid-1", ReplicaRouting.readOnly(origin()))).isEqualTo("replica-1");
+        assertThat(get("uid-1", ReplicaRouting.readOnly(origin()))).isEqualTo("replica-2");
+        assertThat(get("uid-1", ReplicaRouting.readOnlyCached(origin().next()).flux())).isEqualTo("replica-1");
+
+        // Sin marca del servicio, o fuera de una petición GET, va al primario
+        assertThat(get("uid-1", origin())).isEqualTo("primary");
+        assertThat(ReplicaRouting.readOnly(origin()).blockFirst()).isEqualTo("primary");
+        assertThat(request(MockServerHttpRequest.put("/egg-production/1"), "uid-1", ReplicaRouting.readOnly(origin())))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Después de escribir, el mismo usuario y lo que va a caché deberían leer del primario por sticky-window")
+    void readYourWrites() {
+        request(MockServerHttpRequest.post("/egg-production"), "uid-1", Flux.empty());
+
+        assertThat(get("uid-1", ReplicaRouting.readOnly(origin()))).isEqualTo("primary");
+        // Otro usuario sigue leyendo listados de la réplica, pero no lo que queda en caché para todos
+        assertThat(get("uid-2", ReplicaRouting.readOnly(origin()))).startsWith("replica");
+        assertThat(get("uid-2", ReplicaRouting.readOnlyCached(origin().next()).flux())).isEqualTo("primary");
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(get("uid-1", ReplicaRouting.readOnly(origin()))).startsWith("replica");
+        assertThat(get("uid-2", ReplicaRouting.readOnlyCached(origin().next()).flux())).startsWith("replica");
+    }
+
+    @Test
+    @DisplayName("Con URLs de réplicas debería envolver el ConnectionFactory de Boot y publicar las métricas de cada pool")
+    void wrapsAutoConfiguredConnectionFactory() {
+        EggProductionProperties properties = new EggProductionProperties();
+        properties.getReadReplicas().setUrls(List.of("r2dbc:h2:mem:///replica-" + UUID.randomUUID()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("properties", properties);
+        beans.registerSingleton("r2dbcProperties", new R2dbcProperties());
+        beans.registerSingleton("replicaRouting", new ReplicaRouting(properties));
+        beans.registerSingleton("meterRegistry", meterRegistry);
+        BeanPostProcessor postProcessor = ReadReplicaConfig.readReplicaRouting(
+                beans.getBeanProvider(EggProductionProperties.class), beans.getBeanProvider(R2dbcProperties.class),
+                beans.getBeanProvider(ReplicaRouting.class), beans.getBeanProvider(MeterRegistry.class));
+        ConnectionFactory primary = database("primary");
+
+        Object wrapped = postProcessor.postProcessAfterInitialization(primary, "connectionFactory");
+
+        assertThat(wrapped).isInstanceOf(ReplicaRoutingConnectionFactory.class);
+        assertThat(((ReplicaRoutingConnectionFactory) wrapped).unwrap()).isSameAs(primary);
+        assertThat(postProcessor.postProcessAfterInitialization(wrapped, "connectionFactory")).isSameAs(wrapped);
+        assertThat(meterRegistry.find("r2dbc.pool.max.allocated").tag("name", "replica-0").gauge()).isNotNull();
+        Mono.from(((ReplicaRoutingConnectionFactory) wrapped).close()).block();
+    }
+
+    private Flux<String> origin() {
+        return databaseClient.sql("SELECT name FROM origin").map(row -> row.get("name", String.class)).all();
+    }
+
+    private String get(String subject, Flux<String> query) {
+        return request(MockServerHttpRequest.get("/egg-production"), subject, query);
+    }
+
+    private String request(MockServerHttpRequest.BaseBuilder<?> request, String subject, Flux<String> query) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request).mutate()
+                .principal(Mono.just(new TestingAuthenticationToken(subject, null)))
+                .build();
+        List<String> results = new ArrayList<>();
+        routing.webFilter().filter(exchange, filtered -> query.doOnNext(results::add).then()).block();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private static ConnectionFactory database(String name) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + name + "-" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+        DatabaseClient client = DatabaseClient.create(connectionFactory);
+        client.sql("CREATE TABLE origin (name VARCHAR(20))").then().block();
+        client.sql("INSERT INTO origin VALUES ('" + name + "')").then().block();
+        return connectionFactory;
+    }
+}
@@ -0,0 +1,68 @@
+package pe.edu.vallegrande.eggs.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SecurityConfigTest {
+
+    @Test
+    @DisplayName("/actuator/prometheus solo debería quedar abierto por el puerto de management")
+    void prometheusOnlyOnManagementPort() {
+        ServerWebExchangeMatcher matcher = SecurityConfig.onPort(8081,
+                ServerWebExchangeMatchers.pathMatchers(HttpMethod.GET, "/actuator/prometheus"));
+
+        assertThat(matches(matcher, 8081, "/actuator/prometheus")).isTrue();
+        assertThat(matches(matcher, 8080, "/actuator/prometheus")).isFalse();
+        assertThat(matches(matcher, 8081, "/egg-production")).isFalse();
+    }
+
+    @Test
+    @DisplayName("El claim role debería convertirse en ROLE_<ROL>, también para roles que no son USER ni ADMIN")
+    void roleAuthorities() {
+        SecurityConfig securityConfig = new SecurityConfig();
+
+        assertThat(authorities(securityConfig, "admin")).containsExactly("ROLE_ADMIN");
+        assertThat(authorities(securityConfig, "User")).containsExactly("ROLE_USER");
+        assertThat(authorities(securityConfig, "auditor")).containsExactly("ROLE_AUDITOR");
+        assertThat(authorities(securityConfig, null)).isEmpty();
+    }
+
+    private static List<String> authorities(SecurityConfig securityConfig, String role) {
+        return securityConfig.convertJwt(jwt(role)).block().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+    }
+
+    private static Jwt jwt(String role) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("uid-1")
+                .claims(claims -> {
+                    if (role != null) {
+                        claims.put("role", role);
+                    }
+                })
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+    }
+
+    private static boolean matches(ServerWebExchangeMatcher matcher, int port, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .localAddress(new InetSocketAddress("127.0.0.1", port)));
+        return matcher.matches(exchange).block().isMatch();
+    }
+}